@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package benchmarks;
+
+import java.io.*;
+import java.util.concurrent.*;
+import javax.annotation.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import mockit.asm.classes.*;
+import mockit.asm.methods.*;
+
+/**
+ * Measures the parsing and regeneration of JDK class files with the bytecode library used by all class modifiers.
+ * <p/>
+ * A plain round-trip lets the <tt>ClassWriter</tt> copy each method as is, while a rewrite passes every instruction through a method
+ * visitor, like a class modifier does for the methods it modifies.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Thread)
+public class ClassFileRoundTripBenchmark
+{
+   @Param({"java.lang.String", "java.util.HashMap", "java.util.concurrent.ConcurrentHashMap"})
+   public String className;
+
+   private byte[] classFile;
+
+   @Setup
+   public void readClassFile() throws IOException {
+      String classFileName = className.replace('.', '/') + ".class";
+
+      try (InputStream input = ClassLoader.getSystemResourceAsStream(classFileName)) {
+         classFile = input.readAllBytes();
+      }
+   }
+
+   @Benchmark
+   public ClassReader readClass() {
+      ClassReader cr = new ClassReader(classFile);
+      cr.accept(new ClassVisitor() {});
+      return cr;
+   }
+
+   @Benchmark
+   public byte[] copyClass() {
+      ClassReader cr = new ClassReader(classFile);
+      ClassWriter cw = new ClassWriter(cr);
+      cr.accept(cw);
+      return cw.toByteArray();
+   }
+
+   @Benchmark
+   public byte[] rewriteClass() {
+      ClassReader cr = new ClassReader(classFile);
+      ClassVisitor rewriter = new MethodRewriter(new ClassWriter(cr));
+      cr.accept(rewriter);
+      return rewriter.toByteArray();
+   }
+
+   private static final class MethodRewriter extends WrappingClassVisitor
+   {
+      MethodRewriter(@Nonnull ClassWriter cw) { super(cw); }
+
+      @Override
+      public MethodVisitor visitMethod(
+         int access, @Nonnull String name, @Nonnull String desc, @Nullable String signature, @Nullable String[] exceptions
+      ) {
+         MethodWriter mw = cw.visitMethod(access, name, desc, signature, exceptions);
+         return new WrappingMethodVisitor(mw) {};
+      }
+   }
+}
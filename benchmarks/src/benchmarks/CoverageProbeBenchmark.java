@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import mockit.asm.controlFlow.*;
+import mockit.coverage.*;
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+/**
+ * Measures the probes which instrumented code calls for each line and branch executed, from one thread and from several threads at once.
+ * <p/>
+ * The coverage data is set up directly, for a fictitious source file with a few lines and a single two-way branch.
+ * Call points are not collected, since that requires a running test.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Benchmark)
+public class CoverageProbeBenchmark
+{
+   private static final int LINES = 10;
+   private static final int LINE_WITH_BRANCHES = 5;
+
+   private int fileIndex;
+
+   @Setup
+   public void addFileData() {
+      CoverageData coverageData = CoverageData.instance();
+      FileCoverageData fileData = coverageData.getOrAddFile("benchmarks/Probed.java", null);
+      fileIndex = fileData.index;
+      PerFileLineCoverage lineData = fileData.lineCoverageInfo;
+
+      for (int line = 1; line <= LINES; line++) {
+         lineData.addLine(line);
+      }
+
+      lineData.addBranchingPoint(LINE_WITH_BRANCHES, new Label(), new Label());
+   }
+
+   @Benchmark
+   public void lineExecuted() { TestRun.lineExecuted(fileIndex, 3); }
+
+   @Benchmark
+   public void branchExecuted() { TestRun.branchExecuted(fileIndex, LINE_WITH_BRANCHES, 0); }
+
+   @Benchmark @Threads(4)
+   public void lineExecutedFromFourThreads() { TestRun.lineExecuted(fileIndex, 3); }
+}
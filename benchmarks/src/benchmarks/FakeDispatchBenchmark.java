@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import mockit.*;
+import mockit.internal.state.*;
+
+/**
+ * Measures calls to faked methods.
+ * Since the fake class is not public, the faked methods call the fakes through <tt>FakeMethodBridge</tt>.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Thread)
+public class FakeDispatchBenchmark
+{
+   public static class Collaborator
+   {
+      public int getValue(int i) { return i; }
+      public int getOtherValue(int i) { return i; }
+      public int getProceedingValue(int i) { return i; }
+   }
+
+   private Collaborator collaborator;
+   private SavePoint savePoint;
+   private int argument;
+
+   @Setup
+   public void applyFakes() {
+      savePoint = new SavePoint();
+      collaborator = new Collaborator();
+
+      new MockUp<Collaborator>() {
+         @Mock int getValue(int i) { return i + 1; }
+         @Mock int getOtherValue(Invocation inv, int i) { return inv.getInvocationCount(); }
+         @Mock int getProceedingValue(Invocation inv, int i) { return inv.<Integer>proceed() + 1; }
+      };
+   }
+
+   @TearDown
+   public void discardFakes() { savePoint.rollback(); }
+
+   @Benchmark
+   public int callFakeMethod() { return collaborator.getValue(argument++); }
+
+   @Benchmark
+   public int callFakeMethodWithInvocationParameter() { return collaborator.getOtherValue(argument++); }
+
+   @Benchmark
+   public int callFakeMethodThatProceeds() { return collaborator.getProceedingValue(argument++); }
+}
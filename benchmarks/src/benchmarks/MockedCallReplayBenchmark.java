@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import mockit.*;
+import mockit.internal.state.*;
+
+/**
+ * Measures the replay of calls to a mocked instance, which go from the mocked method through <tt>MockedBridge</tt> to
+ * <tt>RecordAndReplayExecution.recordOrReplay</tt>.
+ * <p/>
+ * Expectations are recorded again for each iteration, and discarded at its end, since the replay phase keeps every call made.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Thread)
+public class MockedCallReplayBenchmark
+{
+   public static class Collaborator
+   {
+      public int getValue(int i) { return i; }
+      public void doSomething() {}
+   }
+
+   private Collaborator collaborator;
+   private SavePoint savePoint;
+   private int argument;
+
+   @Setup(Level.Iteration)
+   public void recordExpectations() {
+      savePoint = new SavePoint();
+      collaborator = new Collaborator();
+
+      new Expectations(collaborator) {{
+         collaborator.getValue(anyInt); result = 123;
+      }};
+   }
+
+   @TearDown(Level.Iteration)
+   public void discardExpectations() {
+      TestRun.finishCurrentTestExecution();
+      savePoint.rollback();
+   }
+
+   @Benchmark
+   public int replayRecordedExpectation() { return collaborator.getValue(argument++); }
+
+   @Benchmark
+   public void replayUnrecordedCall() { collaborator.doSomething(); }
+}
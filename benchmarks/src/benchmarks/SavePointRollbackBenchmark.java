@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package benchmarks;
+
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import mockit.*;
+import mockit.internal.state.*;
+
+/**
+ * Measures the rollback of a save point, which is what happens at the end of each test to undo the mocking and faking done in it.
+ * <p/>
+ * Each invocation applies a fake and a partial mock of small classes, so that the rollback has to restore their original definitions.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Thread)
+public class SavePointRollbackBenchmark
+{
+   public static class FakedClass { public int getValue() { return 1; } }
+   public static class MockedClass { public int getValue() { return 2; } }
+
+   private SavePoint savePoint;
+
+   @Setup(Level.Invocation)
+   public void mockAndFakeClasses() {
+      savePoint = new SavePoint();
+
+      new MockUp<FakedClass>() { @Mock int getValue() { return 3; } };
+
+      final MockedClass mocked = new MockedClass();
+      new Expectations(mocked) {{ mocked.getValue(); result = 4; }};
+      TestRun.finishCurrentTestExecution();
+   }
+
+   @Benchmark
+   public void rollback() { savePoint.rollback(); }
+}
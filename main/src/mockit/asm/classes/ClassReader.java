@@ -42,8 +42,22 @@ public final class ClassReader extends AnnotatedReader
       version = readShort(6);
       access = readUnsignedShort();
       classInfo = new ClassInfo();
-      codeIndex += 2;
-      classInfo.superName = readClass();
+   }
+
+   /**
+    * Reads the super class name only when first needed, so that readers used only for the class version or access flags don't decode any
+    * constant pool strings.
+    */
+   @Nullable
+   private String readSuperName() {
+      String superName = classInfo.superName;
+
+      if (superName == null) {
+         superName = readUTF8(readItem(header + 4));
+         classInfo.superName = superName;
+      }
+
+      return superName;
    }
 
    /**
@@ -61,8 +75,9 @@ public final class ClassReader extends AnnotatedReader
     */
    @Nonnull
    public String getSuperName() {
-      assert classInfo.superName != null;
-      return classInfo.superName;
+      String superName = readSuperName();
+      assert superName != null;
+      return superName;
    }
 
    /**
@@ -77,6 +92,7 @@ public final class ClassReader extends AnnotatedReader
    public void accept(ClassVisitor visitor) {
       cv = visitor;
 
+      readSuperName();
       codeIndex = header + 2;
       String classDesc = readNonnullClass();
       codeIndex += 2;
@@ -22,13 +22,18 @@ public class BytecodeReader
     * The String objects corresponding to the CONSTANT_Utf8 items. This cache avoids multiple parsing of a given CONSTANT_Utf8 constant pool item,
     * which GREATLY improves performances (by a factor 2 to 3). This caching strategy could be extended to all constant pool items, but its benefit
     * would not be so great for these items (because they are much less expensive to parse than CONSTANT_Utf8 items).
+    * <p/>
+    * Only allocated when the first string is read, so that readers which only look at the class header don't pay for it.
+    * Readers of a class can be shared between threads, which at worst decode the same string twice; no other state is allocated with
+    * this array, so none can be seen missing.
     */
-   @Nonnull private final String[] strings;
+   @Nullable private String[] strings;
 
    /**
-    * The buffer used to read strings.
+    * The reader which first read the constant pool, and which caches its strings for all other readers of the same class, or <tt>null</tt>
+    * if this is such a reader.
     */
-   @Nonnull private final char[] buf;
+   @Nullable private final BytecodeReader constantPoolOwner;
 
    /**
     * The next index at {@link #code} to be read.
@@ -41,16 +46,11 @@ public class BytecodeReader
 
       int itemCount = readUnsignedShort();
       items = new int[itemCount];
-      strings = new String[itemCount];
-
-      int maxStringSize = readConstantPoolItems();
-      buf = new char[maxStringSize];
+      readConstantPoolItems();
+      constantPoolOwner = null;
    }
 
-   @Nonnegative
-   private int readConstantPoolItems() {
-      int maxStringSize = 0;
-
+   private void readConstantPoolItems() {
       for (int itemIndex = 1; itemIndex < items.length; itemIndex++) {
          int itemType = readSignedByte();
          items[itemIndex] = codeIndex;
@@ -59,14 +59,9 @@ public class BytecodeReader
          if (itemType == LONG || itemType == DOUBLE) {
             itemIndex++;
          }
-         else if (itemType == UTF8 && itemSize > maxStringSize) {
-            maxStringSize = itemSize;
-         }
 
          codeIndex += itemSize - 1;
       }
-
-      return maxStringSize;
    }
 
    @Nonnegative
@@ -83,8 +78,7 @@ public class BytecodeReader
    protected BytecodeReader(@Nonnull BytecodeReader another) {
       code = another.code;
       items = another.items;
-      strings = another.strings;
-      buf = another.buf;
+      constantPoolOwner = another.constantPoolOwner == null ? another : another.constantPoolOwner;
       codeIndex = another.codeIndex;
    }
 
@@ -242,6 +236,7 @@ public class BytecodeReader
       int utfLen = readUnsignedShort(startIndex);
       startIndex += 2;
       int endIndex = startIndex + utfLen;
+      char[] chars = new char[utfLen];
       int strLen = 0;
       int st = 0;
       @SuppressWarnings("QuestionableName") char cc = 0;
@@ -253,7 +248,7 @@ public class BytecodeReader
             c &= 0xFF;
 
             if (c < 0x80) { // 0xxxxxxx
-               buf[strLen++] = (char) c;
+               chars[strLen++] = (char) c;
             }
             else if (c < 0xE0 && c > 0xBF) { // 110x xxxx 10xx xxxx
                cc = (char) (c & 0x1F);
@@ -265,7 +260,7 @@ public class BytecodeReader
             }
          }
          else if (st == 1) { // byte 2 of 2-byte char or byte 3 of 3-byte char
-            buf[strLen++] = (char) ((cc << 6) | (c & 0x3F));
+            chars[strLen++] = (char) ((cc << 6) | (c & 0x3F));
             st = 0;
          }
          else { // byte 2 of 3-byte char
@@ -274,7 +269,7 @@ public class BytecodeReader
          }
       }
 
-      return new String(buf, 0, strLen);
+      return new String(chars, 0, strLen);
    }
 
    /**
@@ -341,14 +336,24 @@ public class BytecodeReader
     */
    @Nonnull
    public final String readString(@Nonnegative int itemIndex) {
-      String cachedString = strings[itemIndex];
+      if (constantPoolOwner != null) {
+         return constantPoolOwner.readString(itemIndex);
+      }
+
+      String[] cachedStrings = strings;
+
+      if (cachedStrings == null) {
+         strings = cachedStrings = new String[items.length];
+      }
+
+      String cachedString = cachedStrings[itemIndex];
 
       if (cachedString != null) {
          return cachedString;
       }
 
       String newString = readUTF(itemIndex);
-      strings[itemIndex] = newString;
+      cachedStrings[itemIndex] = newString;
       return newString;
    }
 
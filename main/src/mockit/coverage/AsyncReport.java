@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.*;
+import javax.annotation.*;
+
+import mockit.coverage.data.*;
+import mockit.internal.util.*;
+
+/**
+ * Hands the generation of the HTML report over to a separate JVM process, so that the test JVM can terminate as soon as the coverage data
+ * is saved.
+ * Enabled with the "<tt>coverage-asyncReport=true</tt>" property.
+ * <p/>
+ * The data file, which also holds the list of redundant tests, is deleted by the report process when done, as is its log file if the report
+ * was successfully generated.
+ */
+final class AsyncReport
+{
+   @Nonnull private final File dataFile;
+   @Nonnull private final File logFile;
+   @Nonnull private final CoverageData coverageData;
+   @Nonnull private final String reportFormat;
+
+   AsyncReport(@Nonnull String outputDir, @Nonnull CoverageData coverageData, boolean withCallPoints) {
+      String parentDir = Configuration.getOrChooseOutputDirectory(outputDir);
+      dataFile = new File(parentDir, "coverage-report.ser");
+      logFile = new File(parentDir, "coverage-report.log");
+      this.coverageData = coverageData;
+      reportFormat = withCallPoints ? "html-cp" : "html";
+   }
+
+   void generate(@Nullable List<String> redundantTests) throws IOException {
+      try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)))) {
+         output.writeObject(coverageData);
+         output.writeObject(redundantTests == null ? null : new ArrayList<>(redundantTests));
+      }
+
+      List<String> command = buildCommandLine();
+      new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(logFile).start();
+
+      System.out.println(
+         "JMockit: Coverage report being generated in a separate process; in case of failure, see " + logFile.getCanonicalPath());
+   }
+
+   @Nonnull
+   private List<String> buildCommandLine() {
+      List<String> command = new ArrayList<>();
+      command.add(System.getProperty("java.home") + File.separatorChar + "bin" + File.separatorChar + "java");
+      command.add("-cp");
+      command.add(Utilities.getClassFileLocationPath(CodeCoverage.class));
+
+      for (Entry<Object, Object> property : System.getProperties().entrySet()) {
+         String name = property.getKey().toString();
+
+         if (isPropertyToPassOn(name)) {
+            command.add("-D" + name + '=' + property.getValue());
+         }
+      }
+
+      command.add("-Dcoverage-output=" + reportFormat);
+      command.add(AsyncReport.class.getName());
+      command.add(dataFile.getPath());
+      command.add(logFile.getPath());
+      return command;
+   }
+
+   private static boolean isPropertyToPassOn(@Nonnull String name) {
+      if ("basedir".equals(name)) {
+         return true;
+      }
+
+      return name.startsWith("coverage-") && !"coverage-output".equals(name) && !"coverage-asyncReport".equals(name);
+   }
+
+   /**
+    * Entry point for the report process, with the paths to the data file and to the log file as arguments.
+    */
+   public static void main(@Nonnull String[] args) throws IOException {
+      File dataFile = new File(args[0]);
+      CoverageData coverageData;
+      List<String> redundantTests;
+
+      try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(dataFile)))) {
+         coverageData = (CoverageData) input.readObject();
+         //noinspection unchecked
+         redundantTests = (List<String>) input.readObject();
+      }
+      catch (ClassNotFoundException e) {
+         throw new RuntimeException("Serialized class in coverage data file \"" + dataFile + "\" not found in classpath", e);
+      }
+      finally {
+         //noinspection ResultOfMethodCallIgnored
+         dataFile.delete();
+      }
+
+      new OutputFileGenerator().generateReportFromDataOfTestRun(coverageData, redundantTests);
+
+      //noinspection ResultOfMethodCallIgnored
+      new File(args[1]).delete();
+   }
+}
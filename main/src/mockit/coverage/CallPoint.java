@@ -8,15 +8,26 @@ import java.io.*;
 import java.lang.annotation.*;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import javax.annotation.*;
 import static java.lang.reflect.Modifier.*;
 
 import mockit.internal.util.*;
 
+/**
+ * A call to code under test from a line in a test method.
+ * <p/>
+ * The stack trace elements for those lines are interned in a table shared by all call points, including those read from serialized
+ * coverage data, so that each distinct line in test code is held in memory only once.
+ */
 public final class CallPoint implements Serializable
 {
    private static final long serialVersionUID = 362727169057343840L;
-   private static final Map<StackTraceElement, Boolean> steCache = new HashMap<>();
+   private static final Map<StackTraceElement, Boolean> steCache = new ConcurrentHashMap<>();
+   private static final ConcurrentMap<StackTraceElement, StackTraceElement> internedSTEs = new ConcurrentHashMap<>();
+   private static final AtomicIntegerFieldUpdater<CallPoint> REPETITION_COUNT =
+      AtomicIntegerFieldUpdater.newUpdater(CallPoint.class, "repetitionCount");
    private static final Class<? extends Annotation> testAnnotation;
    private static final boolean checkTestAnnotationOnClass;
    private static final boolean checkIfTestCaseSubclass;
@@ -68,14 +79,29 @@ public final class CallPoint implements Serializable
    }
 
    @Nonnull private final StackTraceElement ste;
-   @Nonnegative private int repetitionCount;
+   @Nonnegative private volatile int repetitionCount;
+
+   private CallPoint(@Nonnull StackTraceElement ste, @Nonnegative int repetitionCount) {
+      this.ste = ste;
+      this.repetitionCount = repetitionCount;
+   }
 
-   private CallPoint(@Nonnull StackTraceElement ste) { this.ste = ste; }
+   @Nonnull
+   private static StackTraceElement intern(@Nonnull StackTraceElement ste) {
+      StackTraceElement internedSTE = internedSTEs.putIfAbsent(ste, ste);
+      return internedSTE == null ? ste : internedSTE;
+   }
+
+   @Nonnull
+   private Object readResolve() {
+      StackTraceElement internedSTE = intern(ste);
+      return internedSTE == ste ? this : new CallPoint(internedSTE, repetitionCount);
+   }
 
    @Nonnull public StackTraceElement getStackTraceElement() { return ste; }
    @Nonnegative public int getRepetitionCount() { return repetitionCount; }
 
-   public void incrementRepetitionCount() { repetitionCount++; }
+   public void addRepetitions(@Nonnegative int repetitions) { REPETITION_COUNT.addAndGet(this, repetitions); }
 
    public boolean isSameTestMethod(@Nonnull CallPoint other) {
       StackTraceElement thisSTE = ste;
@@ -99,7 +125,7 @@ public final class CallPoint implements Serializable
          StackTraceElement ste = st.getElement(i);
 
          if (isTestMethod(ste)) {
-            return new CallPoint(ste);
+            return new CallPoint(intern(ste), 0);
          }
       }
 
@@ -107,8 +133,10 @@ public final class CallPoint implements Serializable
    }
 
    private static boolean isTestMethod(@Nonnull StackTraceElement ste) {
-      if (steCache.containsKey(ste)) {
-         return steCache.get(ste);
+      Boolean cachedIsTestMethod = steCache.get(ste);
+
+      if (cachedIsTestMethod != null) {
+         return cachedIsTestMethod;
       }
 
       boolean isTestMethod = false;
@@ -4,6 +4,7 @@
  */
 package mockit.coverage;
 
+import java.io.*;
 import java.lang.instrument.*;
 import java.security.*;
 import javax.annotation.*;
@@ -35,15 +36,22 @@ public final class CodeCoverage implements ClassFileTransformer
    }
 
    public CodeCoverage() {
+      FirstHits.enableIfRequested();
       classModification = new ClassModification();
+      readMetadataFromOfflineInstrumentationIfSpecified();
       final OutputFileGenerator outputGenerator = createOutputFileGenerator();
       final CoverageCheck coverageCheck = CoverageCheck.createIfApplicable();
+      final CoverageSnapshots snapshots = CoverageSnapshots.startIfRequested();
 
       Runtime.getRuntime().addShutdownHook(new Thread() {
          @Override
          public void run() {
             TestRun.terminate();
 
+            if (snapshots != null) {
+               snapshots.writeFinalSnapshot();
+            }
+
             if (outputGenerator.isOutputToBeGenerated()) {
                if (classModification.shouldConsiderClassesNotLoaded()) {
                   new ClassesNotLoaded(classModification).gatherCoverageData();
@@ -63,6 +71,19 @@ public final class CodeCoverage implements ClassFileTransformer
       });
    }
 
+   private void readMetadataFromOfflineInstrumentationIfSpecified() {
+      String metadataFile = Configuration.getProperty("metadata");
+
+      if (metadataFile != null) {
+         try {
+            OfflineInstrumentation.readMetadata(new File(metadataFile), classModification);
+         }
+         catch (IOException e) {
+            throw new RuntimeException(e);
+         }
+      }
+   }
+
    @Nullable @Override
    public byte[] transform(
       @Nullable ClassLoader loader, @Nonnull String internalClassName, @Nullable Class<?> classBeingRedefined,
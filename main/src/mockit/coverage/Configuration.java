@@ -22,6 +22,39 @@ public final class Configuration
       return System.getProperty(COVERAGE_PREFIX + nameSuffix, defaultValue);
    }
 
+   /**
+    * Gets the value of a numeric property, or the given default if not specified.
+    * A value which is not a number, or is less than the given minimum, is reported and replaced with the default.
+    */
+   public static long getLongProperty(@Nonnull String nameSuffix, long defaultValue, long minimumValue) {
+      return getNumericProperty(nameSuffix, defaultValue, minimumValue, Long.MAX_VALUE);
+   }
+
+   public static int getIntProperty(@Nonnull String nameSuffix, int defaultValue, int minimumValue) {
+      return (int) getNumericProperty(nameSuffix, defaultValue, minimumValue, Integer.MAX_VALUE);
+   }
+
+   private static long getNumericProperty(@Nonnull String nameSuffix, long defaultValue, long minimumValue, long maximumValue) {
+      String textualValue = getProperty(nameSuffix);
+
+      if (textualValue == null || textualValue.trim().isEmpty()) {
+         return defaultValue;
+      }
+
+      try {
+         long value = Long.parseLong(textualValue.trim());
+
+         if (value >= minimumValue && value <= maximumValue) {
+            return value;
+         }
+      }
+      catch (NumberFormatException ignore) {}
+
+      System.out.println(
+         "JMockit: Invalid value \"" + textualValue + "\" for " + COVERAGE_PREFIX + nameSuffix + "; using " + defaultValue + " instead");
+      return defaultValue;
+   }
+
    @Nullable
    public static String getOrChooseOutputDirectory(@Nonnull String outputDir) {
       if (!outputDir.isEmpty()) {
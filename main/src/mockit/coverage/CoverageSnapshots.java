@@ -0,0 +1,467 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.*;
+import javax.annotation.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+/**
+ * Periodically appends the coverage data gathered so far to a rolling "<tt>coverage-snapshots.dat</tt>" file, so that long-running JVMs
+ * don't need to be terminated for their coverage to be known.
+ * Enabled with the "<tt>coverage-snapshotInterval</tt>" property (in seconds), and/or with "<tt>coverage-snapshotTrigger</tt>", the path
+ * to a file whose creation causes a snapshot to be taken right away (the file then gets deleted).
+ * <p/>
+ * Each snapshot is a length-prefixed segment holding only the source files whose execution counts changed since the previous one.
+ * The first time a file is written, or after its classes got more lines or branches, the full serialized data for the file is written;
+ * otherwise, only the non-zero differences in its line and branch counters, with delta-encoded positions.
+ * When the file grows beyond "<tt>coverage-snapshotMaxSize</tt>" megabytes (<tt>64</tt> by default), it's renamed with a
+ * "<tt>.prev</tt>" suffix and a new one is started, beginning with the full data for all files covered so far.
+ * <p/>
+ * Snapshot files are accepted as input files by {@link DataFileMerging}, which replays their segments.
+ */
+final class CoverageSnapshots implements Runnable
+{
+   static final String SNAPSHOTS_FILE_NAME = "coverage-snapshots.dat";
+   private static final int SNAPSHOT_FORMAT = 1;
+   private static final byte FULL_DATA = 0;
+   private static final byte COUNT_DIFFERENCES = 1;
+   private static final long MAX_TRIGGER_POLLING_PERIOD = 1000L;
+
+   private static final class FileState
+   {
+      @Nonnull final int[] counts;
+      @Nonnegative final int executableLines;
+
+      FileState(@Nonnull int[] counts, @Nonnegative int executableLines) {
+         this.counts = counts;
+         this.executableLines = executableLines;
+      }
+   }
+
+   @Nonnull private final File snapshotsFile;
+   @Nullable private final File triggerFile;
+   @Nonnegative private final long intervalInMillis;
+   @Nonnegative private final long maxFileSize;
+   @Nonnull private final Map<String, FileState> lastWrittenStates;
+   @Nonnull private final Set<String> filesWithLastModifiedTime;
+
+   CoverageSnapshots(
+      @Nonnull File snapshotsFile, @Nullable File triggerFile, @Nonnegative long intervalInMillis, @Nonnegative long maxFileSize
+   ) {
+      this.snapshotsFile = snapshotsFile;
+      this.triggerFile = triggerFile;
+      this.intervalInMillis = intervalInMillis;
+      this.maxFileSize = maxFileSize;
+      lastWrittenStates = new HashMap<>();
+      filesWithLastModifiedTime = new HashSet<>();
+   }
+
+   @Nullable
+   static CoverageSnapshots startIfRequested() {
+      long intervalInSeconds = Configuration.getLongProperty("snapshotInterval", 0L, 1L);
+      String trigger = Configuration.getProperty("snapshotTrigger", "");
+
+      if (intervalInSeconds == 0L && trigger.isEmpty()) {
+         return null;
+      }
+
+      String outputDir = Configuration.getProperty("outputDir", "");
+      String parentDir = Configuration.getOrChooseOutputDirectory(outputDir);
+      File snapshotsFile = new File(parentDir, SNAPSHOTS_FILE_NAME);
+      File triggerFile = trigger.isEmpty() ? null : new File(trigger);
+      long maxFileSizeInMB = Configuration.getLongProperty("snapshotMaxSize", 64L, 1L);
+      CoverageSnapshots snapshots = new CoverageSnapshots(snapshotsFile, triggerFile, intervalInSeconds * 1000L, maxFileSizeInMB * 1024L * 1024L);
+
+      Thread thread = new Thread(snapshots, "JMockit coverage snapshots");
+      thread.setDaemon(true);
+      thread.start();
+      return snapshots;
+   }
+
+   @Override
+   public void run() {
+      long pollingPeriod = getPollingPeriod();
+      long nextSnapshotTime = System.currentTimeMillis() + intervalInMillis;
+
+      while (!TestRun.isTerminated()) {
+         try { Thread.sleep(pollingPeriod); } catch (InterruptedException ignore) { return; }
+
+         long now = System.currentTimeMillis();
+         boolean snapshotDue = intervalInMillis > 0L && now >= nextSnapshotTime;
+
+         if (snapshotDue || wasTriggered()) {
+            writeSnapshotReportingFailure();
+            nextSnapshotTime = now + intervalInMillis;
+         }
+      }
+   }
+
+   @Nonnegative
+   private long getPollingPeriod() {
+      if (triggerFile == null) {
+         return intervalInMillis;
+      }
+
+      return intervalInMillis > 0L ? Math.min(intervalInMillis, MAX_TRIGGER_POLLING_PERIOD) : MAX_TRIGGER_POLLING_PERIOD;
+   }
+
+   private boolean wasTriggered() {
+      File trigger = triggerFile;
+      return trigger != null && trigger.exists() && trigger.delete();
+   }
+
+   /**
+    * Writes one last snapshot, when the JVM is shutting down, so that the snapshots file holds all data from the test run.
+    */
+   void writeFinalSnapshot() { writeSnapshotReportingFailure(); }
+
+   private void writeSnapshotReportingFailure() {
+      try {
+         writeSnapshot(CoverageData.instance());
+      }
+      catch (IOException e) {
+         System.out.println("JMockit: Unable to write coverage snapshot to " + snapshotsFile + ": " + e);
+      }
+   }
+
+   synchronized void writeSnapshot(@Nonnull CoverageData coverageData) throws IOException {
+      startNewFileIfMaxSizeReached();
+      fillLastModifiedTimesForNewFiles(coverageData);
+
+      Map<String, FileState> currentStates = copyExecutionCounts(coverageData);
+      ByteArrayOutputStream segmentBytes = new ByteArrayOutputStream();
+      int filesWritten;
+
+      try (DataOutputStream segment = new DataOutputStream(segmentBytes)) {
+         segment.writeInt(SNAPSHOT_FORMAT);
+         segment.writeLong(System.currentTimeMillis());
+         filesWritten = writeChangedFiles(segment, coverageData, currentStates);
+      }
+
+      if (filesWritten > 0) {
+         appendSegment(segmentBytes);
+      }
+   }
+
+   private void startNewFileIfMaxSizeReached() throws IOException {
+      long fileSize = snapshotsFile.length();
+
+      if (fileSize > 0L && fileSize >= maxFileSize) {
+         File previousFile = new File(snapshotsFile.getPath() + ".prev");
+
+         if (previousFile.exists() && !previousFile.delete() || !snapshotsFile.renameTo(previousFile)) {
+            throw new IOException("Unable to rename " + snapshotsFile + " to " + previousFile);
+         }
+
+         lastWrittenStates.clear();
+      }
+   }
+
+   private void fillLastModifiedTimesForNewFiles(@Nonnull CoverageData coverageData) {
+      for (Entry<String, FileCoverageData> fileAndFileData : coverageData.getFileToFileData().entrySet()) {
+         String sourceFile = fileAndFileData.getKey();
+
+         if (filesWithLastModifiedTime.add(sourceFile)) {
+            coverageData.fillLastModifiedTimeForClassFile(sourceFile, fileAndFileData.getValue());
+         }
+      }
+   }
+
+   /**
+    * Copies the execution counters of each file while holding the lock used by the probes in instrumented code, so that they are read in a
+    * consistent state.
+    * Nothing else is done while holding it; in particular, the full data of files gets serialized afterwards.
+    */
+   @Nonnull
+   private Map<String, FileState> copyExecutionCounts(@Nonnull CoverageData coverageData) {
+      Map<String, FileCoverageData> filesInOrder = coverageData.getFileToFileDataInOrder();
+      Map<String, FileState> currentStates = new LinkedHashMap<>();
+
+      synchronized (TestRun.LOCK) {
+         for (Entry<String, FileCoverageData> fileAndFileData : filesInOrder.entrySet()) {
+            String sourceFile = fileAndFileData.getKey();
+
+            // Files added after the last modified times were filled will go into the next snapshot.
+            if (filesWithLastModifiedTime.contains(sourceFile)) {
+               PerFileLineCoverage lineCoverage = fileAndFileData.getValue().lineCoverageInfo;
+               FileState currentState = new FileState(lineCoverage.copyExecutionCounts(), lineCoverage.getExecutableLineCount());
+               currentStates.put(sourceFile, currentState);
+            }
+         }
+      }
+
+      return currentStates;
+   }
+
+   @Nonnegative
+   private int writeChangedFiles(
+      @Nonnull DataOutputStream segment, @Nonnull CoverageData coverageData, @Nonnull Map<String, FileState> currentStates
+   ) throws IOException {
+      List<String> filesToWrite = new ArrayList<>();
+      List<byte[]> fileRecords = new ArrayList<>();
+
+      for (Entry<String, FileState> fileAndState : currentStates.entrySet()) {
+         String sourceFile = fileAndState.getKey();
+         FileCoverageData fileData = coverageData.getFileToFileData().get(sourceFile);
+         byte[] fileRecord = createRecordIfCountsChanged(sourceFile, fileData, fileAndState.getValue());
+
+         if (fileRecord != null) {
+            filesToWrite.add(sourceFile);
+            fileRecords.add(fileRecord);
+         }
+      }
+
+      int fileCount = filesToWrite.size();
+      segment.writeInt(fileCount);
+
+      for (int i = 0; i < fileCount; i++) {
+         segment.writeUTF(filesToWrite.get(i));
+         segment.write(fileRecords.get(i));
+      }
+
+      return fileCount;
+   }
+
+   @Nullable
+   private byte[] createRecordIfCountsChanged(
+      @Nonnull String sourceFile, @Nonnull FileCoverageData fileData, @Nonnull FileState currentState
+   ) throws IOException {
+      int[] counts = currentState.counts;
+      FileState lastWrittenState = lastWrittenStates.get(sourceFile);
+      ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+
+      try (DataOutputStream record = new DataOutputStream(recordBytes)) {
+         if (lastWrittenState == null) {
+            if (isAllZeros(counts) || !writeFullData(record, fileData, counts)) {
+               return null;
+            }
+         }
+         else if (lastWrittenState.executableLines != currentState.executableLines || lastWrittenState.counts.length != counts.length) {
+            if (!writeFullData(record, fileData, counts)) {
+               return null;
+            }
+         }
+         else if (Arrays.equals(counts, lastWrittenState.counts)) {
+            return null;
+         }
+         else {
+            record.writeByte(COUNT_DIFFERENCES);
+            writeCountDifferences(record, lastWrittenState.counts, counts);
+         }
+      }
+
+      lastWrittenStates.put(sourceFile, currentState);
+      return recordBytes.toByteArray();
+   }
+
+   private static boolean isAllZeros(@Nonnull int[] counts) {
+      for (int count : counts) {
+         if (count != 0) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Writes the serialized data for a file, followed by the counters copied before, which replace the ones in the serialized data when read
+    * back, since probes may have executed in the meantime.
+    *
+    * @return <tt>false</tt> if the data was modified while being serialized, in which case the file should go into the next snapshot
+    */
+   private static boolean writeFullData(
+      @Nonnull DataOutputStream record, @Nonnull FileCoverageData fileData, @Nonnull int[] counts
+   ) throws IOException {
+      ByteArrayOutputStream serializedData = new ByteArrayOutputStream();
+
+      try (ObjectOutputStream output = new ObjectOutputStream(serializedData)) {
+         output.writeObject(fileData);
+      }
+      catch (ConcurrentModificationException ignore) {
+         return false;
+      }
+
+      record.writeByte(FULL_DATA);
+      record.writeInt(serializedData.size());
+      serializedData.writeTo(record);
+      writeCountDifferences(record, new int[counts.length], counts);
+      return true;
+   }
+
+   private static void writeCountDifferences(
+      @Nonnull DataOutputStream record, @Nonnull int[] previousCounts, @Nonnull int[] counts
+   ) throws IOException {
+      writeVarInt(record, counts.length);
+
+      int previousPosition = 0;
+
+      for (int i = 0; i < counts.length; i++) {
+         int difference = counts[i] - previousCounts[i];
+
+         if (difference != 0) {
+            writeVarInt(record, i - previousPosition + 1);
+            writeVarInt(record, difference);
+            previousPosition = i;
+         }
+      }
+
+      writeVarInt(record, 0);
+   }
+
+   private static void writeVarInt(@Nonnull DataOutputStream output, @Nonnegative int value) throws IOException {
+      int remaining = value;
+
+      while ((remaining & ~0x7F) != 0) {
+         output.writeByte(remaining & 0x7F | 0x80);
+         remaining >>>= 7;
+      }
+
+      output.writeByte(remaining);
+   }
+
+   private void appendSegment(@Nonnull ByteArrayOutputStream segmentBytes) throws IOException {
+      File parentDir = snapshotsFile.getParentFile();
+
+      if (parentDir != null) {
+         //noinspection ResultOfMethodCallIgnored
+         parentDir.mkdirs();
+      }
+
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(snapshotsFile, true)))) {
+         output.writeInt(segmentBytes.size());
+         segmentBytes.writeTo(output);
+      }
+   }
+
+   static boolean isSnapshotsFile(@Nonnull File file) { return file.getName().startsWith(SNAPSHOTS_FILE_NAME); }
+
+   /**
+    * Replays all segments from a snapshots file into a new <tt>CoverageData</tt> object.
+    * An incomplete last segment, as left by a JVM which died while writing it, is ignored.
+    */
+   @Nonnull
+   static CoverageData readDataFromFile(@Nonnull File snapshotsFile) throws IOException {
+      CoverageData coverageData = new CoverageData();
+
+      try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotsFile)))) {
+         byte[] segment;
+
+         while ((segment = readSegment(input)) != null) {
+            replaySegment(coverageData, segment);
+         }
+      }
+
+      return coverageData;
+   }
+
+   @Nullable
+   private static byte[] readSegment(@Nonnull DataInputStream input) throws IOException {
+      try {
+         int segmentLength = input.readInt();
+         byte[] segment = new byte[segmentLength];
+         input.readFully(segment);
+         return segment;
+      }
+      catch (EOFException ignore) {
+         return null;
+      }
+   }
+
+   private static void replaySegment(@Nonnull CoverageData coverageData, @Nonnull byte[] segmentBytes) throws IOException {
+      DataInputStream segment = new DataInputStream(new ByteArrayInputStream(segmentBytes));
+      int format = segment.readInt();
+
+      if (format != SNAPSHOT_FORMAT) {
+         throw new IOException("Unknown coverage snapshot format: " + format);
+      }
+
+      segment.readLong();
+
+      for (int fileCount = segment.readInt(); fileCount > 0; fileCount--) {
+         String sourceFile = segment.readUTF();
+         byte recordKind = segment.readByte();
+
+         if (recordKind == FULL_DATA) {
+            FileCoverageData fileData = readFullData(segment);
+            replaceExecutionCounts(fileData, readCountDifferences(segment));
+            coverageData.getFileToFileData().put(sourceFile, fileData);
+         }
+         else {
+            int[] countDifferences = readCountDifferences(segment);
+            FileCoverageData fileData = coverageData.getFileToFileData().get(sourceFile);
+
+            if (fileData != null) {
+               fileData.lineCoverageInfo.addExecutionCounts(countDifferences);
+            }
+         }
+      }
+   }
+
+   @Nonnull
+   private static FileCoverageData readFullData(@Nonnull DataInputStream segment) throws IOException {
+      byte[] serializedData = new byte[segment.readInt()];
+      segment.readFully(serializedData);
+
+      try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serializedData))) {
+         return (FileCoverageData) input.readObject();
+      }
+      catch (ClassNotFoundException e) {
+         throw new RuntimeException("Serialized class in coverage snapshot not found in classpath", e);
+      }
+   }
+
+   /**
+    * Replaces the counters in deserialized data with the ones copied when the snapshot was taken.
+    * If the file got more lines or branches in between, the deserialized counters are kept, and the next record for the file will have
+    * its full data again.
+    */
+   private static void replaceExecutionCounts(@Nonnull FileCoverageData fileData, @Nonnull int[] counts) {
+      PerFileLineCoverage lineCoverage = fileData.lineCoverageInfo;
+      int[] serializedCounts = lineCoverage.copyExecutionCounts();
+
+      if (serializedCounts.length == counts.length) {
+         for (int i = 0; i < counts.length; i++) {
+            serializedCounts[i] = counts[i] - serializedCounts[i];
+         }
+
+         lineCoverage.addExecutionCounts(serializedCounts);
+      }
+   }
+
+   @Nonnull
+   private static int[] readCountDifferences(@Nonnull DataInputStream segment) throws IOException {
+      int[] differences = new int[readVarInt(segment)];
+      int position = 0;
+      int positionIncrement;
+
+      while ((positionIncrement = readVarInt(segment)) > 0) {
+         position += positionIncrement - 1;
+         differences[position] = readVarInt(segment);
+      }
+
+      return differences;
+   }
+
+   private static int readVarInt(@Nonnull DataInputStream input) throws IOException {
+      int value = 0;
+      int shift = 0;
+      int b;
+
+      do {
+         b = input.readUnsignedByte();
+         value |= (b & 0x7F) << shift;
+         shift += 7;
+      }
+      while ((b & 0x80) != 0);
+
+      return value;
+   }
+}
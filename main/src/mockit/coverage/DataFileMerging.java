@@ -6,13 +6,26 @@ package mockit.coverage;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 import mockit.coverage.data.*;
 
+/**
+ * Merges the coverage data from multiple "<tt>coverage.ser</tt>" files into a single <tt>CoverageData</tt> object.
+ * <p/>
+ * By default, input files are read and merged concurrently through a fork-join merge tree, where each pair of partial results is
+ * combined source file by source file.
+ * When the "<tt>coverage-mergeThreads</tt>" property is set to <tt>1</tt>, input files are instead streamed one at a time into the
+ * accumulated data, so that no more than one input file is held in memory at any given time.
+ * <p/>
+ * Snapshot files written by {@link CoverageSnapshots} are also accepted, either directly or from a directory having no
+ * "<tt>coverage.ser</tt>" file; their segments are replayed into the data for the file.
+ */
 final class DataFileMerging
 {
    @Nonnull private final List<File> inputFiles;
+   @Nonnegative private final int mergeThreads;
 
    DataFileMerging(@Nonnull String[] inputPaths) {
       inputFiles = new ArrayList<>(inputPaths.length);
@@ -20,6 +33,8 @@ final class DataFileMerging
       for (String path : inputPaths) {
          addInputFileToList(path.trim());
       }
+
+      mergeThreads = Configuration.getIntProperty("mergeThreads", Runtime.getRuntime().availableProcessors(), 1);
    }
 
    private void addInputFileToList(@Nonnull String path) {
@@ -27,34 +42,109 @@ final class DataFileMerging
          File inputFile = new File(path);
 
          if (inputFile.isDirectory()) {
-            inputFile = new File(inputFile, "coverage.ser");
+            File dataFile = new File(inputFile, "coverage.ser");
+            inputFile = dataFile.exists() ? dataFile : new File(inputFile, CoverageSnapshots.SNAPSHOTS_FILE_NAME);
          }
 
-         inputFiles.add(inputFile);
+         if (inputFile.exists()) {
+            inputFiles.add(inputFile);
+         }
       }
    }
 
    @Nonnull
    CoverageData merge() throws IOException {
+      if (inputFiles.isEmpty()) {
+         throw new IllegalArgumentException("No input \"coverage.ser\" files found");
+      }
+
+      if (mergeThreads == 1 || inputFiles.size() == 1) {
+         return mergeSequentially();
+      }
+
+      return mergeConcurrently();
+   }
+
+   @Nonnull
+   private CoverageData mergeSequentially() throws IOException {
       CoverageData mergedData = null;
 
       for (File inputFile : inputFiles) {
-         if (inputFile.exists()) {
-            CoverageData existingData = CoverageData.readDataFromFile(inputFile);
-
-            if (mergedData == null) {
-               mergedData = existingData;
-            }
-            else {
-               mergedData.merge(existingData);
-            }
+         CoverageData existingData = readDataFile(inputFile);
+
+         if (mergedData == null) {
+            mergedData = existingData;
+         }
+         else {
+            mergedData.merge(existingData);
          }
       }
 
-      if (mergedData == null) {
-         throw new IllegalArgumentException("No input \"coverage.ser\" files found");
+      return mergedData;
+   }
+
+   @Nonnull
+   private static CoverageData readDataFile(@Nonnull File inputFile) throws IOException {
+      if (CoverageSnapshots.isSnapshotsFile(inputFile)) {
+         return CoverageSnapshots.readDataFromFile(inputFile);
       }
 
-      return mergedData;
+      return CoverageData.readDataFromFile(inputFile);
+   }
+
+   @Nonnull
+   private CoverageData mergeConcurrently() throws IOException {
+      ForkJoinPool pool = new ForkJoinPool(mergeThreads);
+
+      try {
+         return pool.invoke(new MergeTask(inputFiles, 0, inputFiles.size()));
+      }
+      catch (UncheckedIOException e) {
+         throw e.getCause();
+      }
+      finally {
+         pool.shutdown();
+      }
+   }
+
+   /**
+    * Merges a contiguous range of input files, splitting it in two halves until single files are left.
+    * The result of the left half takes precedence over the right one, just like in a sequential merge, so the order of input files is
+    * preserved.
+    */
+   private static final class MergeTask extends RecursiveTask<CoverageData>
+   {
+      private static final long serialVersionUID = 1L;
+
+      @Nonnull private final List<File> inputFiles;
+      @Nonnegative private final int from;
+      @Nonnegative private final int to;
+
+      MergeTask(@Nonnull List<File> inputFiles, @Nonnegative int from, @Nonnegative int to) {
+         this.inputFiles = inputFiles;
+         this.from = from;
+         this.to = to;
+      }
+
+      @Override
+      protected CoverageData compute() {
+         if (to - from == 1) {
+            return readInputFile(inputFiles.get(from));
+         }
+
+         int middle = (from + to) >>> 1;
+         MergeTask rightHalf = new MergeTask(inputFiles, middle, to);
+         rightHalf.fork();
+
+         CoverageData mergedData = new MergeTask(inputFiles, from, middle).compute();
+         CoverageData rightData = rightHalf.join();
+         mergedData.merge(rightData);
+         return mergedData;
+      }
+
+      @Nonnull
+      private static CoverageData readInputFile(@Nonnull File inputFile) {
+         try { return readDataFile(inputFile); } catch (IOException e) { throw new UncheckedIOException(e); }
+      }
    }
-}
\ No newline at end of file
+}
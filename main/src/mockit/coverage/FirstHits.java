@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage;
+
+import java.util.*;
+import javax.annotation.*;
+
+/**
+ * Flags for the line and branch probes already hit, used when only the first execution of each probe gets recorded, as enabled with the
+ * "<tt>coverage-firstHitOnly=true</tt>" property.
+ * <p/>
+ * In this mode, each probe call in instrumented code is guarded by a check of its flag, and sets the flag before calling into
+ * {@link TestRun}.
+ * So, after a line or branch is covered, executing it again only costs a couple of array loads and a branch which the JIT compiler sees as
+ * always taken, instead of a synchronized call.
+ * Execution counts are then no longer meaningful, and at most one call point is recorded per line segment.
+ * <p/>
+ * Flag arrays are indexed first by source file, then by line or by branch probe.
+ * They are replaced with larger copies as new probes are added during class instrumentation, so that guards never index past their end.
+ */
+@SuppressWarnings("unused")
+public final class FirstHits
+{
+   // Read by the probe guards in instrumented code.
+   @Nonnull public static volatile boolean[][] linesHit = {};
+   @Nonnull public static volatile boolean[][] branchesHit = {};
+
+   @Nonnull private static int[] branchProbeCounts = {};
+   private static boolean enabled;
+
+   private FirstHits() {}
+
+   static void enableIfRequested() { enabled = "true".equals(Configuration.getProperty("firstHitOnly")); }
+
+   public static boolean isEnabled() { return enabled; }
+
+   public static synchronized void addLineProbe(@Nonnegative int fileIndex, @Nonnegative int line) {
+      linesHit = withCapacity(linesHit, fileIndex, line + 1);
+   }
+
+   /**
+    * Adds a branch probe to a source file.
+    *
+    * @return the index of the flag for the new probe
+    */
+   @Nonnegative
+   public static synchronized int addBranchProbe(@Nonnegative int fileIndex) {
+      if (fileIndex >= branchProbeCounts.length) {
+         branchProbeCounts = Arrays.copyOf(branchProbeCounts, fileIndex + 1);
+      }
+
+      int branchProbe = branchProbeCounts[fileIndex]++;
+      branchesHit = withCapacity(branchesHit, fileIndex, branchProbe + 1);
+      return branchProbe;
+   }
+
+   @Nonnull
+   private static boolean[][] withCapacity(@Nonnull boolean[][] flags, @Nonnegative int fileIndex, @Nonnegative int minFlags) {
+      boolean[] fileFlags = fileIndex < flags.length ? flags[fileIndex] : null;
+
+      if (fileFlags != null && fileFlags.length >= minFlags) {
+         return flags;
+      }
+
+      boolean[][] newFlags = Arrays.copyOf(flags, Math.max(flags.length, fileIndex + 1));
+      int newLength = Math.max(minFlags, fileFlags == null ? 16 : fileFlags.length * 2);
+      newFlags[fileIndex] = fileFlags == null ? new boolean[newLength] : Arrays.copyOf(fileFlags, newLength);
+      return newFlags;
+   }
+}
@@ -5,10 +5,12 @@
 package mockit.coverage;
 
 import java.io.*;
+import java.util.*;
 import javax.annotation.*;
 
 import mockit.coverage.data.*;
 import mockit.coverage.reporting.*;
+import mockit.coverage.testRedundancy.*;
 
 @SuppressWarnings("DynamicRegexReplaceableByCompiledPattern")
 final class OutputFileGenerator
@@ -18,6 +20,7 @@ final class OutputFileGenerator
    @Nonnull private final String[] outputFormats;
    @Nonnull private final String outputDir;
    @Nullable private final String[] sourceDirs;
+   private final boolean asyncReport;
 
    OutputFileGenerator() {
       outputFormats = getOutputFormat();
@@ -34,6 +37,8 @@ final class OutputFileGenerator
       else {
          sourceDirs = commaSeparatedDirs.split("\\s*,\\s*");
       }
+
+      asyncReport = "true".equals(Configuration.getProperty("asyncReport"));
    }
 
    @Nonnull
@@ -86,25 +91,42 @@ final class OutputFileGenerator
       try {
          generateAccretionDataFileIfRequested(coverageData);
          generateXmlDataFileIfRequested(coverageData);
-         generateHTMLReportIfRequested(coverageData, outputDirCreated);
+
+         if (asyncReport) {
+            generateHTMLReportInSeparateProcessIfRequested(coverageData);
+         }
+         else {
+            generateHTMLReportIfRequested(coverageData, outputDirCreated, getRedundantTests());
+         }
       }
       catch (IOException e) {
          throw new RuntimeException(e);
       }
    }
 
+   @Nullable
+   private static List<String> getRedundantTests() {
+      TestCoverage testCoverage = TestCoverage.INSTANCE;
+      return testCoverage == null ? null : testCoverage.getRedundantTests();
+   }
+
    void generateAggregateReportFromInputFiles(@Nonnull String[] inputPaths) {
       boolean outputDirCreated = createOutputDirIfSpecifiedButNotExists();
 
       try {
          CoverageData coverageData = new DataFileMerging(inputPaths).merge();
-         generateHTMLReportIfRequested(coverageData, outputDirCreated);
+         generateHTMLReportIfRequested(coverageData, outputDirCreated, null);
       }
       catch (IOException e) {
          throw new RuntimeException(e);
       }
    }
 
+   void generateReportFromDataOfTestRun(@Nonnull CoverageData coverageData, @Nullable List<String> redundantTests) throws IOException {
+      boolean outputDirCreated = createOutputDirIfSpecifiedButNotExists();
+      generateHTMLReportIfRequested(coverageData, outputDirCreated, redundantTests);
+   }
+
    private boolean createOutputDirIfSpecifiedButNotExists() {
       if (outputDir.isEmpty()) {
          return false;
@@ -132,12 +154,20 @@ final class OutputFileGenerator
       }
    }
 
-   private void generateHTMLReportIfRequested(@Nonnull CoverageData coverageData, boolean outputDirCreated) throws IOException {
+   private void generateHTMLReportInSeparateProcessIfRequested(@Nonnull CoverageData coverageData) throws IOException {
+      if (isHTMLWithNoCallPoints() || isWithCallPoints()) {
+         new AsyncReport(outputDir, coverageData, isWithCallPoints()).generate(getRedundantTests());
+      }
+   }
+
+   private void generateHTMLReportIfRequested(
+      @Nonnull CoverageData coverageData, boolean outputDirCreated, @Nullable List<String> redundantTests
+   ) throws IOException {
       if (isHTMLWithNoCallPoints()) {
-         new CoverageReport(outputDir, outputDirCreated, sourceDirs, coverageData, false).generate();
+         new CoverageReport(outputDir, outputDirCreated, sourceDirs, coverageData, false, redundantTests).generate();
       }
       else if (isWithCallPoints()) {
-         new CoverageReport(outputDir, outputDirCreated, sourceDirs, coverageData, true).generate();
+         new CoverageReport(outputDir, outputDirCreated, sourceDirs, coverageData, true, redundantTests).generate();
       }
    }
 }
\ No newline at end of file
@@ -13,7 +13,7 @@ import mockit.coverage.testRedundancy.*;
 @SuppressWarnings("unused")
 public final class TestRun
 {
-   private static final Object LOCK = new Object();
+   static final Object LOCK = new Object();
    private static boolean terminated;
 
    private TestRun() {}
@@ -21,17 +21,30 @@ public final class TestRun
    public static void lineExecuted(@Nonnegative int fileIndex, @Nonnegative int line) {
       if (terminated) return;
 
+      CallPoints callPoints = null;
+
       synchronized (LOCK) {
          CoverageData coverageData = CoverageData.instance();
          PerFileLineCoverage fileData = coverageData.getFileData(fileIndex).lineCoverageInfo;
-         CallPoint callPoint = null;
+         int previousExecutionCount = fileData.registerExecution(line);
+         recordNewLineOrSegmentAsCoveredIfApplicable(previousExecutionCount);
 
-         if (coverageData.isWithCallPoints() && fileData.acceptsAdditionalCallPoints(line)) {
-            callPoint = CallPoint.create(new Throwable());
+         if (coverageData.isWithCallPoints()) {
+            callPoints = fileData.getCallPointsAcceptingMore(line);
          }
+      }
 
-         int previousExecutionCount = fileData.registerExecution(line, callPoint);
-         recordNewLineOrSegmentAsCoveredIfApplicable(previousExecutionCount);
+      if (callPoints != null) {
+         addCallPoint(callPoints, new Throwable());
+      }
+   }
+
+   // Walks the stack outside of the lock, since call points are added to lock-free slots.
+   private static void addCallPoint(@Nonnull CallPoints callPoints, @Nonnull Throwable newThrowable) {
+      CallPoint callPoint = CallPoint.create(newThrowable);
+
+      if (callPoint != null) {
+         callPoints.add(callPoint);
       }
    }
 
@@ -46,21 +59,25 @@ public final class TestRun
    public static void branchExecuted(@Nonnegative int fileIndex, @Nonnegative int line, @Nonnegative int branchIndex) {
       if (terminated) return;
 
+      CallPoints callPoints = null;
+
       synchronized (LOCK) {
          CoverageData coverageData = CoverageData.instance();
          PerFileLineCoverage fileData = coverageData.getFileData(fileIndex).lineCoverageInfo;
 
          if (fileData.hasValidBranch(line, branchIndex)) {
-            CallPoint callPoint = null;
+            int previousExecutionCount = fileData.registerExecution(line, branchIndex);
+            recordNewLineOrSegmentAsCoveredIfApplicable(previousExecutionCount);
 
-            if (coverageData.isWithCallPoints() && fileData.acceptsAdditionalCallPoints(line, branchIndex)) {
-               callPoint = CallPoint.create(new Throwable());
+            if (coverageData.isWithCallPoints()) {
+               callPoints = fileData.getCallPointsAcceptingMore(line, branchIndex);
             }
-
-            int previousExecutionCount = fileData.registerExecution(line, branchIndex, callPoint);
-            recordNewLineOrSegmentAsCoveredIfApplicable(previousExecutionCount);
          }
       }
+
+      if (callPoints != null) {
+         addCallPoint(callPoints, new Throwable());
+      }
    }
 
    public static void fieldAssigned(@Nonnull String file, @Nonnull String classAndFieldNames) {
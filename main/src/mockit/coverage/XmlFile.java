@@ -10,6 +10,7 @@ import javax.annotation.*;
 
 import mockit.coverage.data.*;
 import mockit.coverage.lines.*;
+import mockit.coverage.reporting.*;
 
 /**
  * Generates a XML file containing the coverage data gathered by the test run.
@@ -41,11 +42,11 @@ final class XmlFile
    }
 
    void generate() throws IOException {
-      try (Writer out = new FileWriter(outputFile)) {
+      try (Utf8FileWriter out = new Utf8FileWriter(outputFile)) {
          out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
          out.write("<coverage version=\"1\">\n");
 
-         for (Entry<String, FileCoverageData> fileAndData : coverageData.getFileToFileData().entrySet()) {
+         for (Entry<String, FileCoverageData> fileAndData : coverageData.getFileToFileDataInOrder().entrySet()) {
             String sourceFileName = fileAndData.getKey();
             writeOpeningXmlElementForSourceFile(out, sourceFileName);
 
@@ -61,14 +62,16 @@ final class XmlFile
       System.out.println("JMockit: Coverage data written to " + outputFile.getCanonicalPath());
    }
 
-   private void writeOpeningXmlElementForSourceFile(@Nonnull Writer out, @Nonnull String sourceFileName) throws IOException {
+   private void writeOpeningXmlElementForSourceFile(@Nonnull Utf8FileWriter out, @Nonnull String sourceFileName) throws IOException {
       out.write("\t<file path=\"");
       out.write(srcDir);
       out.write(sourceFileName);
       out.write("\">\n");
    }
 
-   private static void writeXmlElementsForExecutableLines(@Nonnull Writer out, @Nonnull PerFileLineCoverage lineInfo) throws IOException {
+   private static void writeXmlElementsForExecutableLines(
+      @Nonnull Utf8FileWriter out, @Nonnull PerFileLineCoverage lineInfo
+   ) throws IOException {
       int lineCount = lineInfo.getLineCount();
 
       for (int lineNum = 1; lineNum <= lineCount; lineNum++) {
@@ -92,5 +95,5 @@ final class XmlFile
       }
    }
 
-   private static void writeNumber(@Nonnull Writer out, @Nonnegative int value) throws IOException { out.write(Integer.toString(value)); }
+   private static void writeNumber(@Nonnull Utf8FileWriter out, @Nonnegative int value) throws IOException { out.writeInt(value); }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ package mockit.coverage.data;
 import java.io.*;
 import java.util.*;
 import java.util.Map.*;
+import java.util.concurrent.*;
 import java.util.jar.*;
 import javax.annotation.*;
 
@@ -23,25 +24,99 @@ public final class CoverageData implements Serializable
 
    @Nonnull public static CoverageData instance() { return instance; }
 
+   // Same serialized form as the one for a list of indexed files, regardless of how they are kept in memory.
+   private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("withCallPoints", boolean.class),
+      new ObjectStreamField("fileToFileData", Map.class),
+      new ObjectStreamField("indexedFileData", List.class)
+   };
+
    private boolean withCallPoints;
 
-   @Nonnull private final Map<String, FileCoverageData> fileToFileData = new LinkedHashMap<>();
-   @Nonnull private final List<FileCoverageData> indexedFileData = new ArrayList<>(100);
+   // Read without locking by classes being instrumented in parallel; files are added while holding the lock on this object.
+   @Nonnull private Map<String, FileCoverageData> fileToFileData;
+
+   // Read without locking by the probes in instrumented code. Grows by doubling, while holding the lock on this object, and gets assigned
+   // again after each file is added, so that the new element is visible to other threads.
+   @Nonnull private volatile FileCoverageData[] indexedFileData;
+   @Nonnegative private int indexedFileCount;
+
+   public CoverageData() {
+      fileToFileData = new ConcurrentHashMap<>();
+      indexedFileData = new FileCoverageData[100];
+   }
 
    public boolean isWithCallPoints() { return withCallPoints; }
    public void setWithCallPoints(boolean withCallPoints) { this.withCallPoints = withCallPoints; }
 
    @Nonnull public Map<String, FileCoverageData> getFileToFileData() { return fileToFileData; }
 
+   /**
+    * Gets the data for all source files in the order they were added, independently of how they are kept in memory: first the files
+    * instrumented in this test run, by file index, then the ones which only came from other data files, by their original indexes.
+    */
+   @Nonnull
+   public Map<String, FileCoverageData> getFileToFileDataInOrder() {
+      final FileCoverageData[] indexedFiles = indexedFileData;
+      List<Entry<String, FileCoverageData>> filesAndFileData = new ArrayList<>(fileToFileData.entrySet());
+
+      Collections.sort(filesAndFileData, new Comparator<Entry<String, FileCoverageData>>() {
+         @Override
+         public int compare(Entry<String, FileCoverageData> fileAndData1, Entry<String, FileCoverageData> fileAndData2) {
+            FileCoverageData fileData1 = fileAndData1.getValue();
+            FileCoverageData fileData2 = fileAndData2.getValue();
+            boolean indexed1 = isIndexed(indexedFiles, fileData1);
+            boolean indexed2 = isIndexed(indexedFiles, fileData2);
+
+            if (indexed1 != indexed2) {
+               return indexed1 ? -1 : 1;
+            }
+
+            int indexComparison = Integer.compare(fileData1.index, fileData2.index);
+            return indexComparison != 0 ? indexComparison : fileAndData1.getKey().compareTo(fileAndData2.getKey());
+         }
+      });
+
+      Map<String, FileCoverageData> orderedFileToFileData = new LinkedHashMap<>(filesAndFileData.size());
+
+      for (Entry<String, FileCoverageData> fileAndFileData : filesAndFileData) {
+         orderedFileToFileData.put(fileAndFileData.getKey(), fileAndFileData.getValue());
+      }
+
+      return orderedFileToFileData;
+   }
+
+   private static boolean isIndexed(@Nonnull FileCoverageData[] indexedFiles, @Nonnull FileCoverageData fileData) {
+      int fileIndex = fileData.index;
+      return fileIndex < indexedFiles.length && indexedFiles[fileIndex] == fileData;
+   }
+
+   /**
+    * Gets the data for a source file, adding it if not yet present.
+    * Only the first class from each source file needs to take a lock, for the assignment of the next file index.
+    */
    @Nonnull
    public FileCoverageData getOrAddFile(@Nonnull String file, @Nullable String kindOfTopLevelType) {
       FileCoverageData fileData = fileToFileData.get(file);
 
       // For a class with nested/inner classes, a previous class in the same source file may already have been added.
       if (fileData == null) {
-         int fileIndex = indexedFileData.size();
-         fileData = new FileCoverageData(fileIndex, kindOfTopLevelType);
-         indexedFileData.add(fileData);
+         fileData = addFile(file, kindOfTopLevelType);
+      }
+      else if (kindOfTopLevelType != null) {
+         fileData.kindOfTopLevelType = kindOfTopLevelType;
+      }
+
+      return fileData;
+   }
+
+   @Nonnull
+   private synchronized FileCoverageData addFile(@Nonnull String file, @Nullable String kindOfTopLevelType) {
+      FileCoverageData fileData = fileToFileData.get(file);
+
+      if (fileData == null) {
+         fileData = new FileCoverageData(indexedFileCount, kindOfTopLevelType);
+         addIndexedFile(fileData);
          fileToFileData.put(file, fileData);
       }
       else if (kindOfTopLevelType != null) {
@@ -51,8 +126,36 @@ public final class CoverageData implements Serializable
       return fileData;
    }
 
+   /**
+    * Adds the data for the source files of classes instrumented offline.
+    * This must happen before any class is instrumented at runtime, so that file indexes are the same as the ones in the instrumented
+    * bytecode.
+    */
+   public synchronized void addFilesInstrumentedOffline(@Nonnull CoverageData metadata) {
+      if (indexedFileCount > 0) {
+         throw new IllegalStateException("Coverage metadata must be loaded before any class is instrumented");
+      }
+
+      for (int i = 0; i < metadata.indexedFileCount; i++) {
+         addIndexedFile(metadata.indexedFileData[i]);
+      }
+
+      fileToFileData.putAll(metadata.fileToFileData);
+   }
+
+   private void addIndexedFile(@Nonnull FileCoverageData fileData) {
+      FileCoverageData[] indexedFiles = indexedFileData;
+
+      if (indexedFileCount == indexedFiles.length) {
+         indexedFiles = Arrays.copyOf(indexedFiles, 2 * indexedFiles.length);
+      }
+
+      indexedFiles[indexedFileCount++] = fileData;
+      indexedFileData = indexedFiles;
+   }
+
    @Nonnull public FileCoverageData getFileData(@Nonnull String file) { return fileToFileData.get(file); }
-   @Nonnull public FileCoverageData getFileData(@Nonnegative int fileIndex) { return indexedFileData.get(fileIndex); }
+   @Nonnull public FileCoverageData getFileData(@Nonnegative int fileIndex) { return indexedFileData[fileIndex]; }
 
    public boolean isEmpty() { return fileToFileData.isEmpty(); }
    public void clear() { fileToFileData.clear(); }
@@ -119,6 +222,10 @@ public final class CoverageData implements Serializable
       }
    }
 
+   public void fillLastModifiedTimeForClassFile(@Nonnull String sourceFile, @Nonnull FileCoverageData fileData) {
+      fileData.lastModified = getLastModifiedTimeForClassFile(sourceFile);
+   }
+
    private long getLastModifiedTimeForClassFile(@Nonnull String sourceFilePath) {
       String sourceFilePathNoExt = sourceFilePath.substring(0, sourceFilePath.lastIndexOf('.'));
       String className = sourceFilePathNoExt.replace('/', '.');
@@ -201,6 +308,31 @@ public final class CoverageData implements Serializable
       }
    }
 
+   private synchronized void writeObject(@Nonnull ObjectOutputStream output) throws IOException {
+      ObjectOutputStream.PutField fields = output.putFields();
+      fields.put("withCallPoints", withCallPoints);
+      fields.put("fileToFileData", getFileToFileDataInOrder());
+      fields.put("indexedFileData", new ArrayList<>(Arrays.asList(indexedFileData).subList(0, indexedFileCount)));
+      output.writeFields();
+   }
+
+   private void readObject(@Nonnull ObjectInputStream input) throws IOException, ClassNotFoundException {
+      ObjectInputStream.GetField fields = input.readFields();
+      withCallPoints = fields.get("withCallPoints", false);
+
+      @SuppressWarnings("unchecked")
+      Map<String, FileCoverageData> files = (Map<String, FileCoverageData>) fields.get("fileToFileData", null);
+      fileToFileData = new ConcurrentHashMap<>(files);
+
+      @SuppressWarnings("unchecked")
+      List<FileCoverageData> indexedFiles = (List<FileCoverageData>) fields.get("indexedFileData", null);
+      indexedFileData = new FileCoverageData[Math.max(100, indexedFiles.size())];
+
+      for (FileCoverageData fileData : indexedFiles) {
+         addIndexedFile(fileData);
+      }
+   }
+
    public void writeDataToFile(@Nonnull File dataFile) throws IOException {
       try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)))) {
          output.writeObject(this);
@@ -16,7 +16,12 @@ public abstract class FieldData implements Serializable
    @Nullable Boolean covered;
 
    private void writeObject(@Nonnull ObjectOutputStream out) throws IOException {
-      isCovered();
+      // A field never accessed is left undecided, so that it can still be covered when the data is reused as offline instrumentation
+      // metadata.
+      if (readCount > 0 || writeCount > 0) {
+         isCovered();
+      }
+
       out.defaultWriteObject();
    }
 
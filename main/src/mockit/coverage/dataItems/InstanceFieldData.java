@@ -4,6 +4,7 @@
  */
 package mockit.coverage.dataItems;
 
+import java.io.*;
 import java.util.*;
 import javax.annotation.*;
 
@@ -16,7 +17,12 @@ public final class InstanceFieldData extends FieldData
    private static final long serialVersionUID = 6991762113575259754L;
 
    @Nonnull
-   private final transient Map<Integer, List<Integer>> testIdsToAssignments = new HashMap<>();
+   private transient Map<Integer, List<Integer>> testIdsToAssignments = new HashMap<>();
+
+   private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
+      testIdsToAssignments = new HashMap<>();
+      in.defaultReadObject();
+   }
 
    void registerAssignment(@Nonnull Object instance) {
       List<Integer> dataForRunningTest = getDataForRunningTest();
@@ -4,6 +4,7 @@
  */
 package mockit.coverage.dataItems;
 
+import java.io.*;
 import java.util.*;
 import javax.annotation.*;
 
@@ -13,7 +14,12 @@ public final class StaticFieldData extends FieldData
 {
    private static final long serialVersionUID = -6596622341651601060L;
 
-   @Nonnull private final transient Map<Integer, Boolean> testIdsToAssignments = new HashMap<>();
+   @Nonnull private transient Map<Integer, Boolean> testIdsToAssignments = new HashMap<>();
+
+   private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
+      testIdsToAssignments = new HashMap<>();
+      in.defaultReadObject();
+   }
 
    void registerAssignment() {
       int testId = TestRun.getTestId();
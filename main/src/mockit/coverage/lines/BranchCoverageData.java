@@ -4,40 +4,27 @@
  */
 package mockit.coverage.lines;
 
-import java.io.*;
+import java.util.*;
 import javax.annotation.*;
 
-import mockit.asm.controlFlow.*;
+import mockit.coverage.*;
 
 /**
- * Coverage data gathered for a branch inside a line of source code.
+ * A view over the coverage data gathered for a branch inside a line of source code.
  */
 public final class BranchCoverageData extends LineSegmentData
 {
-   private static final long serialVersionUID = 1003335601845442606L;
-   static final BranchCoverageData INVALID = new BranchCoverageData(new Label());
+   @Nonnegative private final int position;
 
-   @Nonnull private transient Label label;
-
-   BranchCoverageData(@Nonnull Label label) { this.label = label; }
-
-   @Override
-   public boolean isEmpty() {
-      return empty || label.line == 0 && label.jumpTargetLine == 0;
+   BranchCoverageData(@Nonnull PerFileLineCoverage lineCoverage, @Nonnegative int position) {
+      super(lineCoverage);
+      this.position = position;
    }
 
-   @Nonnegative
-   int getLine() { return label.jumpTargetLine == 0 ? label.line : label.jumpTargetLine; }
+   @Override public boolean isEmpty() { return lineCoverage.isBranchEmpty(position); }
+   @Nonnegative int getLine() { return lineCoverage.getBranchLine(position); }
 
-   private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
-      label = new Label();
-      label.line = in.readInt();
-      in.defaultReadObject();
-   }
-
-   private void writeObject(@Nonnull ObjectOutputStream out) throws IOException {
-      int line = getLine();
-      out.writeInt(line);
-      out.defaultWriteObject();
-   }
-}
\ No newline at end of file
+   @Nullable @Override public List<CallPoint> getCallPoints() { return lineCoverage.getBranchCallPoints(position); }
+   @Nonnegative @Override public int getExecutionCount() { return lineCoverage.getBranchExecutionCount(position); }
+   @Override public boolean isCovered() { return lineCoverage.isBranchCovered(position); }
+}
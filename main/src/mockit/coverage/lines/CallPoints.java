@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.lines;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import javax.annotation.*;
+
+import mockit.coverage.*;
+
+/**
+ * The call points recorded for a line segment, in a fixed number of slots which get filled without locking.
+ * <p/>
+ * Each slot holds the call point for a distinct line in test code; further calls from the same line only increment its repetition
+ * count, while calls from new lines are dropped once all slots are taken.
+ */
+public final class CallPoints implements Serializable
+{
+   private static final long serialVersionUID = -4164342434556734434L;
+
+   @Nonnull private final AtomicReferenceArray<CallPoint> slots;
+
+   CallPoints(@Nonnegative int maxCallPoints) { slots = new AtomicReferenceArray<>(maxCallPoints); }
+
+   boolean isFull() {
+      int n = slots.length();
+      return n == 0 || slots.get(n - 1) != null;
+   }
+
+   public void add(@Nonnull CallPoint callPoint) { add(callPoint, 1); }
+
+   private void add(@Nonnull CallPoint callPoint, @Nonnegative int repetitions) {
+      for (int i = 0, n = slots.length(); i < n; i++) {
+         CallPoint callPointInSlot = slots.get(i);
+
+         if (callPointInSlot == null) {
+            if (slots.compareAndSet(i, null, callPoint)) {
+               return;
+            }
+
+            callPointInSlot = slots.get(i);
+         }
+
+         if (callPoint.isSameLineInTestCode(callPointInSlot)) {
+            callPointInSlot.addRepetitions(repetitions);
+            return;
+         }
+      }
+   }
+
+   void addAll(@Nonnull CallPoints previousCallPoints) {
+      for (int i = 0, n = previousCallPoints.slots.length(); i < n; i++) {
+         CallPoint previousCallPoint = previousCallPoints.slots.get(i);
+
+         if (previousCallPoint == null) {
+            break;
+         }
+
+         add(previousCallPoint, previousCallPoint.getRepetitionCount() + 1);
+      }
+   }
+
+   @Nullable
+   List<CallPoint> toList() {
+      List<CallPoint> callPoints = null;
+
+      for (int i = 0, n = slots.length(); i < n; i++) {
+         CallPoint callPoint = slots.get(i);
+
+         if (callPoint == null) {
+            break;
+         }
+
+         if (callPoints == null) {
+            callPoints = new ArrayList<>(n);
+         }
+
+         callPoints.add(callPoint);
+      }
+
+      return callPoints;
+   }
+}
@@ -7,188 +7,55 @@ package mockit.coverage.lines;
 import java.util.*;
 import javax.annotation.*;
 
-import static java.util.Collections.*;
-
-import mockit.asm.controlFlow.*;
 import mockit.coverage.*;
 
 /**
- * Coverage data gathered for a single executable line of code in a source file.
+ * A view over the coverage data gathered for a single executable line of code in a source file.
  */
 public final class LineCoverageData extends LineSegmentData
 {
-   private static final long serialVersionUID = -6233980722802474992L;
-
-   // Static data:
-   @Nonnull private List<BranchCoverageData> branches;
-   @Nonnegative private transient int segments;
-
-   LineCoverageData() { branches = emptyList(); }
-
-   @Nonnegative
-   public int addBranchingPoint(@Nonnull Label jumpSource, @Nonnull Label jumpTarget) {
-      int initialIndex = branches.size();
-
-      if (initialIndex == 0) {
-         branches = new ArrayList<>(4);
-      }
-
-      branches.add(new BranchCoverageData(jumpSource));
-      branches.add(new BranchCoverageData(jumpTarget));
-      return initialIndex;
-   }
-
-   void markLastSegmentAsEmpty() {
-      BranchCoverageData lastBranch = branches.get(branches.size() - 1);
-      lastBranch.markAsEmpty();
-   }
-
-   private boolean noBranchesYet() { return branches == Collections.<BranchCoverageData>emptyList(); }
-
-   @Nonnull public BranchCoverageData getBranchData(@Nonnegative int index) { return branches.get(index); }
-
-   boolean acceptsAdditionalCallPoints(@Nonnegative int branchIndex) {
-      BranchCoverageData data = branches.get(branchIndex);
-      return data.acceptsAdditionalCallPoints();
-   }
+   @Nonnegative private final int line;
 
-   @Nonnegative
-   int registerExecution(@Nonnegative int branchIndex, @Nullable CallPoint callPoint) {
-      BranchCoverageData data = branches.get(branchIndex);
-      return data.registerExecution(callPoint);
+   LineCoverageData(@Nonnull PerFileLineCoverage lineCoverage, @Nonnegative int line) {
+      super(lineCoverage);
+      this.line = line;
    }
 
-   public boolean containsBranches() { return !noBranchesYet(); }
-
-   @Nonnull public List<BranchCoverageData> getBranches() { return branches; }
-
-   boolean isValidBranch(@Nonnegative int branchIndex) { return branches.get(branchIndex) != BranchCoverageData.INVALID; }
-
-   @Nonnegative
-   public int getNumberOfSegments() {
-      int previouslyCounted = segments;
-
-      if (previouslyCounted > 0) {
-         return previouslyCounted;
-      }
-
-      int n = branches.size();
-      int count = 1;
+   @Override public boolean isEmpty() { return false; }
+   @Nullable @Override public List<CallPoint> getCallPoints() { return lineCoverage.getLineCallPoints(line); }
+   @Nonnegative @Override public int getExecutionCount() { return lineCoverage.getLineExecutionCount(line); }
+   @Override public boolean isCovered() { return lineCoverage.isLineCovered(line); }
 
-      for (int targetBranchIndex = 1; targetBranchIndex < n; targetBranchIndex += 2) {
-         BranchCoverageData targetBranch = branches.get(targetBranchIndex);
-         int targetLine = targetBranch.getLine();
+   public boolean containsBranches() { return lineCoverage.getNumberOfBranches(line) > 0; }
 
-         if (targetLine > 0) {
-            BranchCoverageData sourceBranch = branches.get(targetBranchIndex - 1);
-            int sourceLine = sourceBranch.getLine();
-
-            if (targetLine == sourceLine) {
-               count++;
-            }
-
-            if (!targetBranch.isEmpty()) {
-               count++;
-            }
-         }
-      }
-
-      segments = count;
-      return count;
-   }
-
-   @Nonnegative
-   public int getNumberOfCoveredSegments() {
-      int segmentsCovered = isCovered() ? 1 : 0;
-      int n = branches.size();
+   @Nonnull
+   public List<BranchCoverageData> getBranches() {
+      int n = lineCoverage.getNumberOfBranches(line);
 
       if (n == 0) {
-         return segmentsCovered;
+         return Collections.emptyList();
       }
 
-      for (int sourceBranchIndex = 0; sourceBranchIndex < n; sourceBranchIndex += 2) {
-         BranchCoverageData sourceBranch = branches.get(sourceBranchIndex);
-         BranchCoverageData targetBranch = branches.get(sourceBranchIndex + 1);
+      List<BranchCoverageData> branches = new ArrayList<>(n);
 
-         if (sourceBranch.isCovered() && !targetBranch.isEmpty()) {
-            segmentsCovered++;
-         }
-
-         if (targetBranch.isCovered()) {
-            int targetLine = targetBranch.getLine();
-
-            if (targetLine == sourceBranch.getLine()) {
-               segmentsCovered++;
-            }
-         }
+      for (int i = 0; i < n; i++) {
+         branches.add(getBranchData(i));
       }
 
-      return segmentsCovered;
+      return branches;
    }
 
-   @Nonnegative
-   public int getNumberOfBranchingSourcesAndTargets() {
-      int n = branches.size();
-
-      if (n == 0) {
-         return 0;
-      }
-
-      int count = 0;
-
-      for (int sourceBranchIndex = 0; sourceBranchIndex < n; sourceBranchIndex += 2) {
-         BranchCoverageData sourceBranch = branches.get(sourceBranchIndex);
-
-         if (!sourceBranch.isEmpty()) {
-            count++;
-         }
-
-         count++;
-      }
-
-      return count;
+   @Nonnull
+   public BranchCoverageData getBranchData(@Nonnegative int index) {
+      return new BranchCoverageData(lineCoverage, lineCoverage.getFirstBranch(line) + index);
    }
 
-   @Nonnegative
-   public int getNumberOfCoveredBranchingSourcesAndTargets() {
-      int n = branches.size();
+   @Nonnegative public int getNumberOfSegments() { return lineCoverage.getNumberOfSegmentsInExecutableLine(line); }
+   @Nonnegative public int getNumberOfCoveredSegments() { return lineCoverage.getNumberOfCoveredSegments(line); }
 
-      if (n == 0) {
-         return 0;
-      }
-
-      int sourcesAndTargetsCovered = 0;
-
-      for (int sourceBranchIndex = 0; sourceBranchIndex < n; sourceBranchIndex += 2) {
-         BranchCoverageData sourceBranch = branches.get(sourceBranchIndex);
-         BranchCoverageData targetBranch = branches.get(sourceBranchIndex + 1);
-
-         if (sourceBranch.isCovered()) {
-            sourcesAndTargetsCovered++;
-         }
-
-         if (targetBranch.isCovered()) {
-            int targetLine = targetBranch.getLine();
-
-            if (targetLine == sourceBranch.getLine()) {
-               sourcesAndTargetsCovered++;
-            }
-         }
-      }
-
-      return sourcesAndTargetsCovered;
-   }
-
-   void addCountsFromPreviousTestRun(@Nonnull LineCoverageData previousData) {
-      addExecutionCountAndCallPointsFromPreviousTestRun(previousData);
-
-      if (containsBranches()) {
-         for (int i = 0, n = branches.size(); i < n; i++) {
-            BranchCoverageData segmentData = branches.get(i);
-            BranchCoverageData previousSegmentData = previousData.branches.get(i);
+   @Nonnegative
+   public int getNumberOfBranchingSourcesAndTargets() { return lineCoverage.getNumberOfBranchingSourcesAndTargets(line); }
 
-            segmentData.addExecutionCountAndCallPointsFromPreviousTestRun(previousSegmentData);
-         }
-      }
-   }
-}
\ No newline at end of file
+   @Nonnegative
+   public int getNumberOfCoveredBranchingSourcesAndTargets() { return lineCoverage.getNumberOfCoveredBranchingSourcesAndTargets(line); }
+}
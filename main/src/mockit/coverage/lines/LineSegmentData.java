@@ -4,81 +4,27 @@
  */
 package mockit.coverage.lines;
 
-import java.io.*;
 import java.util.*;
 import javax.annotation.*;
 
 import mockit.coverage.*;
 
-public class LineSegmentData implements Serializable
+/**
+ * A view over the coverage data of a line segment, which is either a whole line or one of its branches, as stored in a
+ * {@link PerFileLineCoverage}.
+ */
+public abstract class LineSegmentData
 {
-   private static final long serialVersionUID = -6233980722802474992L;
-   private static final int MAX_CALL_POINTS = Integer.parseInt(Configuration.getProperty("maxCallPoints", "10"));
-
-   // Constant data:
-   private boolean unreachable;
-   protected boolean empty;
-
-   // Runtime data:
-   @Nonnegative int executionCount;
-   @Nullable private List<CallPoint> callPoints;
-
-   public final void markAsUnreachable() { unreachable = true; }
-   final void markAsReachable() { unreachable = false; }
-
-   public boolean isEmpty() { return empty; }
-   final void markAsEmpty() { empty = true; }
-
-   final boolean acceptsAdditionalCallPoints() {
-      return callPoints == null || callPoints.size() < MAX_CALL_POINTS;
-   }
-
-   @Nonnegative
-   final int registerExecution(@Nullable CallPoint callPoint) {
-      int previousExecutionCount = executionCount++;
-
-      if (callPoint != null) {
-         addCallPoint(callPoint);
-      }
-
-      return previousExecutionCount;
-   }
-
-   private void addCallPoint(@Nonnull CallPoint callPoint) {
-      if (callPoints == null) {
-         callPoints = new ArrayList<>(MAX_CALL_POINTS);
-      }
-
-      for (int i = callPoints.size() - 1; i >= 0; i--) {
-         CallPoint previousCallPoint = callPoints.get(i);
-
-         if (callPoint.isSameLineInTestCode(previousCallPoint)) {
-            previousCallPoint.incrementRepetitionCount();
-            return;
-         }
-      }
-
-      callPoints.add(callPoint);
-   }
+   @Nonnull final PerFileLineCoverage lineCoverage;
 
-   public final boolean containsCallPoints() { return callPoints != null; }
-   @Nullable public final List<CallPoint> getCallPoints() { return callPoints; }
+   LineSegmentData(@Nonnull PerFileLineCoverage lineCoverage) { this.lineCoverage = lineCoverage; }
 
-   @Nonnegative public final int getExecutionCount() { return executionCount; }
-   final void setExecutionCount(@Nonnegative int executionCount) { this.executionCount = executionCount; }
+   public abstract boolean isEmpty();
 
-   public final boolean isCovered() { return unreachable || !empty && executionCount > 0; }
+   public final boolean containsCallPoints() { return getCallPoints() != null; }
+   @Nullable public abstract List<CallPoint> getCallPoints();
 
-   final void addExecutionCountAndCallPointsFromPreviousTestRun(@Nonnull LineSegmentData previousData) {
-      executionCount += previousData.executionCount;
+   @Nonnegative public abstract int getExecutionCount();
 
-      if (previousData.callPoints != null) {
-         if (callPoints != null) {
-            callPoints.addAll(0, previousData.callPoints);
-         }
-         else {
-            callPoints = previousData.callPoints;
-         }
-      }
-   }
-}
\ No newline at end of file
+   public abstract boolean isCovered();
+}
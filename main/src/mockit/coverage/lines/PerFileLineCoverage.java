@@ -6,37 +6,87 @@ package mockit.coverage.lines;
 
 import java.io.*;
 import java.util.*;
-import java.util.Map.*;
 import javax.annotation.*;
 
+import mockit.asm.controlFlow.*;
 import mockit.coverage.*;
 import mockit.coverage.data.*;
 
+/**
+ * Coverage data gathered for the lines and branches of a source file.
+ * <p/>
+ * All data is kept in primitive arrays: line flags and execution counts are indexed by line number, while branches are stored in flat
+ * arrays of lines, flags, and execution counts, where the branches of each line occupy a contiguous run given by the line's first branch
+ * position and number of branches.
+ * Runs are appended as classes get instrumented; when a line whose run is not the last one gets additional branches (from a lambda or
+ * anonymous class in the same line), the run is moved to the end.
+ * {@link LineCoverageData} and {@link BranchCoverageData} objects are only created as views over these arrays, when reports are
+ * generated.
+ * Call points are only allocated for the line segments which get them, in bounded {@link CallPoints} containers.
+ */
 public final class PerFileLineCoverage implements PerFileCoverage
 {
-   private static final long serialVersionUID = 6318915843739466316L;
+   private static final long serialVersionUID = 5473810693157386620L;
+   private static final int MAX_CALL_POINTS = Integer.parseInt(Configuration.getProperty("maxCallPoints", "10"));
    private static final int[] NO_EXECUTIONS_YET = new int[0];
+   private static final int[] NO_BRANCHES = new int[0];
+
+   // Flags for lines and branches:
+   private static final byte EXECUTABLE = 1;
+   private static final byte UNREACHABLE = 2;
+   private static final byte EMPTY = 4;
+
+   private static final class PendingBranch
+   {
+      @Nonnegative final int line;
+      @Nonnegative final int branchIndex;
+      @Nonnull final Label label;
+
+      PendingBranch(@Nonnegative int line, @Nonnegative int branchIndex, @Nonnull Label label) {
+         this.line = line;
+         this.branchIndex = branchIndex;
+         this.label = label;
+      }
+   }
+
+   // Static data, indexed by line:
+   @Nonnull private byte[] lineFlags;
+   @Nonnull private int[] firstBranches;
+   @Nonnull private int[] branchesPerLine;
+   @Nonnegative private int lastLine;
+   @Nonnegative private int executableLines;
 
-   @Nonnull private final Map<Integer, LineCoverageData> lineToLineData = new HashMap<>(128);
+   // Static data, indexed by branch position:
+   @Nonnull private int[] branchLines;
+   @Nonnull private byte[] branchFlags;
+   @Nonnegative private int branchPositions;
 
+   // Runtime data:
    @Nonnull private int[] executionCounts = NO_EXECUTIONS_YET;
+   @Nonnull private int[] branchExecutionCounts;
+   @Nullable private CallPoints[] lineCallPoints;
+   @Nullable private CallPoints[] branchCallPoints;
 
-   @Nonnull private transient LineCoverageData sharedLineData;
+   // Branches whose lines are only known when the instrumentation of the method which contains them is finished:
+   @Nonnull private transient List<PendingBranch> pendingBranches;
 
    // Computed on demand:
-   @Nonnegative private int lastLine;
    private transient int totalSegments;
    private transient int coveredSegments;
 
    public PerFileLineCoverage() {
-      sharedLineData = new LineCoverageData();
+      lineFlags = new byte[0];
+      firstBranches = branchesPerLine = NO_BRANCHES;
+      branchLines = branchExecutionCounts = NO_BRANCHES;
+      branchFlags = new byte[0];
+      pendingBranches = new ArrayList<>();
       initializeCache();
    }
 
    private void initializeCache() { totalSegments = coveredSegments = -1; }
 
    private void readObject(@Nonnull ObjectInputStream in) throws IOException, ClassNotFoundException {
-      sharedLineData = new LineCoverageData();
+      pendingBranches = new ArrayList<>();
       initializeCache();
       in.defaultReadObject();
 
@@ -45,9 +95,19 @@ public final class PerFileLineCoverage implements PerFileCoverage
       }
    }
 
+   private void writeObject(@Nonnull ObjectOutputStream out) throws IOException {
+      resolvePendingBranchLines();
+      out.defaultWriteObject();
+   }
+
    public void addLine(@Nonnegative int line) {
-      if (!lineToLineData.containsKey(line)) {
-         lineToLineData.put(line, null);
+      if (line >= lineFlags.length) {
+         lineFlags = Arrays.copyOf(lineFlags, line + 30);
+      }
+
+      if ((lineFlags[line] & EXECUTABLE) == 0) {
+         lineFlags[line] |= EXECUTABLE;
+         executableLines++;
       }
 
       if (line > lastLine) {
@@ -56,104 +116,222 @@ public final class PerFileLineCoverage implements PerFileCoverage
          int[] initialExecutionCounts = executionCounts;
 
          if (initialExecutionCounts != NO_EXECUTIONS_YET && line >= initialExecutionCounts.length) {
-            int[] newCounts = new int[line + 30];
-            System.arraycopy(initialExecutionCounts, 0, newCounts, 0, initialExecutionCounts.length);
-            executionCounts = newCounts;
+            executionCounts = Arrays.copyOf(initialExecutionCounts, line + 30);
          }
 
          lastLine = line;
       }
    }
 
-   @Nonnull
-   public LineCoverageData getOrCreateLineData(@Nonnegative int line) {
-      LineCoverageData lineData = lineToLineData.get(line);
+   public void markLineAsUnreachable(@Nonnegative int line) { lineFlags[line] |= UNREACHABLE; }
 
-      if (lineData == null) {
-         lineData = new LineCoverageData();
-         lineToLineData.put(line, lineData);
+   public void markLineAsReachable(@Nonnegative int line) {
+      if (line < lineFlags.length) {
+         lineFlags[line] &= ~UNREACHABLE;
       }
+   }
 
-      return lineData;
+   /**
+    * Adds a branching point to a line, as a pair of source and target branches whose lines get resolved from the given labels once the
+    * enclosing method is fully instrumented.
+    *
+    * @return the index of the source branch in the line
+    */
+   @Nonnegative
+   public int addBranchingPoint(@Nonnegative int line, @Nonnull Label jumpSource, @Nonnull Label jumpTarget) {
+      int sourceBranchIndex = addBranchesToLine(line);
+      pendingBranches.add(new PendingBranch(line, sourceBranchIndex, jumpSource));
+      pendingBranches.add(new PendingBranch(line, sourceBranchIndex + 1, jumpTarget));
+      return sourceBranchIndex;
    }
 
-   @Nonnull
-   public BranchCoverageData getBranchData(@Nonnegative int line, @Nonnegative int index) {
-      LineCoverageData lineData = lineToLineData.get(line);
-      return lineData.getBranchData(index);
+   @Nonnegative
+   private int addBranchesToLine(@Nonnegative int line) {
+      if (line >= firstBranches.length) {
+         int newLength = Math.max(line + 1, lineFlags.length);
+         firstBranches = Arrays.copyOf(firstBranches, newLength);
+         branchesPerLine = Arrays.copyOf(branchesPerLine, newLength);
+      }
+
+      int first = firstBranches[line];
+      int existingBranches = branchesPerLine[line];
+      int newPosition = branchPositions;
+
+      if (existingBranches > 0 && first + existingBranches != branchPositions) {
+         ensureBranchCapacity(branchPositions + existingBranches + 2);
+         moveBranches(first, newPosition, existingBranches);
+         firstBranches[line] = newPosition;
+         branchPositions += existingBranches;
+      }
+      else {
+         ensureBranchCapacity(branchPositions + 2);
+
+         if (existingBranches == 0) {
+            firstBranches[line] = newPosition;
+         }
+      }
+
+      branchPositions += 2;
+      branchesPerLine[line] = existingBranches + 2;
+      return existingBranches;
+   }
+
+   private void ensureBranchCapacity(@Nonnegative int minPositions) {
+      if (minPositions > branchLines.length) {
+         int newLength = Math.max(minPositions, branchLines.length * 2);
+         branchLines = Arrays.copyOf(branchLines, newLength);
+         branchFlags = Arrays.copyOf(branchFlags, newLength);
+         branchExecutionCounts = Arrays.copyOf(branchExecutionCounts, newLength);
+
+         if (branchCallPoints != null) {
+            branchCallPoints = Arrays.copyOf(branchCallPoints, newLength);
+         }
+      }
+   }
+
+   private void moveBranches(@Nonnegative int from, @Nonnegative int to, @Nonnegative int count) {
+      System.arraycopy(branchLines, from, branchLines, to, count);
+      System.arraycopy(branchFlags, from, branchFlags, to, count);
+      System.arraycopy(branchExecutionCounts, from, branchExecutionCounts, to, count);
+
+      if (branchCallPoints != null) {
+         System.arraycopy(branchCallPoints, from, branchCallPoints, to, count);
+         Arrays.fill(branchCallPoints, from, from + count, null);
+      }
+
+      Arrays.fill(branchExecutionCounts, from, from + count, 0);
+   }
+
+   /**
+    * Resolves the lines of the branches added since the last call, from the labels of the method just instrumented.
+    */
+   public void resolvePendingBranchLines() {
+      for (PendingBranch pendingBranch : pendingBranches) {
+         Label label = pendingBranch.label;
+         int branchLine = label.jumpTargetLine == 0 ? label.line : label.jumpTargetLine;
+         branchLines[firstBranches[pendingBranch.line] + pendingBranch.branchIndex] = branchLine;
+      }
+
+      pendingBranches.clear();
+   }
+
+   public void markBranchAsUnreachable(@Nonnegative int line, @Nonnegative int branchIndex) {
+      branchFlags[firstBranches[line] + branchIndex] |= UNREACHABLE;
    }
 
    public void markLastLineSegmentAsEmpty(@Nonnegative int line) {
-      LineCoverageData lineData = lineToLineData.get(line);
-      lineData.markLastSegmentAsEmpty();
+      branchFlags[firstBranches[line] + branchesPerLine[line] - 1] |= EMPTY;
    }
 
-   public boolean acceptsAdditionalCallPoints(@Nonnegative int line) {
-      LineCoverageData lineData = getOrCreateLineData(line);
-      return lineData.acceptsAdditionalCallPoints();
+   @Nonnull
+   public BranchCoverageData getBranchData(@Nonnegative int line, @Nonnegative int index) {
+      return new BranchCoverageData(this, firstBranches[line] + index);
    }
 
    @Nonnegative
-   public int registerExecution(@Nonnegative int line, @Nullable CallPoint callPoint) {
+   public int registerExecution(@Nonnegative int line) {
       if (executionCounts == NO_EXECUTIONS_YET) {
          executionCounts = new int[lastLine + 1];
       }
 
-      int previousExecutionCount = executionCounts[line]++;
+      return executionCounts[line]++;
+   }
 
-      if (callPoint != null) {
-         LineCoverageData lineData = lineToLineData.get(line);
-         lineData.registerExecution(callPoint);
+   /**
+    * Gets the call points for a line, to which a new call point can be added without holding any lock.
+    *
+    * @return <tt>null</tt> if no more call points are accepted for the line
+    */
+   @Nullable
+   public CallPoints getCallPointsAcceptingMore(@Nonnegative int line) {
+      CallPoints[] callPoints = lineCallPoints;
+
+      if (callPoints == null) {
+         lineCallPoints = callPoints = new CallPoints[lineFlags.length];
+      }
+      else if (line >= callPoints.length) {
+         lineCallPoints = callPoints = Arrays.copyOf(callPoints, lineFlags.length);
       }
 
-      return previousExecutionCount;
+      return getCallPointsAcceptingMore(callPoints, line);
    }
 
-   public boolean hasValidBranch(@Nonnegative int line, @Nonnegative int branchIndex) {
-      LineCoverageData lineData = lineToLineData.get(line);
-      return lineData.isValidBranch(branchIndex);
+   @Nullable
+   private static CallPoints getCallPointsAcceptingMore(@Nonnull CallPoints[] callPoints, @Nonnegative int index) {
+      CallPoints callPointsForSegment = callPoints[index];
+
+      if (callPointsForSegment == null) {
+         callPoints[index] = callPointsForSegment = new CallPoints(MAX_CALL_POINTS);
+      }
+
+      return callPointsForSegment.isFull() ? null : callPointsForSegment;
    }
 
-   public boolean acceptsAdditionalCallPoints(@Nonnegative int line, @Nonnegative int branchIndex) {
-      LineCoverageData lineData = lineToLineData.get(line);
-      return lineData.acceptsAdditionalCallPoints(branchIndex);
+   public boolean hasValidBranch(@Nonnegative int line, @Nonnegative int branchIndex) {
+      return line < branchesPerLine.length && branchIndex < branchesPerLine[line];
    }
 
    @Nonnegative
-   public int registerExecution(@Nonnegative int line, @Nonnegative int branchIndex, @Nullable CallPoint callPoint) {
-      LineCoverageData lineData = lineToLineData.get(line);
-      return lineData.registerExecution(branchIndex, callPoint);
+   public int registerExecution(@Nonnegative int line, @Nonnegative int branchIndex) {
+      return branchExecutionCounts[firstBranches[line] + branchIndex]++;
    }
 
-   @Nonnegative public int getLineCount() { return lastLine; }
-   @Nonnegative public int getExecutableLineCount() { return lineToLineData.size(); }
+   @Nullable
+   public CallPoints getCallPointsAcceptingMore(@Nonnegative int line, @Nonnegative int branchIndex) {
+      if (branchCallPoints == null) {
+         branchCallPoints = new CallPoints[branchLines.length];
+      }
 
-   public boolean hasLineData(@Nonnegative int line) {
-      return executionCounts != NO_EXECUTIONS_YET && lineToLineData.containsKey(line);
+      return getCallPointsAcceptingMore(branchCallPoints, firstBranches[line] + branchIndex);
    }
 
+   @Nonnegative public int getLineCount() { return lastLine; }
+   @Nonnegative public int getExecutableLineCount() { return executableLines; }
+
+   private boolean isExecutable(@Nonnegative int line) { return line < lineFlags.length && (lineFlags[line] & EXECUTABLE) != 0; }
+
+   public boolean hasLineData(@Nonnegative int line) { return executionCounts != NO_EXECUTIONS_YET && isExecutable(line); }
+
    @Nonnull
    public LineCoverageData getLineData(@Nonnegative int line) {
-      LineCoverageData data = lineToLineData.get(line);
+      resolvePendingBranchLines();
+      return new LineCoverageData(this, line);
+   }
 
-      if (data == null) {
-         data = sharedLineData;
-      }
+   public int getExecutionCount(@Nonnegative int line) {
+      return line < executionCounts.length ? executionCounts[line] : -1;
+   }
 
-      data.setExecutionCount(executionCounts[line]);
-      return data;
+   // Accessors for the line and branch views.
+
+   @Nonnegative int getLineExecutionCount(@Nonnegative int line) { return line < executionCounts.length ? executionCounts[line] : 0; }
+
+   boolean isLineCovered(@Nonnegative int line) {
+      return (lineFlags[line] & UNREACHABLE) != 0 || getLineExecutionCount(line) > 0;
    }
 
-   public void markLineAsReachable(@Nonnegative int line) {
-      LineCoverageData data = lineToLineData.get(line);
+   @Nullable
+   List<CallPoint> getLineCallPoints(@Nonnegative int line) {
+      CallPoints[] callPoints = lineCallPoints;
+      return callPoints == null || line >= callPoints.length || callPoints[line] == null ? null : callPoints[line].toList();
+   }
 
-      if (data != null) {
-         data.markAsReachable();
-      }
+   @Nonnegative int getNumberOfBranches(@Nonnegative int line) { return line < branchesPerLine.length ? branchesPerLine[line] : 0; }
+   @Nonnegative int getFirstBranch(@Nonnegative int line) { return firstBranches[line]; }
+
+   @Nonnegative int getBranchLine(@Nonnegative int position) { return branchLines[position]; }
+   @Nonnegative int getBranchExecutionCount(@Nonnegative int position) { return branchExecutionCounts[position]; }
+   boolean isBranchEmpty(@Nonnegative int position) { return (branchFlags[position] & EMPTY) != 0 || branchLines[position] == 0; }
+
+   boolean isBranchCovered(@Nonnegative int position) {
+      byte flags = branchFlags[position];
+      return (flags & UNREACHABLE) != 0 || (flags & EMPTY) == 0 && branchExecutionCounts[position] > 0;
    }
 
-   public int getExecutionCount(@Nonnegative int line) {
-      return line < executionCounts.length ? executionCounts[line] : -1;
+   @Nullable
+   List<CallPoint> getBranchCallPoints(@Nonnegative int position) {
+      CallPoints[] callPoints = branchCallPoints;
+      return callPoints == null || callPoints[position] == null ? null : callPoints[position].toList();
    }
 
    @Override @Nonnegative
@@ -176,93 +354,236 @@ public final class PerFileLineCoverage implements PerFileCoverage
 
    private void computeValuesIfNeeded() {
       if (totalSegments >= 0) return;
+      resolvePendingBranchLines();
       totalSegments = coveredSegments = 0;
 
       for (int line = 1, n = lastLine; line <= n; line++) {
-         if (lineToLineData.containsKey(line)) {
-            LineCoverageData lineData = lineToLineData.get(line);
-            int executionCount = executionCounts == NO_EXECUTIONS_YET ? 0 : executionCounts[line];
+         if (isExecutable(line)) {
+            totalSegments += getNumberOfSegmentsInExecutableLine(line);
+            coveredSegments += getNumberOfCoveredSegments(line);
+         }
+      }
+   }
 
-            if (lineData == null) {
-               totalSegments++;
+   @Nonnegative
+   public int getNumberOfSegments(@Nonnegative int line) {
+      return isExecutable(line) ? getNumberOfSegmentsInExecutableLine(line) : 0;
+   }
+
+   @Nonnegative
+   int getNumberOfSegmentsInExecutableLine(@Nonnegative int line) {
+      int n = getNumberOfBranches(line);
+      int count = 1;
+
+      for (int target = n == 0 ? 1 : firstBranches[line] + 1, end = target - 1 + n; target < end; target += 2) {
+         int targetLine = branchLines[target];
 
-               if (executionCount > 0) {
-                  coveredSegments++;
-               }
+         if (targetLine > 0) {
+            if (targetLine == branchLines[target - 1]) {
+               count++;
             }
-            else {
-               lineData.setExecutionCount(executionCount);
-               totalSegments += lineData.getNumberOfSegments();
-               coveredSegments += lineData.getNumberOfCoveredSegments();
+
+            if ((branchFlags[target] & EMPTY) == 0) {
+               count++;
             }
          }
       }
+
+      return count;
    }
 
    @Nonnegative
-   public int getNumberOfSegments(@Nonnegative int line) {
-      if (!lineToLineData.containsKey(line)) {
-         return 0;
+   int getNumberOfCoveredSegments(@Nonnegative int line) {
+      int segmentsCovered = isLineCovered(line) ? 1 : 0;
+      int n = getNumberOfBranches(line);
+
+      for (int source = n == 0 ? 0 : firstBranches[line], end = source + n; source < end; source += 2) {
+         int target = source + 1;
+
+         if (isBranchCovered(source) && !isBranchEmpty(target)) {
+            segmentsCovered++;
+         }
+
+         if (isBranchCovered(target) && branchLines[target] == branchLines[source]) {
+            segmentsCovered++;
+         }
       }
 
-      LineCoverageData lineData = lineToLineData.get(line);
-      return lineData == null ? 1 : lineData.getNumberOfSegments();
+      return segmentsCovered;
    }
 
    @Nonnegative
    public int getNumberOfBranchingSourcesAndTargets(@Nonnegative int line) {
-      LineCoverageData lineData = lineToLineData.get(line);
+      int n = getNumberOfBranches(line);
+      int count = 0;
+
+      for (int source = n == 0 ? 0 : firstBranches[line], end = source + n; source < end; source += 2) {
+         if (!isBranchEmpty(source)) {
+            count++;
+         }
 
-      if (lineData == null) {
-         return 0;
+         count++;
       }
 
-      return lineData.getNumberOfBranchingSourcesAndTargets();
+      return count;
    }
 
-   public void mergeInformation(@Nonnull PerFileLineCoverage previousCoverage) {
-      Map<Integer, LineCoverageData> previousInfo = previousCoverage.lineToLineData;
-      boolean previousRunHadLinesExecuted = previousCoverage.executionCounts.length > 0;
+   @Nonnegative
+   int getNumberOfCoveredBranchingSourcesAndTargets(@Nonnegative int line) {
+      int n = getNumberOfBranches(line);
+      int sourcesAndTargetsCovered = 0;
 
-      for (Entry<Integer, LineCoverageData> lineAndInfo : lineToLineData.entrySet()) {
-         Integer line = lineAndInfo.getKey();
-         LineCoverageData previousLineInfo = previousInfo.get(line);
+      for (int source = n == 0 ? 0 : firstBranches[line], end = source + n; source < end; source += 2) {
+         int target = source + 1;
 
-         if (previousLineInfo != null) {
-            LineCoverageData lineInfo = lineAndInfo.getValue();
+         if (isBranchCovered(source)) {
+            sourcesAndTargetsCovered++;
+         }
 
-            if (lineInfo == null) {
-               lineInfo = new LineCoverageData();
-               lineAndInfo.setValue(lineInfo);
-            }
+         if (isBranchCovered(target) && branchLines[target] == branchLines[source]) {
+            sourcesAndTargetsCovered++;
+         }
+      }
 
-            lineInfo.addCountsFromPreviousTestRun(previousLineInfo);
+      return sourcesAndTargetsCovered;
+   }
+
+   public void mergeInformation(@Nonnull PerFileLineCoverage previousCoverage) {
+      resolvePendingBranchLines();
+      previousCoverage.resolvePendingBranchLines();
+      boolean previousRunHadLinesExecuted = previousCoverage.executionCounts != NO_EXECUTIONS_YET;
+
+      for (int line = 1, n = previousCoverage.lastLine; line <= n; line++) {
+         if (previousCoverage.isExecutable(line)) {
+            if (!isExecutable(line)) {
+               addLine(line);
+               lineFlags[line] = previousCoverage.lineFlags[line];
+            }
 
             if (previousRunHadLinesExecuted) {
-               createExecutionCountsArrayIfNeeded(previousCoverage);
-               executionCounts[line] += previousCoverage.executionCounts[line];
+               createExecutionCountsArrayIfNeeded();
+               executionCounts[line] += previousCoverage.getLineExecutionCount(line);
+            }
+
+            CallPoints[] previousCallPoints = previousCoverage.lineCallPoints;
+
+            if (previousCallPoints != null && line < previousCallPoints.length && previousCallPoints[line] != null) {
+               mergeLineCallPoints(line, previousCallPoints[line]);
             }
+
+            mergeBranches(previousCoverage, line);
          }
       }
 
-      for (Entry<Integer, LineCoverageData> lineAndInfo : previousInfo.entrySet()) {
-         Integer line = lineAndInfo.getKey();
+      initializeCache();
+   }
 
-         if (!lineToLineData.containsKey(line)) {
-            LineCoverageData previousLineInfo = lineAndInfo.getValue();
-            lineToLineData.put(line, previousLineInfo);
+   private void createExecutionCountsArrayIfNeeded() {
+      if (executionCounts == NO_EXECUTIONS_YET) {
+         executionCounts = new int[lastLine + 1];
+      }
+      else if (executionCounts.length <= lastLine) {
+         executionCounts = Arrays.copyOf(executionCounts, lastLine + 1);
+      }
+   }
 
-            if (previousRunHadLinesExecuted) {
-               createExecutionCountsArrayIfNeeded(previousCoverage);
-               executionCounts[line] = previousCoverage.executionCounts[line];
+   private void mergeLineCallPoints(@Nonnegative int line, @Nonnull CallPoints previousCallPoints) {
+      if (lineCallPoints == null) {
+         lineCallPoints = new CallPoints[lineFlags.length];
+      }
+      else if (line >= lineCallPoints.length) {
+         lineCallPoints = Arrays.copyOf(lineCallPoints, lineFlags.length);
+      }
+
+      mergeCallPoints(lineCallPoints, line, previousCallPoints);
+   }
+
+   private static void mergeCallPoints(@Nonnull CallPoints[] callPoints, @Nonnegative int index, @Nonnull CallPoints previousCallPoints) {
+      CallPoints callPointsForSegment = callPoints[index];
+
+      if (callPointsForSegment == null) {
+         callPoints[index] = previousCallPoints;
+      }
+      else {
+         callPointsForSegment.addAll(previousCallPoints);
+      }
+   }
+
+   private void mergeBranches(@Nonnull PerFileLineCoverage previousCoverage, @Nonnegative int line) {
+      int previousBranches = previousCoverage.getNumberOfBranches(line);
+
+      if (previousBranches == 0) {
+         return;
+      }
+
+      int branches = getNumberOfBranches(line);
+
+      if (branches == 0) {
+         for (int i = 0; i < previousBranches; i += 2) {
+            addBranchesToLine(line);
+         }
+      }
+      else if (branches != previousBranches) {
+         return;
+      }
+
+      int first = firstBranches[line];
+      int previousFirst = previousCoverage.firstBranches[line];
+
+      for (int i = 0; i < previousBranches; i++) {
+         int position = first + i;
+         int previousPosition = previousFirst + i;
+
+         if (branches == 0) {
+            branchLines[position] = previousCoverage.branchLines[previousPosition];
+            branchFlags[position] = previousCoverage.branchFlags[previousPosition];
+         }
+
+         branchExecutionCounts[position] += previousCoverage.branchExecutionCounts[previousPosition];
+         CallPoints[] previousCallPoints = previousCoverage.branchCallPoints;
+
+         if (previousCallPoints != null && previousCallPoints[previousPosition] != null) {
+            if (branchCallPoints == null) {
+               branchCallPoints = new CallPoints[branchLines.length];
             }
+
+            mergeCallPoints(branchCallPoints, position, previousCallPoints[previousPosition]);
          }
       }
    }
 
-   private void createExecutionCountsArrayIfNeeded(@Nonnull PerFileLineCoverage previousCoverage) {
-      if (executionCounts == NO_EXECUTIONS_YET) {
-         executionCounts = new int[previousCoverage.executionCounts.length];
+   /**
+    * Copies the execution counts of all lines, followed by those of all branch positions, into a new array whose length only changes
+    * when lines or branches get added.
+    */
+   @Nonnull
+   public int[] copyExecutionCounts() {
+      int lineCounters = lastLine + 1;
+      int[] counts = new int[lineCounters + branchPositions];
+
+      if (executionCounts != NO_EXECUTIONS_YET) {
+         System.arraycopy(executionCounts, 0, counts, 0, Math.min(lineCounters, executionCounts.length));
       }
+
+      System.arraycopy(branchExecutionCounts, 0, counts, lineCounters, branchPositions);
+      return counts;
+   }
+
+   /**
+    * Adds execution counts laid out as in {@link #copyExecutionCounts()}.
+    */
+   public void addExecutionCounts(@Nonnull int[] countsToAdd) {
+      int lineCounters = lastLine + 1;
+      createExecutionCountsArrayIfNeeded();
+
+      for (int line = 0; line < lineCounters; line++) {
+         executionCounts[line] += countsToAdd[line];
+      }
+
+      for (int position = 0; position < branchPositions; position++) {
+         branchExecutionCounts[position] += countsToAdd[lineCounters + position];
+      }
+
+      initializeCache();
    }
-}
\ No newline at end of file
+}
@@ -81,13 +81,11 @@ final class CFGTracking
          jumpTargetsForCurrentLine.add(jumpTarget);
       }
 
-      LineCoverageData lineData = lineCoverageInfo.getOrCreateLineData(currentLine);
-      int sourceBranchIndex = lineData.addBranchingPoint(jumpSource, jumpTarget);
+      int sourceBranchIndex = lineCoverageInfo.addBranchingPoint(currentLine, jumpSource, jumpTarget);
       pendingBranches.add(sourceBranchIndex);
 
       if (assertFoundInCurrentLine) {
-         BranchCoverageData branchData = lineCoverageInfo.getBranchData(currentLine, sourceBranchIndex + 1);
-         branchData.markAsUnreachable();
+         lineCoverageInfo.markBranchAsUnreachable(currentLine, sourceBranchIndex + 1);
       }
 
       lineExpectingInstructionAfterJump = 0;
@@ -6,22 +6,49 @@ package mockit.coverage.modification;
 
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 import mockit.asm.classes.*;
 
+/**
+ * Modifies classes for coverage as they get loaded, possibly by several threads at once.
+ * <p/>
+ * Classes from different packages are modified concurrently, while those from the same package are modified one at a time, since all
+ * classes of a source file share the same coverage data structures.
+ */
 public final class ClassModification
 {
+   private static final ClassLoader THIS_CLASS_LOADER = ClassModification.class.getClassLoader();
+   private static final int PACKAGE_LOCKS = 64;
+   @Nonnull private static final Object[] packageLocks = createPackageLocks();
+
    @Nonnull private final Set<String> modifiedClasses;
-   @Nonnull final List<ProtectionDomain> protectionDomainsWithUniqueLocations;
+   @Nonnull private final List<ProtectionDomain> protectionDomainsWithUniqueLocations;
    @Nonnull private final ClassSelection classSelection;
 
+   @Nonnull
+   private static Object[] createPackageLocks() {
+      Object[] locks = new Object[PACKAGE_LOCKS];
+
+      for (int i = 0; i < PACKAGE_LOCKS; i++) {
+         locks[i] = new Object();
+      }
+
+      return locks;
+   }
+
    public ClassModification() {
-      modifiedClasses = new HashSet<>();
+      modifiedClasses = ConcurrentHashMap.newKeySet();
       protectionDomainsWithUniqueLocations = new ArrayList<>();
       classSelection = new ClassSelection();
    }
 
+   /**
+    * Registers classes which were already instrumented offline, so they don't get modified again when loaded.
+    */
+   void registerClassesInstrumentedOffline(@Nonnull Collection<String> classNames) { modifiedClasses.addAll(classNames); }
+
    public boolean shouldConsiderClassesNotLoaded() { return !classSelection.loadedOnly; }
 
    boolean isToBeConsideredForCoverage(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain) {
@@ -32,7 +59,7 @@ public final class ClassModification
    public byte[] modifyClass(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain, @Nonnull byte[] originalClassfile) {
       if (isToBeConsideredForCoverage(className, protectionDomain)) {
          try {
-            byte[] modifiedClassfile = modifyClassForCoverage(className, originalClassfile);
+            byte[] modifiedClassfile = modifyClassForCoverage(className, originalClassfile, THIS_CLASS_LOADER);
             registerModifiedClass(className, protectionDomain);
             return modifiedClassfile;
          }
@@ -46,7 +73,7 @@ public final class ClassModification
    }
 
    @Nonnull
-   private static byte[] modifyClassForCoverage(@Nonnull String className, @Nonnull byte[] classBytecode) {
+   static byte[] modifyClassForCoverage(@Nonnull String className, @Nonnull byte[] classBytecode, @Nonnull ClassLoader innerClassLoader) {
       byte[] modifiedBytecode = CoverageModifier.recoverModifiedByteCodeIfAvailable(className);
 
       if (modifiedBytecode != null) {
@@ -54,16 +81,55 @@ public final class ClassModification
       }
 
       ClassReader cr = new ClassReader(classBytecode);
-      CoverageModifier modifier = new CoverageModifier(cr);
-      cr.accept(modifier);
+      CoverageModifier modifier = new CoverageModifier(cr, innerClassLoader);
+
+      synchronized (getLockForPackageOf(className)) {
+         cr.accept(modifier);
+      }
+
       return modifier.toByteArray();
    }
 
+   @Nonnull
+   private static Object getLockForPackageOf(@Nonnull String className) {
+      int hash = 0;
+
+      for (int i = 0, n = className.lastIndexOf('.'); i < n; i++) {
+         hash = 31 * hash + className.charAt(i);
+      }
+
+      return packageLocks[(hash & Integer.MAX_VALUE) % PACKAGE_LOCKS];
+   }
+
+   /**
+    * Builds the coverage data for a class not loaded, from its class file, without generating the modified class file.
+    */
+   static void buildCoverageDataFromClassfile(
+      @Nonnull String className, @Nonnull byte[] classBytecode, @Nonnull ClassLoader innerClassLoader
+   ) {
+      if (!CoverageModifier.discardInnerClassModifierIfAvailable(className)) {
+         ClassReader cr = new ClassReader(classBytecode);
+
+         synchronized (getLockForPackageOf(className)) {
+            cr.accept(new CoverageModifier(cr, innerClassLoader));
+         }
+      }
+   }
+
    private void registerModifiedClass(@Nonnull String className, @Nonnull ProtectionDomain pd) {
       modifiedClasses.add(className);
 
       if (pd.getClassLoader() != null && pd.getCodeSource() != null && pd.getCodeSource().getLocation() != null) {
-         addProtectionDomainIfHasUniqueNewPath(pd);
+         synchronized (protectionDomainsWithUniqueLocations) {
+            addProtectionDomainIfHasUniqueNewPath(pd);
+         }
+      }
+   }
+
+   @Nonnull
+   List<ProtectionDomain> getProtectionDomainsWithUniqueLocations() {
+      synchronized (protectionDomainsWithUniqueLocations) {
+         return new ArrayList<>(protectionDomainsWithUniqueLocations);
       }
    }
 
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import java.util.*;
+import java.util.regex.*;
+import javax.annotation.*;
+import static java.util.regex.Pattern.*;
+
+/**
+ * A class name predicate compiled from a comma-separated list of class selection specs, as given in the "<tt>coverage-classes</tt>" and
+ * "<tt>coverage-excludes</tt>" properties.
+ * <p/>
+ * Wildcard specs (where "<tt>*</tt>" stands for any sequence of chars, and "<tt>?</tt>" or "<tt>.</tt>" for any single char, the latter
+ * as it always did when specs were translated into regular expressions) are stored in a trie keyed by their prefixes up to the first
+ * "<tt>*</tt>" or "<tt>?</tt>", so that a class name is matched by walking down the trie without allocating anything; the remaining part
+ * of a spec is only checked at the trie node where the prefix ends.
+ * Specs containing a backslash, or any other char with special meaning in a regular expression, are matched as regular expressions.
+ */
+final class ClassNamePredicate
+{
+   private static final Pattern CSV = compile(",");
+   private static final Pattern STAR = compile("\\*");
+
+   private static final class Node
+   {
+      @Nonnull char[] childChars = {};
+      @Nonnull Node[] children = {};
+      @Nullable String[] specRemainders;
+
+      @Nullable
+      Node findChild(char c) {
+         char[] chars = childChars;
+
+         for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == c) {
+               return children[i];
+            }
+         }
+
+         return null;
+      }
+
+      @Nonnull
+      Node addChild(char c) {
+         Node child = findChild(c);
+
+         if (child == null) {
+            int n = childChars.length;
+            childChars = Arrays.copyOf(childChars, n + 1);
+            children = Arrays.copyOf(children, n + 1);
+            childChars[n] = c;
+            child = new Node();
+            children[n] = child;
+         }
+
+         return child;
+      }
+
+      void addSpecRemainder(@Nonnull String remainder) {
+         String[] remainders = specRemainders;
+
+         if (remainders == null) {
+            specRemainders = new String[] {remainder};
+         }
+         else {
+            remainders = Arrays.copyOf(remainders, remainders.length + 1);
+            remainders[remainders.length - 1] = remainder;
+            specRemainders = remainders;
+         }
+      }
+   }
+
+   @Nonnull private final Node root;
+   @Nullable private final Pattern regexSpecs;
+
+   private ClassNamePredicate(@Nonnull Node root, @Nullable Pattern regexSpecs) {
+      this.root = root;
+      this.regexSpecs = regexSpecs;
+   }
+
+   @Nullable
+   static ClassNamePredicate compileSpecification(@Nonnull String specification) {
+      if (specification.isEmpty()) {
+         return null;
+      }
+
+      Node root = new Node();
+      boolean anyWildcardSpec = false;
+      StringBuilder regexBuilder = new StringBuilder();
+      String sep = "";
+
+      for (String spec : CSV.split(specification)) {
+         if (spec.isEmpty()) {
+            continue;
+         }
+
+         if (isWildcardSpec(spec)) {
+            addWildcardSpec(root, spec);
+            anyWildcardSpec = true;
+         }
+         else {
+            regexBuilder.append(sep).append(toRegex(spec));
+            sep = "|";
+         }
+      }
+
+      Pattern regexSpecs = regexBuilder.length() == 0 ? null : compile(regexBuilder.toString());
+      return anyWildcardSpec || regexSpecs != null ? new ClassNamePredicate(root, regexSpecs) : null;
+   }
+
+   private static boolean isWildcardSpec(@Nonnull String spec) {
+      for (int i = 0, n = spec.length(); i < n; i++) {
+         char c = spec.charAt(i);
+
+         if (c != '.' && c != '*' && c != '?' && c != '_' && !Character.isLetterOrDigit(c)) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static void addWildcardSpec(@Nonnull Node root, @Nonnull String spec) {
+      Node node = root;
+      int n = spec.length();
+      int i = 0;
+
+      while (i < n) {
+         char c = spec.charAt(i);
+
+         if (c == '*' || c == '?') {
+            break;
+         }
+
+         node = node.addChild(c);
+         i++;
+      }
+
+      node.addSpecRemainder(spec.substring(i));
+   }
+
+   @Nonnull
+   private static String toRegex(@Nonnull String spec) {
+      if (spec.indexOf('\\') >= 0) {
+         return spec;
+      }
+
+      String regex = STAR.matcher(spec).replaceAll(".*");
+      return regex.replace('?', '.');
+   }
+
+   boolean matches(@Nonnull String className) {
+      if (matches(root, className, 0)) {
+         return true;
+      }
+
+      Pattern regex = regexSpecs;
+      return regex != null && regex.matcher(className).matches();
+   }
+
+   /**
+    * Walks down the trie following the child for the next char of the class name, and also the child for "<tt>.</tt>" when that char is
+    * a different one.
+    */
+   private static boolean matches(@Nonnull Node node, @Nonnull String className, @Nonnegative int i) {
+      String[] remainders = node.specRemainders;
+
+      if (remainders != null) {
+         for (String remainder : remainders) {
+            if (matchesWildcards(remainder, className, i)) {
+               return true;
+            }
+         }
+      }
+
+      if (i == className.length()) {
+         return false;
+      }
+
+      char c = className.charAt(i);
+      Node child = node.findChild(c);
+
+      if (child != null && matches(child, className, i + 1)) {
+         return true;
+      }
+
+      if (c != '.') {
+         Node anyCharChild = node.findChild('.');
+         return anyCharChild != null && matches(anyCharChild, className, i + 1);
+      }
+
+      return false;
+   }
+
+   /**
+    * Matches the rest of a class name against a spec remainder made of literal chars and wildcards, backtracking to the last "<tt>*</tt>"
+    * seen on a mismatch.
+    */
+   private static boolean matchesWildcards(@Nonnull String remainder, @Nonnull String className, @Nonnegative int start) {
+      int p = 0;
+      int c = start;
+      int lastStar = -1;
+      int classNamePosAtLastStar = 0;
+      int remainderLength = remainder.length();
+      int classNameLength = className.length();
+
+      while (c < classNameLength) {
+         char specChar = p < remainderLength ? remainder.charAt(p) : 0;
+
+         if (specChar == '*') {
+            lastStar = p++;
+            classNamePosAtLastStar = c;
+         }
+         else if (p < remainderLength && (specChar == '?' || specChar == '.' || specChar == className.charAt(c))) {
+            p++;
+            c++;
+         }
+         else if (lastStar >= 0) {
+            p = lastStar + 1;
+            c = ++classNamePosAtLastStar;
+         }
+         else {
+            return false;
+         }
+      }
+
+      while (p < remainderLength && remainder.charAt(p) == '*') {
+         p++;
+      }
+
+      return p == remainderLength;
+   }
+}
@@ -6,75 +6,144 @@ package mockit.coverage.modification;
 
 import java.net.*;
 import java.security.*;
-import java.util.regex.*;
+import java.util.*;
 import javax.annotation.*;
-import static java.util.regex.Pattern.*;
 
 import mockit.coverage.*;
 import static mockit.internal.util.GeneratedClasses.isExternallyGeneratedSubclass;
 
+/**
+ * Decides which classes get measured, from their names and the code sources they were loaded from.
+ * <p/>
+ * Since this runs for every class loaded, the "<tt>coverage-classes</tt>" and "<tt>coverage-excludes</tt>" specs are compiled into
+ * {@link ClassNamePredicate}s, and the decisions depending only on the protection domain of a class are cached for each one, in weak
+ * maps split into stripes with separate locks so that concurrent class loading doesn't contend on a single one.
+ */
 final class ClassSelection
 {
    private static final String THIS_CLASS_NAME = ClassSelection.class.getName();
    private static final ClassLoader THIS_CLASS_LOADER = ClassSelection.class.getClassLoader();
-   private static final Pattern CSV = compile(",");
-   private static final Pattern DOT = compile("\\.");
-   private static final Pattern STAR = compile("\\*");
-   private static final Pattern TEST_CLASS_NAME = compile(".+Test(\\$.+)?");
+   private static final int CODE_SOURCE_KIND_STRIPES = 16;
+
+   /**
+    * What the code source of a protection domain says about its classes.
+    */
+   private enum CodeSourceKind
+   {
+      /** No code source, or classes which can't access JMockit, or dynamically generated classes. */
+      INELIGIBLE,
+      /** Classes from a jar file or from test classes. */
+      EXTERNAL_LIBRARY,
+      /** Classes from a dir in the classpath other than a test classes dir. */
+      PROJECT,
+      /** Classes from a custom class loader with no code source location, which are looked up in the classpath one by one. */
+      LOCATION_PER_CLASS
+   }
 
-   boolean loadedOnly;
-   @Nullable private Matcher classesToInclude;
-   @Nullable private Matcher classesToExclude;
-   @Nonnull private final Matcher testCode;
-   private boolean configurationRead;
+   volatile boolean loadedOnly;
+   @Nullable private volatile ClassNamePredicate classesToInclude;
+   @Nullable private volatile ClassNamePredicate classesToExclude;
+   private volatile boolean configurationRead;
+   @Nonnull private final Map<ProtectionDomain, CodeSourceKind>[] codeSourceKinds;
 
-   ClassSelection() { testCode = TEST_CLASS_NAME.matcher(""); }
+   @SuppressWarnings("unchecked")
+   ClassSelection() {
+      codeSourceKinds = new Map[CODE_SOURCE_KIND_STRIPES];
 
-   @Nullable
-   private static Matcher newMatcherForClassSelection(@Nonnull String specification) {
-      if (specification.isEmpty()) {
-         return null;
+      for (int i = 0; i < CODE_SOURCE_KIND_STRIPES; i++) {
+         codeSourceKinds[i] = new WeakHashMap<>();
       }
+   }
 
-      String[] specs = CSV.split(specification);
-      StringBuilder finalRegexBuilder = new StringBuilder();
-      String sep = "";
+   boolean isSelected(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain) {
+      CodeSourceKind codeSourceKind = getCodeSourceKind(protectionDomain);
 
-      for (String spec : specs) {
-         String regex = null;
+      if (codeSourceKind == CodeSourceKind.INELIGIBLE || isIneligibleForSelection(className)) {
+         return false;
+      }
 
-         if (spec.indexOf('\\') >= 0) {
-            regex = spec;
-         }
-         else if (!spec.isEmpty()) {
-            regex = DOT.matcher(spec).replaceAll("\\.");
-            regex = STAR.matcher(regex).replaceAll(".*");
-            regex = regex.replace('?', '.');
+      if (!configurationRead) {
+         readConfiguration();
+      }
+
+      if (isClassExcludedFromCoverage(className)) {
+         return false;
+      }
+
+      boolean fromExternalLibrary;
+
+      if (codeSourceKind == CodeSourceKind.LOCATION_PER_CLASS) {
+         URL location = findLocationInClasspath(className);
+
+         if (location == null) {
+            return false;
          }
 
-         if (regex != null) {
-            finalRegexBuilder.append(sep).append(regex);
-            sep = "|";
+         fromExternalLibrary = isClassFromExternalLibrary(location);
+      }
+      else {
+         fromExternalLibrary = codeSourceKind == CodeSourceKind.EXTERNAL_LIBRARY;
+      }
+
+      ClassNamePredicate includes = classesToInclude;
+
+      if (includes != null) {
+         return includes.matches(className);
+      }
+
+      return !fromExternalLibrary;
+   }
+
+   @Nonnull
+   private CodeSourceKind getCodeSourceKind(@Nonnull ProtectionDomain protectionDomain) {
+      Map<ProtectionDomain, CodeSourceKind> stripe =
+         codeSourceKinds[System.identityHashCode(protectionDomain) & CODE_SOURCE_KIND_STRIPES - 1];
+      CodeSourceKind codeSourceKind;
+
+      synchronized (stripe) {
+         codeSourceKind = stripe.get(protectionDomain);
+      }
+
+      if (codeSourceKind == null) {
+         // Found outside the lock, since it may load a class; a concurrent thread would find the same kind.
+         codeSourceKind = findCodeSourceKind(protectionDomain);
+
+         synchronized (stripe) {
+            stripe.put(protectionDomain, codeSourceKind);
          }
       }
 
-      String finalRegex = finalRegexBuilder.toString();
-      return finalRegex.isEmpty() ? null : compile(finalRegex).matcher("");
+      return codeSourceKind;
    }
 
-   boolean isSelected(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain) {
+   @Nonnull
+   private static CodeSourceKind findCodeSourceKind(@Nonnull ProtectionDomain protectionDomain) {
       CodeSource codeSource = protectionDomain.getCodeSource();
 
-      if (
-         codeSource == null || isIneligibleForSelection(className) ||
-         !canAccessJMockitFromClassToBeMeasured(protectionDomain)
-      ) {
-         return false;
+      if (codeSource == null || !canAccessJMockitFromClassToBeMeasured(protectionDomain)) {
+         return CodeSourceKind.INELIGIBLE;
       }
 
-      URL location = findLocationInCodeSource(className, protectionDomain);
+      URL location = codeSource.getLocation();
 
       if (location == null) {
+         if (protectionDomain.getClassLoader() == THIS_CLASS_LOADER) {
+            return CodeSourceKind.INELIGIBLE; // it's likely a dynamically generated class
+         }
+
+         // It's from a custom class loader, so its classes may exist in the classpath.
+         return CodeSourceKind.LOCATION_PER_CLASS;
+      }
+
+      return isClassFromExternalLibrary(location) ? CodeSourceKind.EXTERNAL_LIBRARY : CodeSourceKind.PROJECT;
+   }
+
+   /**
+    * Checks whether a class found in a directory or jar file given for offline instrumentation is selected for coverage, which is
+    * decided from its name alone.
+    */
+   boolean isSelectedForOfflineInstrumentation(@Nonnull String className) {
+      if (isIneligibleForSelection(className)) {
          return false;
       }
 
@@ -86,11 +155,8 @@ final class ClassSelection
          return false;
       }
 
-      if (classesToInclude != null) {
-         return classesToInclude.reset(className).matches();
-      }
-
-      return !isClassFromExternalLibrary(location);
+      ClassNamePredicate includes = classesToInclude;
+      return includes == null || includes.matches(className);
    }
 
    private static boolean isIneligibleForSelection(@Nonnull String className) {
@@ -119,26 +185,33 @@ final class ClassSelection
    }
 
    @Nullable
-   private static URL findLocationInCodeSource(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain) {
-      URL location = protectionDomain.getCodeSource().getLocation();
+   private static URL findLocationInClasspath(@Nonnull String className) {
+      String classFileName = className.replace('.', '/') + ".class";
+      return THIS_CLASS_LOADER.getResource(classFileName);
+   }
 
-      if (location == null) {
-         if (protectionDomain.getClassLoader() == THIS_CLASS_LOADER) {
-            return null; // it's likely a dynamically generated class
-         }
+   private boolean isClassExcludedFromCoverage(@Nonnull String className) {
+      ClassNamePredicate excludes = classesToExclude;
+      return excludes != null && excludes.matches(className) || isTestClassName(className);
+   }
 
-         // It's from a custom class loader, so it may exist in the classpath.
-         String classFileName = className.replace('.', '/') + ".class";
-         location = THIS_CLASS_LOADER.getResource(classFileName);
+   /**
+    * Same as matching the "<tt>.+Test(\$.+)?</tt>" regex, but without allocating a matcher.
+    */
+   private static boolean isTestClassName(@Nonnull String className) {
+      int n = className.length();
+
+      if (n > 4 && className.endsWith("Test")) {
+         return true;
       }
 
-      return location;
-   }
+      for (int p = className.indexOf("Test$", 1); p > 0; p = className.indexOf("Test$", p + 1)) {
+         if (p + 5 < n) {
+            return true;
+         }
+      }
 
-   private boolean isClassExcludedFromCoverage(@Nonnull String className) {
-      return
-         classesToExclude != null && classesToExclude.reset(className).matches() ||
-         testCode.reset(className).matches();
+      return false;
    }
 
    private static boolean isClassFromExternalLibrary(@Nonnull URL location) {
@@ -150,14 +223,16 @@ final class ClassSelection
       return path.endsWith(".jar") || path.endsWith("/.cp/") || path.endsWith("/test-classes/");
    }
 
-   private void readConfiguration() {
-      String classes = Configuration.getProperty("classes", "");
-      loadedOnly = "loaded".equals(classes);
-      classesToInclude = loadedOnly ? null : newMatcherForClassSelection(classes);
+   private synchronized void readConfiguration() {
+      if (!configurationRead) {
+         String classes = Configuration.getProperty("classes", "");
+         loadedOnly = "loaded".equals(classes);
+         classesToInclude = loadedOnly ? null : ClassNamePredicate.compileSpecification(classes);
 
-      String excludes = Configuration.getProperty("excludes", "");
-      classesToExclude = newMatcherForClassSelection(excludes);
+         String excludes = Configuration.getProperty("excludes", "");
+         classesToExclude = ClassNamePredicate.compileSpecification(excludes);
 
-      configurationRead = true;
+         configurationRead = true;
+      }
    }
-}
\ No newline at end of file
+}
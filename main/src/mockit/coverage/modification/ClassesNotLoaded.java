@@ -5,65 +5,156 @@
 package mockit.coverage.modification;
 
 import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 /**
- * Finds and loads all classes that should also be measured, but were not loaded until now.
+ * Finds all classes that should also be measured, but were not loaded until now, and builds their coverage data straight from their
+ * class files, without loading them.
+ * <p/>
+ * Class path dirs are walked in parallel, and the class files found are then read and processed in parallel, one package per task.
  */
 public final class ClassesNotLoaded
 {
    @Nonnull private final ClassModification classModification;
-   @Nonnegative private int firstPosAfterParentDir;
 
    public ClassesNotLoaded(@Nonnull ClassModification classModification) { this.classModification = classModification; }
 
    public void gatherCoverageData() {
-      Set<ProtectionDomain> protectionDomainsSoFar = new HashSet<>(classModification.protectionDomainsWithUniqueLocations);
+      Set<ProtectionDomain> protectionDomainsSoFar = new HashSet<>(classModification.getProtectionDomainsWithUniqueLocations());
+      Map<ProtectionDomain, ClassFileWalk> walks = new LinkedHashMap<>();
 
       for (ProtectionDomain pd : protectionDomainsSoFar) {
          File classPathEntry = new File(pd.getCodeSource().getLocation().getPath());
 
          if (!classPathEntry.getPath().endsWith(".jar")) {
-            firstPosAfterParentDir = classPathEntry.getPath().length() + 1;
-            loadAdditionalClasses(classPathEntry, pd);
+            Path classPathDir = classPathEntry.toPath();
+            walks.put(pd, new ClassFileWalk(classPathDir, classPathDir));
          }
       }
+
+      ForkJoinTask.invokeAll(walks.values());
+
+      List<PackageCoverageData> tasks = new ArrayList<>();
+
+      for (Map.Entry<ProtectionDomain, ClassFileWalk> pdAndWalk : walks.entrySet()) {
+         addTaskForEachPackage(tasks, pdAndWalk.getKey(), pdAndWalk.getValue().join());
+      }
+
+      ForkJoinTask.invokeAll(tasks);
    }
 
-   private void loadAdditionalClasses(@Nonnull File classPathEntry, @Nonnull ProtectionDomain protectionDomain) {
-      File[] filesInDir = classPathEntry.listFiles();
+   /**
+    * Walks a directory tree collecting the class files in it, forking a separate walk for each subdirectory.
+    * Class files are returned as the names of their classes, mapped to the file paths.
+    */
+   private static final class ClassFileWalk extends RecursiveTask<Map<String, Path>>
+   {
+      private static final long serialVersionUID = 1L;
 
-      if (filesInDir != null) {
-         for (File fileInDir : filesInDir) {
-            if (fileInDir.isDirectory()) {
-               loadAdditionalClasses(fileInDir, protectionDomain);
-            }
-            else {
-               loadAdditionalClass(fileInDir.getPath(), protectionDomain);
-            }
+      @Nonnull private final Path classPathDir;
+      @Nonnull private final Path dir;
+
+      ClassFileWalk(@Nonnull Path classPathDir, @Nonnull Path dir) {
+         this.classPathDir = classPathDir;
+         this.dir = dir;
+      }
+
+      @Override
+      protected Map<String, Path> compute() {
+         final Map<String, Path> classFiles = new HashMap<>();
+         final List<ClassFileWalk> subDirWalks = new ArrayList<>();
+
+         try {
+            Files.walkFileTree(dir, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<Path>() {
+               @Override
+               public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                  if (attributes.isDirectory()) {
+                     ClassFileWalk subDirWalk = new ClassFileWalk(classPathDir, file);
+                     subDirWalk.fork();
+                     subDirWalks.add(subDirWalk);
+                  }
+                  else {
+                     String relativePath = classPathDir.relativize(file).toString();
+
+                     if (relativePath.endsWith(".class")) {
+                        String className = relativePath.substring(0, relativePath.length() - 6).replace(File.separatorChar, '.');
+                        classFiles.put(className, file);
+                     }
+                  }
+
+                  return FileVisitResult.CONTINUE;
+               }
+
+               @Override
+               public FileVisitResult visitFileFailed(Path file, IOException e) { return FileVisitResult.CONTINUE; }
+            });
          }
+         catch (IOException ignore) {}
+
+         for (ClassFileWalk subDirWalk : subDirWalks) {
+            classFiles.putAll(subDirWalk.join());
+         }
+
+         return classFiles;
       }
    }
 
-   private void loadAdditionalClass(@Nonnull String filePath, @Nonnull ProtectionDomain protectionDomain) {
-      int p = filePath.lastIndexOf(".class");
+   /**
+    * Groups the class files to be considered by package, since all classes from the same source file are in the same package.
+    * Inside a package, outer classes come before their nested classes, so that the nested ones processed along with the outer class are
+    * skipped.
+    */
+   private void addTaskForEachPackage(
+      @Nonnull List<PackageCoverageData> tasks, @Nonnull ProtectionDomain protectionDomain, @Nonnull Map<String, Path> classFiles
+   ) {
+      Map<String, PackageCoverageData> packageTasks = new HashMap<>();
 
-      if (p > 0) {
-         String relativePath = filePath.substring(firstPosAfterParentDir, p);
-         String className = relativePath.replace(File.separatorChar, '.');
+      for (Map.Entry<String, Path> classNameAndFile : classFiles.entrySet()) {
+         String className = classNameAndFile.getKey();
 
          if (classModification.isToBeConsideredForCoverage(className, protectionDomain)) {
-            loadClass(className, protectionDomain);
+            String packageName = className.substring(0, className.lastIndexOf('.') + 1);
+            PackageCoverageData task = packageTasks.get(packageName);
+
+            if (task == null) {
+               task = new PackageCoverageData(protectionDomain.getClassLoader());
+               packageTasks.put(packageName, task);
+            }
+
+            task.classFiles.put(className, classNameAndFile.getValue());
          }
       }
+
+      tasks.addAll(packageTasks.values());
    }
 
-   private static void loadClass(@Nonnull String className, @Nonnull ProtectionDomain protectionDomain) {
-      try {
-         Class.forName(className, false, protectionDomain.getClassLoader());
+   private static final class PackageCoverageData extends RecursiveAction
+   {
+      private static final long serialVersionUID = 1L;
+
+      @Nonnull private final ClassLoader classLoader;
+      @Nonnull final SortedMap<String, Path> classFiles;
+
+      PackageCoverageData(@Nonnull ClassLoader classLoader) {
+         this.classLoader = classLoader;
+         classFiles = new TreeMap<>();
+      }
+
+      @Override
+      protected void compute() {
+         for (Map.Entry<String, Path> classNameAndFile : classFiles.entrySet()) {
+            try {
+               byte[] classfile = Files.readAllBytes(classNameAndFile.getValue());
+               ClassModification.buildCoverageDataFromClassfile(classNameAndFile.getKey(), classfile, classLoader);
+            }
+            catch (IOException | VisitInterruptedException ignore) {}
+            catch (RuntimeException | AssertionError e) { e.printStackTrace(); }
+         }
       }
-      catch (ClassNotFoundException | NoClassDefFoundError ignore) {}
    }
-}
\ No newline at end of file
+}
@@ -5,6 +5,7 @@
 package mockit.coverage.modification;
 
 import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 import mockit.asm.classes.*;
@@ -16,7 +17,7 @@ import static mockit.asm.jvmConstants.Access.*;
 
 final class CoverageModifier extends WrappingClassVisitor
 {
-   private static final Map<String, CoverageModifier> INNER_CLASS_MODIFIERS = new HashMap<>();
+   private static final Map<String, CoverageModifier> INNER_CLASS_MODIFIERS = new ConcurrentHashMap<>();
    private static final int FIELD_MODIFIERS_TO_IGNORE = FINAL + SYNTHETIC;
 
    @Nullable
@@ -25,6 +26,11 @@ final class CoverageModifier extends WrappingClassVisitor
       return modifier == null ? null : modifier.toByteArray();
    }
 
+   static boolean discardInnerClassModifierIfAvailable(@Nonnull String innerClassName) {
+      return INNER_CLASS_MODIFIERS.remove(innerClassName) != null;
+   }
+
+   @Nonnull private final ClassLoader innerClassLoader;
    @Nullable private String internalClassName;
    @Nullable private String simpleClassName;
    @Nonnull private String sourceFileName;
@@ -33,16 +39,21 @@ final class CoverageModifier extends WrappingClassVisitor
    private boolean forEnumClass;
    @Nullable private String kindOfTopLevelType;
 
-   CoverageModifier(@Nonnull ClassReader cr) { this(cr, false); }
+   /**
+    * @param innerClassLoader the class loader from which to read the class files of inner classes, which get modified along with the outer
+    *                         class
+    */
+   CoverageModifier(@Nonnull ClassReader cr, @Nonnull ClassLoader innerClassLoader) { this(cr, innerClassLoader, false); }
 
-   private CoverageModifier(@Nonnull ClassReader cr, boolean forInnerClass) {
+   private CoverageModifier(@Nonnull ClassReader cr, @Nonnull ClassLoader innerClassLoader, boolean forInnerClass) {
       super(new ClassWriter(cr));
+      this.innerClassLoader = innerClassLoader;
       sourceFileName = "";
       this.forInnerClass = forInnerClass;
    }
 
    private CoverageModifier(@Nonnull ClassReader cr, @Nonnull CoverageModifier other, @Nullable String simpleClassName) {
-      this(cr, true);
+      this(cr, other.innerClassLoader, true);
       sourceFileName = other.sourceFileName;
       fileData = other.fileData;
       internalClassName = other.internalClassName;
@@ -142,12 +153,12 @@ final class CoverageModifier extends WrappingClassVisitor
          return;
       }
 
-      ClassReader innerCR = ClassFile.createClassReader(CoverageModifier.class.getClassLoader(), name);
+      ClassReader innerCR = ClassFile.createClassReader(innerClassLoader, name);
 
       if (innerCR != null) {
          CoverageModifier innerClassModifier = new CoverageModifier(innerCR, this, innerName);
          innerCR.accept(innerClassModifier);
-         INNER_CLASS_MODIFIERS.put(innerClassName, innerClassModifier);
+         INNER_CLASS_MODIFIERS.putIfAbsent(innerClassName, innerClassModifier);
       }
    }
 
@@ -9,6 +9,7 @@ import javax.annotation.*;
 import mockit.asm.annotations.*;
 import mockit.asm.controlFlow.*;
 import mockit.asm.methods.*;
+import mockit.coverage.*;
 import mockit.coverage.data.*;
 import mockit.coverage.lines.*;
 import static mockit.asm.jvmConstants.Opcodes.*;
@@ -16,11 +17,13 @@ import static mockit.asm.jvmConstants.Opcodes.*;
 final class MethodModifier extends WrappingMethodVisitor
 {
    private static final String DATA_RECORDING_CLASS = "mockit/coverage/TestRun";
+   private static final String FIRST_HITS_CLASS = "mockit/coverage/FirstHits";
 
    @Nonnull private final String sourceFileName;
    @Nonnull private final FileCoverageData fileData;
    @Nonnull private final PerFileLineCoverage lineCoverageInfo;
    @Nonnull private final CFGTracking cfgTracking;
+   private final boolean firstHitsOnly;
    private boolean foundInterestingInstruction;
    @Nonnegative int currentLine;
 
@@ -30,6 +33,7 @@ final class MethodModifier extends WrappingMethodVisitor
       this.fileData = fileData;
       lineCoverageInfo = fileData.getLineCoverageData();
       cfgTracking = new CFGTracking(lineCoverageInfo);
+      firstHitsOnly = FirstHits.isEnabled();
    }
 
    @Override
@@ -53,20 +57,59 @@ final class MethodModifier extends WrappingMethodVisitor
    }
 
    private void generateCallToRegisterLineExecution() {
+      Label afterProbe = null;
+
+      if (firstHitsOnly) {
+         FirstHits.addLineProbe(fileData.index, currentLine);
+         afterProbe = generateGuardForFirstHit("linesHit", currentLine);
+      }
+
       mw.visitIntInsn(SIPUSH, fileData.index);
       pushCurrentLineOnTheStack();
       mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, "lineExecuted", "(II)V", false);
+
+      if (afterProbe != null) {
+         mw.visitLabel(afterProbe);
+      }
    }
 
-   private void pushCurrentLineOnTheStack() {
-      if (currentLine <= Short.MAX_VALUE) {
-         mw.visitIntInsn(SIPUSH, currentLine);
+   private void pushCurrentLineOnTheStack() { pushIntOnTheStack(currentLine); }
+
+   private void pushIntOnTheStack(int value) {
+      if (value <= Short.MAX_VALUE) {
+         mw.visitIntInsn(SIPUSH, value);
       }
       else {
-         mw.visitLdcInsn(currentLine);
+         mw.visitLdcInsn(value);
       }
    }
 
+   /**
+    * Generates code which skips the probe when its flag is already set, and otherwise sets it.
+    * Goes directly to the method writer, so that the additional jump and label are not taken as branches in the source code.
+    *
+    * @return the label to be visited after the probe
+    */
+   @Nonnull
+   private Label generateGuardForFirstHit(@Nonnull String flagsField, @Nonnegative int flagIndex) {
+      Label afterProbe = new Label();
+      pushFlagArrayAndIndexOnTheStack(flagsField, flagIndex);
+      mw.visitInsn(BALOAD);
+      mw.visitJumpInsn(IFNE, afterProbe);
+
+      pushFlagArrayAndIndexOnTheStack(flagsField, flagIndex);
+      mw.visitInsn(ICONST_1);
+      mw.visitInsn(BASTORE);
+      return afterProbe;
+   }
+
+   private void pushFlagArrayAndIndexOnTheStack(@Nonnull String flagsField, @Nonnegative int flagIndex) {
+      mw.visitFieldInsn(GETSTATIC, FIRST_HITS_CLASS, flagsField, "[[Z");
+      mw.visitIntInsn(SIPUSH, fileData.index);
+      mw.visitInsn(AALOAD);
+      pushIntOnTheStack(flagIndex);
+   }
+
    @Override
    public void visitLabel(@Nonnull Label label) {
       mw.visitLabel(label);
@@ -93,10 +136,21 @@ final class MethodModifier extends WrappingMethodVisitor
    }
 
    void generateCallToRegisterBranchTargetExecution(@Nonnegative int branchIndex) {
+      Label afterProbe = null;
+
+      if (firstHitsOnly) {
+         int branchProbe = FirstHits.addBranchProbe(fileData.index);
+         afterProbe = generateGuardForFirstHit("branchesHit", branchProbe);
+      }
+
       mw.visitIntInsn(SIPUSH, fileData.index);
       pushCurrentLineOnTheStack();
       mw.visitIntInsn(SIPUSH, branchIndex);
       mw.visitMethodInsn(INVOKESTATIC, DATA_RECORDING_CLASS, "branchExecuted", "(III)V", false);
+
+      if (afterProbe != null) {
+         mw.visitLabel(afterProbe);
+      }
    }
 
    @Override
@@ -108,7 +162,7 @@ final class MethodModifier extends WrappingMethodVisitor
       }
 
       if (isReturn && !foundInterestingInstruction && cfgTracking.hasOnlyOneLabelBeingVisited()) {
-         lineCoverageInfo.getOrCreateLineData(currentLine).markAsUnreachable();
+         lineCoverageInfo.markLineAsUnreachable(currentLine);
       }
       else {
          cfgTracking.beforeNoOperandInstruction(this, opcode);
@@ -277,6 +331,8 @@ final class MethodModifier extends WrappingMethodVisitor
          lineCoverageInfo.markLineAsReachable(currentLine);
       }
 
+      lineCoverageInfo.resolvePendingBranchLines();
+
       mw.visitMaxStack(maxStack);
    }
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.net.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.Map.*;
+import java.util.concurrent.*;
+import java.util.jar.*;
+import javax.annotation.*;
+
+import mockit.coverage.*;
+import mockit.coverage.data.*;
+
+/**
+ * Instruments the classes in a directory or jar file ahead of time, writing instrumented copies of them (along with all other files) to
+ * another directory or jar file, plus a metadata file with the executable lines, branches, and fields of each instrumented source file.
+ * Classes are selected with the same "<tt>coverage-classes</tt>" and "<tt>coverage-excludes</tt>" properties used at runtime, and are
+ * instrumented in parallel, one package per task.
+ * <p/>
+ * Usage: <tt>java -cp jmockit.jar mockit.coverage.modification.OfflineInstrumentation &lt;input dir or jar> &lt;output dir or jar>
+ * [metadata file]</tt>
+ * <p/>
+ * Test runs then use the output dir or jar in place of the input one, and point the "<tt>coverage-metadata</tt>" property to the metadata
+ * file.
+ * Pre-instrumented classes are not modified again when loaded, and the coverage data for classes never loaded comes from the metadata,
+ * instead of having to load them at shutdown.
+ */
+public final class OfflineInstrumentation
+{
+   private static final String DEFAULT_METADATA_FILE = "coverage-metadata.ser";
+
+   @Nonnull private final File input;
+   @Nonnull private final File output;
+   @Nonnull private final ClassSelection classSelection;
+   @Nonnull private final SortedMap<String, byte[]> files;
+   @Nonnull private final Map<String, byte[]> modifiedClassfiles;
+   @Nonnull private final Set<String> instrumentedClasses;
+
+   public static void main(@Nonnull String[] args) throws IOException {
+      if (args.length < 2) {
+         System.out.println("Usage: OfflineInstrumentation <input dir or jar> <output dir or jar> [metadata file]");
+         return;
+      }
+
+      File metadataFile = new File(args.length > 2 ? args[2] : getDefaultMetadataFilePath());
+      OfflineInstrumentation instrumentation = new OfflineInstrumentation(new File(args[0]), new File(args[1]));
+      instrumentation.instrumentClasses();
+      instrumentation.writeMetadata(metadataFile);
+
+      System.out.println(
+         "JMockit: " + instrumentation.instrumentedClasses.size() + " classes instrumented into " + args[1] +
+         "; run tests with -Dcoverage-metadata=" + metadataFile.getPath());
+   }
+
+   @Nonnull
+   private static String getDefaultMetadataFilePath() {
+      String outputDir = Configuration.getOrChooseOutputDirectory(Configuration.getProperty("outputDir", ""));
+      return outputDir == null ? DEFAULT_METADATA_FILE : outputDir + File.separatorChar + DEFAULT_METADATA_FILE;
+   }
+
+   OfflineInstrumentation(@Nonnull File input, @Nonnull File output) {
+      this.input = input;
+      this.output = output;
+      classSelection = new ClassSelection();
+      files = new TreeMap<>();
+      modifiedClassfiles = new ConcurrentHashMap<>();
+      instrumentedClasses = ConcurrentHashMap.newKeySet();
+   }
+
+   void instrumentClasses() throws IOException {
+      if (input.isDirectory()) {
+         readFilesFromDirectory();
+      }
+      else {
+         readFilesFromJar();
+      }
+
+      try (URLClassLoader innerClassLoader = new URLClassLoader(new URL[] {input.toURI().toURL()}, null)) {
+         ForkJoinTask.invokeAll(createTaskForEachPackage(innerClassLoader));
+      }
+
+      if (input.isDirectory()) {
+         writeFilesToDirectory();
+      }
+      else {
+         writeFilesToJar();
+      }
+   }
+
+   private void readFilesFromDirectory() throws IOException {
+      final Path inputDir = input.toPath();
+
+      Files.walkFileTree(inputDir, new SimpleFileVisitor<Path>() {
+         @Override
+         public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+            String relativePath = inputDir.relativize(file).toString().replace(File.separatorChar, '/');
+            files.put(relativePath, Files.readAllBytes(file));
+            return FileVisitResult.CONTINUE;
+         }
+      });
+   }
+
+   private void readFilesFromJar() throws IOException {
+      try (JarFile jarFile = new JarFile(input)) {
+         for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements(); ) {
+            JarEntry entry = entries.nextElement();
+
+            if (!entry.isDirectory()) {
+               try (InputStream entryContents = jarFile.getInputStream(entry)) {
+                  files.put(entry.getName(), entryContents.readAllBytes());
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Groups the selected classes by package, since all classes from the same source file are in the same package.
+    * This way, the coverage data for a source file is only ever built by a single thread.
+    * Inside a package, outer classes come before their nested classes, so that the nested ones modified along with the outer class are
+    * reused.
+    */
+   @Nonnull
+   private Collection<PackageInstrumentation> createTaskForEachPackage(@Nonnull ClassLoader innerClassLoader) {
+      Map<String, PackageInstrumentation> packageTasks = new LinkedHashMap<>();
+
+      for (String filePath : files.keySet()) {
+         if (filePath.endsWith(".class") && !filePath.startsWith("META-INF/")) {
+            String internalClassName = filePath.substring(0, filePath.length() - 6);
+            String className = internalClassName.replace('/', '.');
+
+            if (classSelection.isSelectedForOfflineInstrumentation(className)) {
+               String packagePath = filePath.substring(0, filePath.lastIndexOf('/') + 1);
+               PackageInstrumentation task = packageTasks.get(packagePath);
+
+               if (task == null) {
+                  task = new PackageInstrumentation(innerClassLoader);
+                  packageTasks.put(packagePath, task);
+               }
+
+               task.classNames.add(className);
+            }
+         }
+      }
+
+      for (PackageInstrumentation task : packageTasks.values()) {
+         Collections.sort(task.classNames);
+      }
+
+      return packageTasks.values();
+   }
+
+   private final class PackageInstrumentation extends RecursiveAction
+   {
+      private static final long serialVersionUID = 1L;
+
+      @Nonnull private final ClassLoader innerClassLoader;
+      @Nonnull final List<String> classNames;
+
+      PackageInstrumentation(@Nonnull ClassLoader innerClassLoader) {
+         this.innerClassLoader = innerClassLoader;
+         classNames = new ArrayList<>();
+      }
+
+      @Override
+      protected void compute() {
+         for (String className : classNames) {
+            String filePath = className.replace('.', '/') + ".class";
+            byte[] originalClassfile = files.get(filePath);
+
+            try {
+               byte[] modifiedClassfile = ClassModification.modifyClassForCoverage(className, originalClassfile, innerClassLoader);
+               modifiedClassfiles.put(filePath, modifiedClassfile);
+               instrumentedClasses.add(className);
+            }
+            catch (VisitInterruptedException ignore) {
+               // The class is left unmodified, just like when loaded at runtime.
+            }
+            catch (RuntimeException | AssertionError e) { e.printStackTrace(); }
+         }
+      }
+   }
+
+   private void writeFilesToDirectory() throws IOException {
+      Path outputDir = output.toPath();
+
+      for (Entry<String, byte[]> pathAndContents : files.entrySet()) {
+         String filePath = pathAndContents.getKey();
+         Path outputFile = outputDir.resolve(filePath);
+         Files.createDirectories(outputFile.getParent());
+         Files.write(outputFile, getOutputContents(filePath, pathAndContents.getValue()));
+      }
+   }
+
+   @Nonnull
+   private byte[] getOutputContents(@Nonnull String filePath, @Nonnull byte[] originalContents) {
+      byte[] modifiedClassfile = modifiedClassfiles.get(filePath);
+      return modifiedClassfile == null ? originalContents : modifiedClassfile;
+   }
+
+   private void writeFilesToJar() throws IOException {
+      File outputDir = output.getAbsoluteFile().getParentFile();
+
+      if (outputDir != null) {
+         outputDir.mkdirs();
+      }
+
+      try (JarOutputStream jarOutput = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+         for (Entry<String, byte[]> pathAndContents : files.entrySet()) {
+            String filePath = pathAndContents.getKey();
+            jarOutput.putNextEntry(new JarEntry(filePath));
+            jarOutput.write(getOutputContents(filePath, pathAndContents.getValue()));
+            jarOutput.closeEntry();
+         }
+      }
+   }
+
+   private void writeMetadata(@Nonnull File metadataFile) throws IOException {
+      File metadataDir = metadataFile.getAbsoluteFile().getParentFile();
+
+      if (metadataDir != null) {
+         metadataDir.mkdirs();
+      }
+
+      try (ObjectOutputStream metadata = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(metadataFile)))) {
+         metadata.writeObject(CoverageData.instance());
+         metadata.writeObject(new ArrayList<>(instrumentedClasses));
+      }
+   }
+
+   /**
+    * Reads a metadata file written by a previous offline instrumentation, adding its coverage data to the current one and registering its
+    * classes as already instrumented.
+    */
+   public static void readMetadata(@Nonnull File metadataFile, @Nonnull ClassModification classModification) throws IOException {
+      try (ObjectInputStream metadata = new ObjectInputStream(new BufferedInputStream(new FileInputStream(metadataFile)))) {
+         CoverageData coverageData = (CoverageData) metadata.readObject();
+         @SuppressWarnings("unchecked") List<String> classNames = (List<String>) metadata.readObject();
+
+         CoverageData.instance().addFilesInstrumentedOffline(coverageData);
+         classModification.registerClassesInstrumentedOffline(classNames);
+      }
+      catch (ClassNotFoundException e) {
+         throw new RuntimeException("Serialized class in coverage metadata file \"" + metadataFile + "\" not found in classpath", e);
+      }
+   }
+}
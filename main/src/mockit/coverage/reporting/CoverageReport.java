@@ -7,6 +7,7 @@ package mockit.coverage.reporting;
 import java.io.*;
 import java.util.*;
 import java.util.Map.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 import mockit.coverage.*;
@@ -22,19 +23,27 @@ public final class CoverageReport
    @Nonnull private final Map<String, FileCoverageData> fileToFileData;
    @Nonnull private final Map<String, List<String>> packageToFiles;
    private final boolean withCallPoints;
-   @Nullable private final Collection<String> sourceFilesNotFound;
+   @Nullable private final List<String> sourceFilesNotFound;
+   @Nullable private final List<String> redundantTests;
+   @Nonnegative private final int reportThreads;
+   @Nonnull private final StaticFiles staticFiles;
+   @Nullable private ReportManifest manifest;
+   @Nullable private SourceFileIndex sourceFileIndex;
 
    public CoverageReport(
       @Nonnull String outputDir, boolean outputDirCreated, @Nullable String[] srcDirs, @Nonnull CoverageData coverageData,
-      boolean withCallPoints
+      boolean withCallPoints, @Nullable List<String> redundantTests
    ) {
       this.outputDir = Configuration.getOrChooseOutputDirectory(outputDir, "coverage-report");
       this.outputDirCreated = outputDirCreated;
       sourceDirs = srcDirs == null ? null : new SourceFiles().buildListOfSourceDirectories(srcDirs);
-      fileToFileData = coverageData.getFileToFileData();
+      fileToFileData = coverageData.getFileToFileDataInOrder();
       packageToFiles = new HashMap<>();
       this.withCallPoints = withCallPoints;
       sourceFilesNotFound = srcDirs == null ? null : new ArrayList<String>();
+      this.redundantTests = redundantTests;
+      reportThreads = Configuration.getIntProperty("reportThreads", Runtime.getRuntime().availableProcessors(), 1);
+      staticFiles = new StaticFiles(this.outputDir);
    }
 
    public void generate() throws IOException {
@@ -52,14 +61,33 @@ public final class CoverageReport
          System.out.println("JMockit: Coverage source dirs: " + sourceDirs);
       }
 
+      if (withSourceFilePages) {
+         sourceFileIndex = new SourceFileIndex(sourceDirs, fileToFileData.keySet(), getCacheFileForSourceFileIndex());
+         manifest = new ReportManifest(outputDir, withCallPoints, staticFiles.getLastModifiedTimeOfCoverageJar());
+      }
+
       generateFileCoverageReportsWhileBuildingPackageLists();
 
-      new StaticFiles(outputDir).copyToOutputDir(withSourceFilePages);
-      new IndexPage(outputFile, sourceDirs, sourceFilesNotFound, packageToFiles, fileToFileData).generate();
+      if (sourceFileIndex != null) {
+         sourceFileIndex.addRootSourceDirsFound();
+      }
+
+      if (manifest != null) {
+         manifest.save();
+      }
+
+      staticFiles.copyToOutputDir(withSourceFilePages);
+      new IndexPage(outputFile, sourceDirs, sourceFilesNotFound, packageToFiles, fileToFileData, redundantTests).generate();
 
       System.out.println("JMockit: Coverage report written to " + outputFile.getParentFile().getCanonicalPath());
    }
 
+   @Nullable
+   private File getCacheFileForSourceFileIndex() {
+      boolean cacheIndex = "true".equals(Configuration.getProperty("srcIndexCache"));
+      return cacheIndex ? new File(outputDir, "coverage-srcIndex.txt") : null;
+   }
+
    private void createReportOutputDirIfNotExists() {
       if (!outputDirCreated) {
          File outDir = new File(outputDir);
@@ -79,31 +107,116 @@ public final class CoverageReport
       return outputFile;
    }
 
+   /**
+    * Generates the per-file HTML pages on a bounded pool of threads, while the package lists are built in the current thread.
+    * Source files not found are collected in the order of the files, regardless of which tasks complete first.
+    */
    private void generateFileCoverageReportsWhileBuildingPackageLists() throws IOException {
-      Set<Entry<String, FileCoverageData>> files = fileToFileData.entrySet();
+      int threads = Math.max(1, Math.min(reportThreads, fileToFileData.size()));
+      ExecutorService executor = Executors.newFixedThreadPool(threads, new ReportThreadFactory());
+
+      try {
+         List<String> sourceFiles = new ArrayList<>(fileToFileData.size());
+         List<Future<Boolean>> fileReports = new ArrayList<>(fileToFileData.size());
+
+         for (Entry<String, FileCoverageData> fileAndFileData : fileToFileData.entrySet()) {
+            String sourceFile = fileAndFileData.getKey();
+            FileCoverageData fileData = fileAndFileData.getValue();
+            sourceFiles.add(sourceFile);
+            fileReports.add(executor.submit(new FileReportTask(sourceFile, fileData)));
+            addFileToPackageFileList(sourceFile);
+         }
 
-      for (Entry<String, FileCoverageData> fileAndFileData : files) {
-         generateFileCoverageReport(fileAndFileData.getKey(), fileAndFileData.getValue());
+         for (int i = 0, n = fileReports.size(); i < n; i++) {
+            boolean sourceFileFound = waitForCompletion(fileReports.get(i));
+
+            if (!sourceFileFound && sourceFilesNotFound != null) {
+               sourceFilesNotFound.add(sourceFiles.get(i));
+            }
+         }
+      }
+      finally {
+         executor.shutdownNow();
       }
    }
 
-   private void generateFileCoverageReport(@Nonnull String sourceFile, @Nonnull FileCoverageData fileData) throws IOException {
-      if (sourceDirs != null) {
-         InputFile inputFile = InputFile.createIfFileExists(sourceDirs, sourceFile);
+   private static boolean waitForCompletion(@Nonnull Future<Boolean> fileReport) throws IOException {
+      try {
+         return fileReport.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Coverage report generation was interrupted");
+      }
+      catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+
+         if (cause instanceof IOException) {
+            throw (IOException) cause;
+         }
 
-         if (inputFile != null) {
-            new FileCoverageReport(outputDir, inputFile, fileData, withCallPoints).generate();
+         if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
          }
-         else {
-            deleteOutdatedHTMLFileIfExists(sourceFile);
 
-            if (sourceFilesNotFound != null) {
-               sourceFilesNotFound.add(sourceFile);
-            }
+         throw (Error) cause;
+      }
+   }
+
+   private static final class ReportThreadFactory implements ThreadFactory {
+      @Override
+      public Thread newThread(@Nonnull Runnable task) {
+         Thread thread = new Thread(task, "JMockit coverage report");
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+
+   private final class FileReportTask implements Callable<Boolean> {
+      @Nonnull private final String sourceFile;
+      @Nonnull private final FileCoverageData fileData;
+
+      FileReportTask(@Nonnull String sourceFile, @Nonnull FileCoverageData fileData) {
+         this.sourceFile = sourceFile;
+         this.fileData = fileData;
+      }
+
+      @Override
+      public Boolean call() throws IOException { return generateFileCoverageReport(sourceFile, fileData); }
+   }
+
+   /**
+    * @return <tt>false</tt> if the source file was not found, <tt>true</tt> otherwise
+    */
+   private boolean generateFileCoverageReport(@Nonnull String sourceFile, @Nonnull FileCoverageData fileData) throws IOException {
+      SourceFileIndex sourceFiles = sourceFileIndex;
+
+      if (sourceFiles != null) {
+         InputFile inputFile = InputFile.createIfFileExists(sourceFiles, sourceFile);
+
+         if (inputFile == null) {
+            deleteOutdatedHTMLFileIfExists(sourceFile);
+            return false;
          }
+
+         generateFileCoverageReportIfChanged(sourceFile, inputFile, fileData);
       }
 
-      addFileToPackageFileList(sourceFile);
+      return true;
+   }
+
+   private void generateFileCoverageReportIfChanged(
+      @Nonnull String sourceFile, @Nonnull InputFile inputFile, @Nonnull FileCoverageData fileData
+   ) throws IOException {
+      File outputFile = OutputFile.getOutputFile(outputDir, sourceFile);
+      ReportManifest reportManifest = manifest;
+
+      if (reportManifest != null && reportManifest.isUnchanged(sourceFile, inputFile.getSourceFile(), fileData, outputFile)) {
+         inputFile.close();
+      }
+      else {
+         new FileCoverageReport(outputDir, inputFile, fileData, withCallPoints).generate();
+      }
    }
 
    private void addFileToPackageFileList(@Nonnull String file) {
@@ -12,17 +12,20 @@ public final class OutputFile extends PrintWriter
 {
    private static final Pattern PATH_SEPARATOR = Pattern.compile("/");
 
+   @Nonnull private final Utf8FileWriter writer;
    @Nonnull private final String relPathToOutDir;
    private final boolean sourceFile;
 
    public OutputFile(@Nonnull File file) throws IOException {
-      super(file, "UTF-8");
+      super(new Utf8FileWriter(file));
+      writer = (Utf8FileWriter) out;
       relPathToOutDir = "";
       sourceFile = false;
    }
 
    public OutputFile(@Nonnull String outputDir, @Nonnull String sourceFilePath) throws IOException {
-      super(getOutputFileCreatingDirIfNeeded(outputDir, sourceFilePath));
+      super(new Utf8FileWriter(getOutputFileCreatingDirIfNeeded(outputDir, sourceFilePath)));
+      writer = (Utf8FileWriter) out;
       relPathToOutDir = getRelativeSubPathToOutputDir(sourceFilePath);
       sourceFile = true;
    }
@@ -33,7 +36,8 @@ public final class OutputFile extends PrintWriter
       File parentDir = outputFile.getParentFile();
 
       if (!parentDir.exists()) {
-         boolean outputDirCreated = parentDir.mkdirs();
+         // Another report thread may be creating the same dir concurrently.
+         boolean outputDirCreated = parentDir.mkdirs() || parentDir.isDirectory();
          assert outputDirCreated : "Failed to create output dir: " + outputDir;
       }
 
@@ -60,6 +64,11 @@ public final class OutputFile extends PrintWriter
       return cssRelPath.toString();
    }
 
+   @Override
+   public void print(int i) {
+      try { writer.writeInt(i); } catch (IOException ignore) { setError(); }
+   }
+
    public void writeCommonHeader(@Nonnull String pageTitle) {
       println("<!DOCTYPE html>");
       println("<html>");
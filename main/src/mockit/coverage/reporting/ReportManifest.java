@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.reporting;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.annotation.*;
+
+import mockit.coverage.*;
+import mockit.coverage.data.*;
+import mockit.coverage.dataItems.*;
+import mockit.coverage.lines.*;
+
+/**
+ * Keeps track of the content hashes (source file plus coverage data) from which each per-file HTML page in the report was generated, so
+ * that pages for unchanged source files don't have to be generated again.
+ * The hashes are persisted to a "<tt>coverage-manifest.properties</tt>" file in the report output dir.
+ */
+final class ReportManifest
+{
+   private static final String FILE_NAME = "coverage-manifest.properties";
+   private static final String SIGNATURE_KEY = "#report";
+
+   @Nonnull private final File manifestFile;
+   @Nonnull private final String reportSignature;
+   @Nonnull private final Properties previousHashes;
+   @Nonnull private final Map<String, String> currentHashes;
+
+   ReportManifest(@Nonnull String outputDir, boolean withCallPoints, long lastModifiedTimeOfCoverageJar) throws IOException {
+      manifestFile = new File(outputDir, FILE_NAME);
+      reportSignature = (withCallPoints ? "html-cp:" : "html:") + lastModifiedTimeOfCoverageJar;
+      previousHashes = new Properties();
+      currentHashes = new ConcurrentHashMap<>();
+      readPreviousHashesIfAvailable();
+   }
+
+   private void readPreviousHashesIfAvailable() throws IOException {
+      if (manifestFile.exists()) {
+         try (InputStream input = new BufferedInputStream(new FileInputStream(manifestFile))) {
+            previousHashes.load(input);
+         }
+
+         // A different report format or JMockit version invalidates all previous pages.
+         if (!reportSignature.equals(previousHashes.getProperty(SIGNATURE_KEY))) {
+            previousHashes.clear();
+         }
+      }
+   }
+
+   /**
+    * Records the current hash for a source file, and checks whether it's the same one from which the existing HTML page was generated.
+    */
+   boolean isUnchanged(
+      @Nonnull String sourceFilePath, @Nonnull File sourceFile, @Nonnull FileCoverageData fileData, @Nonnull File outputFile
+   ) throws IOException {
+      String currentHash = computeHash(sourceFile, fileData);
+      currentHashes.put(sourceFilePath, currentHash);
+      return currentHash.equals(previousHashes.getProperty(sourceFilePath)) && outputFile.exists();
+   }
+
+   /**
+    * Hashes the source file together with the coverage counters and flags shown in its HTML page, in a fixed order.
+    */
+   @Nonnull
+   private static String computeHash(@Nonnull File sourceFile, @Nonnull FileCoverageData fileData) throws IOException {
+      MessageDigest digest = createDigest();
+      digest.update(Files.readAllBytes(sourceFile.toPath()));
+
+      try (DataOutputStream output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+         output.writeUTF(String.valueOf(fileData.kindOfTopLevelType));
+         writeLineCoverage(output, fileData.lineCoverageInfo);
+         writeDataCoverage(output, fileData.dataCoverageInfo);
+      }
+
+      return Base64.getEncoder().encodeToString(digest.digest());
+   }
+
+   private static void writeLineCoverage(@Nonnull DataOutputStream output, @Nonnull PerFileLineCoverage lineCoverage) throws IOException {
+      int[] executionCounts = lineCoverage.copyExecutionCounts();
+      output.writeInt(lineCoverage.getLineCount());
+      output.writeInt(executionCounts.length);
+
+      for (int executionCount : executionCounts) {
+         output.writeInt(executionCount);
+      }
+
+      for (int line = 1, lineCount = lineCoverage.getLineCount(); line <= lineCount; line++) {
+         if (lineCoverage.hasLineData(line)) {
+            LineCoverageData lineData = lineCoverage.getLineData(line);
+            output.writeInt(line);
+            writeLineSegment(output, lineData);
+
+            for (BranchCoverageData branchData : lineData.getBranches()) {
+               writeLineSegment(output, branchData);
+            }
+         }
+      }
+   }
+
+   private static void writeLineSegment(@Nonnull DataOutputStream output, @Nonnull LineSegmentData segmentData) throws IOException {
+      output.writeBoolean(segmentData.isCovered());
+      output.writeBoolean(segmentData.isEmpty());
+
+      List<CallPoint> callPoints = segmentData.getCallPoints();
+      output.writeInt(callPoints == null ? 0 : callPoints.size());
+
+      if (callPoints != null) {
+         for (CallPoint callPoint : callPoints) {
+            StackTraceElement ste = callPoint.getStackTraceElement();
+            output.writeUTF(ste.getClassName());
+            output.writeUTF(ste.getMethodName());
+            output.writeInt(ste.getLineNumber());
+            output.writeInt(callPoint.getRepetitionCount());
+         }
+      }
+   }
+
+   private static void writeDataCoverage(@Nonnull DataOutputStream output, @Nonnull PerFileDataCoverage dataCoverage) throws IOException {
+      output.writeInt(dataCoverage.allFields.size());
+
+      for (String classAndFieldNames : dataCoverage.allFields) {
+         output.writeUTF(classAndFieldNames);
+         output.writeBoolean(dataCoverage.isCovered(classAndFieldNames));
+
+         FieldData fieldData = dataCoverage.getStaticFieldData(classAndFieldNames);
+
+         if (fieldData == null) {
+            fieldData = dataCoverage.getInstanceFieldData(classAndFieldNames);
+         }
+
+         output.writeInt(fieldData == null ? -1 : fieldData.getReadCount());
+         output.writeInt(fieldData == null ? -1 : fieldData.getWriteCount());
+      }
+   }
+
+   @Nonnull
+   private static MessageDigest createDigest() {
+      try { return MessageDigest.getInstance("SHA-1"); } catch (NoSuchAlgorithmException e) { throw new IllegalStateException(e); }
+   }
+
+   void save() throws IOException {
+      Properties hashes = new Properties();
+      hashes.putAll(currentHashes);
+      hashes.setProperty(SIGNATURE_KEY, reportSignature);
+
+      try (OutputStream output = new BufferedOutputStream(new FileOutputStream(manifestFile))) {
+         hashes.store(output, "JMockit coverage report manifest");
+      }
+   }
+}
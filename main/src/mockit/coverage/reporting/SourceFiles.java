@@ -5,6 +5,8 @@
 package mockit.coverage.reporting;
 
 import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
 import java.util.*;
 import javax.annotation.*;
 
@@ -40,30 +42,40 @@ final class SourceFiles
 
    private void buildListWithAllSrcSubDirectories() {
       String curDirName = new File(System.getProperty("user.dir")).getName();
-      addSrcSubDirs(new File("../" + curDirName));
-   }
+      final Path startDir = Paths.get("../" + curDirName);
 
-   private void addSrcSubDirs(@Nonnull File dir) {
-      File[] files = dir.listFiles();
-      if (files == null) return;
+      try {
+         Files.walkFileTree(startDir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+               if (dir.equals(startDir)) {
+                  return FileVisitResult.CONTINUE;
+               }
 
-      for (File subDir : files) {
-         if (subDir.isDirectory()) {
-            String subDirName = subDir.getName();
+               String subDirName = dir.getFileName().toString();
 
-            if ("src".equals(subDirName)) {
-               srcDirs.add(subDir);
-            }
-            else if (!isDirectoryToIgnore(subDirName)) {
-               addSrcSubDirs(subDir);
+               if ("src".equals(subDirName)) {
+                  srcDirs.add(dir.toFile());
+                  return FileVisitResult.SKIP_SUBTREE;
+               }
+
+               return isDirectoryToIgnore(subDirName) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
             }
-         }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) { return FileVisitResult.CONTINUE; }
+         });
       }
+      catch (IOException ignore) {}
    }
 
    private static final String IGNORED_DIRS = "bin build classes generated-sources out test tst web ";
 
    private static boolean isDirectoryToIgnore(@Nonnull String subDirName) {
+      if (subDirName.startsWith(".")) {
+         return true;
+      }
+
       int p = IGNORED_DIRS.indexOf(subDirName);
       return p >= 0 && IGNORED_DIRS.charAt(p + subDirName.length()) == ' ';
    }
@@ -54,7 +54,7 @@ final class StaticFiles
       }
    }
 
-   private long getLastModifiedTimeOfCoverageJar() {
+   long getLastModifiedTimeOfCoverageJar() {
       if (lastModifiedTimeOfCoverageJar == 0) {
          CodeSource codeSource = getClass().getProtectionDomain().getCodeSource();
 
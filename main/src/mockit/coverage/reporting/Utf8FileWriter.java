@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.reporting;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import javax.annotation.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * A writer for the HTML and XML output files, which encodes characters as UTF-8 straight into a large byte buffer that gets written to a
+ * <tt>FileChannel</tt> whenever full.
+ * Numbers can be written without first converting them to strings.
+ * <p/>
+ * Buffers are reused by later writers created in the same thread, so that generating a report with thousands of pages allocates only as
+ * many buffers as there are report threads.
+ */
+public final class Utf8FileWriter extends Writer
+{
+   private static final int BUFFER_SIZE = 64 * 1024;
+   private static final int MAX_BYTES_PER_CHAR = 4;
+   private static final int MAX_BYTES_PER_INT = 11;
+   @Nonnull private static final ThreadLocal<ByteBuffer> spareBuffer = new ThreadLocal<>();
+
+   @Nonnull private final FileChannel channel;
+   @Nullable private ByteBuffer buffer;
+   private char pendingHighSurrogate;
+
+   public Utf8FileWriter(@Nonnull File outputFile) throws IOException {
+      channel = FileChannel.open(outputFile.toPath(), WRITE, CREATE, TRUNCATE_EXISTING);
+      buffer = acquireBuffer();
+   }
+
+   @Nonnull
+   private static ByteBuffer acquireBuffer() {
+      ByteBuffer buffer = spareBuffer.get();
+
+      if (buffer == null) {
+         return ByteBuffer.allocateDirect(BUFFER_SIZE);
+      }
+
+      spareBuffer.remove();
+      return buffer;
+   }
+
+   @Nonnull
+   private ByteBuffer bufferWithSpaceFor(@Nonnegative int bytes) throws IOException {
+      ByteBuffer buf = buffer;
+
+      if (buf == null) {
+         throw new IOException("Writer already closed");
+      }
+
+      if (buf.remaining() < bytes) {
+         writeBufferToChannel(buf);
+      }
+
+      return buf;
+   }
+
+   private void writeBufferToChannel(@Nonnull ByteBuffer buf) throws IOException {
+      buf.flip();
+
+      while (buf.hasRemaining()) {
+         channel.write(buf);
+      }
+
+      buf.clear();
+   }
+
+   @Override
+   public void write(int c) throws IOException {
+      ByteBuffer buf = bufferWithSpaceFor(MAX_BYTES_PER_CHAR);
+      encode(buf, (char) c);
+   }
+
+   /**
+    * Encodes the characters in chunks which are sure to fit in the remaining space of the buffer, so that it's checked once per chunk
+    * rather than once per character.
+    */
+   @Override
+   public void write(@Nonnull char[] chars, int offset, int length) throws IOException {
+      int i = offset;
+      int end = offset + length;
+
+      while (i < end) {
+         ByteBuffer buf = bufferWithSpaceFor(MAX_BYTES_PER_CHAR);
+         int chunkEnd = Math.min(end, i + buf.remaining() / MAX_BYTES_PER_CHAR);
+
+         for (; i < chunkEnd; i++) {
+            encode(buf, chars[i]);
+         }
+      }
+   }
+
+   @Override
+   public void write(@Nonnull String str, int offset, int length) throws IOException {
+      int i = offset;
+      int end = offset + length;
+
+      while (i < end) {
+         ByteBuffer buf = bufferWithSpaceFor(MAX_BYTES_PER_CHAR);
+         int chunkEnd = Math.min(end, i + buf.remaining() / MAX_BYTES_PER_CHAR);
+
+         for (; i < chunkEnd; i++) {
+            encode(buf, str.charAt(i));
+         }
+      }
+   }
+
+   private void encode(@Nonnull ByteBuffer buf, char c) {
+      if (pendingHighSurrogate != 0) {
+         char highSurrogate = pendingHighSurrogate;
+         pendingHighSurrogate = 0;
+
+         if (Character.isLowSurrogate(c)) {
+            int codePoint = Character.toCodePoint(highSurrogate, c);
+            buf.put((byte) (0xF0 | codePoint >> 18));
+            buf.put((byte) (0x80 | codePoint >> 12 & 0x3F));
+            buf.put((byte) (0x80 | codePoint >> 6 & 0x3F));
+            buf.put((byte) (0x80 | codePoint & 0x3F));
+            return;
+         }
+
+         putReplacementForUnpairedSurrogate(buf);
+      }
+
+      if (c < 0x80) {
+         buf.put((byte) c);
+      }
+      else if (c < 0x800) {
+         buf.put((byte) (0xC0 | c >> 6));
+         buf.put((byte) (0x80 | c & 0x3F));
+      }
+      else if (Character.isHighSurrogate(c)) {
+         pendingHighSurrogate = c;
+      }
+      else if (Character.isLowSurrogate(c)) {
+         putReplacementForUnpairedSurrogate(buf);
+      }
+      else {
+         buf.put((byte) (0xE0 | c >> 12));
+         buf.put((byte) (0x80 | c >> 6 & 0x3F));
+         buf.put((byte) (0x80 | c & 0x3F));
+      }
+   }
+
+   // An unpaired surrogate gets replaced, just like the standard UTF-8 encoder does.
+   private static void putReplacementForUnpairedSurrogate(@Nonnull ByteBuffer buf) { buf.put((byte) '?'); }
+
+   /**
+    * Writes the decimal digits of the given number, without allocating a string for it.
+    */
+   public void writeInt(int value) throws IOException {
+      if (value == Integer.MIN_VALUE) {
+         write("-2147483648");
+         return;
+      }
+
+      ByteBuffer buf = bufferWithSpaceFor(1 + MAX_BYTES_PER_INT);
+
+      if (pendingHighSurrogate != 0) {
+         pendingHighSurrogate = 0;
+         putReplacementForUnpairedSurrogate(buf);
+      }
+
+      if (value < 0) {
+         buf.put((byte) '-');
+         value = -value;
+      }
+
+      int divisor = 1;
+
+      while (divisor <= value / 10) {
+         divisor *= 10;
+      }
+
+      do {
+         buf.put((byte) ('0' + value / divisor));
+         value %= divisor;
+         divisor /= 10;
+      } while (divisor > 0);
+   }
+
+   @Override
+   public void flush() throws IOException {
+      ByteBuffer buf = buffer;
+
+      if (buf != null) {
+         writeBufferToChannel(buf);
+      }
+   }
+
+   @Override
+   public void close() throws IOException {
+      ByteBuffer buf = buffer;
+
+      if (buf != null) {
+         try {
+            if (pendingHighSurrogate != 0) {
+               pendingHighSurrogate = 0;
+               putReplacementForUnpairedSurrogate(bufferWithSpaceFor(1));
+            }
+
+            writeBufferToChannel(buf);
+         }
+         finally {
+            buffer = null;
+            buf.clear();
+            spareBuffer.set(buf);
+            channel.close();
+         }
+      }
+   }
+}
@@ -5,14 +5,12 @@
 package mockit.coverage.reporting.packages;
 
 import java.io.*;
-import java.lang.reflect.*;
 import java.util.*;
 import javax.annotation.*;
 
 import mockit.coverage.*;
 import mockit.coverage.data.*;
 import mockit.coverage.reporting.*;
-import mockit.coverage.testRedundancy.*;
 
 public final class IndexPage extends ListWithFilesAndPercentages
 {
@@ -21,10 +19,12 @@ public final class IndexPage extends ListWithFilesAndPercentages
    @Nonnull private final Map<String, Integer> packageToPackagePercentages;
    @Nonnull private final PackageCoverageReport packageReport;
    @Nonnegative private final int totalFileCount;
+   @Nullable private final List<String> redundantTests;
 
    public IndexPage(
       @Nonnull File outputFile, @Nullable List<File> sourceDirs, @Nullable Collection<String> sourceFilesNotFound,
-      @Nonnull Map<String, List<String>> packageToFiles, @Nonnull Map<String, FileCoverageData> fileToFileData
+      @Nonnull Map<String, List<String>> packageToFiles, @Nonnull Map<String, FileCoverageData> fileToFileData,
+      @Nullable List<String> redundantTests
    ) throws IOException {
       super(new OutputFile(outputFile), "    ");
       this.sourceDirs = sourceDirs;
@@ -32,6 +32,7 @@ public final class IndexPage extends ListWithFilesAndPercentages
       packageToPackagePercentages = new HashMap<>();
       packageReport = new PackageCoverageReport(output, sourceFilesNotFound, fileToFileData, packageToFiles.values());
       totalFileCount = totalNumberOfSourceFilesWithCoverageData(fileToFileData.values());
+      this.redundantTests = redundantTests;
    }
 
    @Nonnegative
@@ -224,15 +225,7 @@ public final class IndexPage extends ListWithFilesAndPercentages
    }
 
    private void writeListOfRedundantTestsIfAny() {
-      TestCoverage testCoverage = TestCoverage.INSTANCE;
-
-      if (testCoverage == null) {
-         return;
-      }
-
-      List<Method> redundantTests = testCoverage.getRedundantTests();
-
-      if (!redundantTests.isEmpty()) {
+      if (redundantTests != null && !redundantTests.isEmpty()) {
          output.println("  <br>Redundant tests:");
          output.println(
             "  <ol title=\"Tests are regarded as redundant when they don't cover any additional line " +
@@ -241,9 +234,7 @@ public final class IndexPage extends ListWithFilesAndPercentages
             "Such a test can be removed without weakening the test suite, as long as another test " +
             "for the same scenario performs its assertions.\">");
 
-         for (Method testMethod : redundantTests) {
-            String testDescription = testMethod.getDeclaringClass().getSimpleName() + '.' + testMethod.getName();
-
+         for (String testDescription : redundantTests) {
             output.append("");
             output.write("    <li>");
             output.write(testDescription);
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.coverage.reporting.sourceFiles;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.annotation.*;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * An index of the source files available under a list of source dirs, built once by walking the dir trees in parallel, and then used for
+ * constant-time lookups of each source file with coverage data.
+ * Only files named like one of the covered source files are indexed.
+ * <p/>
+ * When a cache file is given, the index is saved to it and reused by later runs; it gets rebuilt if a lookup fails, since new source
+ * files may have been added.
+ */
+public final class SourceFileIndex
+{
+   /**
+    * The source files found for each file name, together with whether they were found in the source dirs or only read from the cache file,
+    * so that both are published at once to the threads doing lookups.
+    */
+   private static final class Index
+   {
+      @Nonnull final Map<String, List<File>> fileNameToSourceFiles;
+      final boolean builtFromDirs;
+
+      Index(@Nonnull Map<String, List<File>> fileNameToSourceFiles, boolean builtFromDirs) {
+         this.fileNameToSourceFiles = fileNameToSourceFiles;
+         this.builtFromDirs = builtFromDirs;
+      }
+   }
+
+   @Nonnull private final List<File> sourceDirs;
+   @Nonnull private final Set<String> fileNames;
+   @Nullable private final File cacheFile;
+   @Nonnull private final String cacheHeader;
+   @Nonnull private final Set<File> rootDirsFound;
+   @Nonnull private volatile Index index;
+
+   public SourceFileIndex(
+      @Nonnull List<File> sourceDirs, @Nonnull Collection<String> filePaths, @Nullable File cacheFile
+   ) throws IOException {
+      this.sourceDirs = sourceDirs;
+      fileNames = new HashSet<>(filePaths.size());
+
+      for (String filePath : filePaths) {
+         fileNames.add(getFileName(filePath));
+      }
+
+      this.cacheFile = cacheFile;
+      cacheHeader = sourceDirs.toString();
+      rootDirsFound = new LinkedHashSet<>();
+
+      Map<String, List<File>> cachedIndex = readCachedIndexIfAvailable();
+      index = cachedIndex == null ? buildIndex() : new Index(cachedIndex, false);
+   }
+
+   @Nonnull
+   private static String getFileName(@Nonnull String filePath) { return filePath.substring(filePath.lastIndexOf('/') + 1); }
+
+   @Nullable
+   private Map<String, List<File>> readCachedIndexIfAvailable() throws IOException {
+      if (cacheFile == null || !cacheFile.exists()) {
+         return null;
+      }
+
+      try (BufferedReader input = Files.newBufferedReader(cacheFile.toPath(), UTF_8)) {
+         if (!cacheHeader.equals(input.readLine())) {
+            return null;
+         }
+
+         Map<String, List<File>> index = new HashMap<>();
+         String fileNameAndPath;
+
+         while ((fileNameAndPath = input.readLine()) != null) {
+            int p = fileNameAndPath.indexOf('\t');
+            addToIndex(index, fileNameAndPath.substring(0, p), new File(fileNameAndPath.substring(p + 1)));
+         }
+
+         return index;
+      }
+   }
+
+   private static void addToIndex(@Nonnull Map<String, List<File>> index, @Nonnull String fileName, @Nonnull File sourceFile) {
+      List<File> sourceFiles = index.get(fileName);
+
+      if (sourceFiles == null) {
+         sourceFiles = new ArrayList<>(1);
+         index.put(fileName, sourceFiles);
+      }
+
+      sourceFiles.add(sourceFile);
+   }
+
+   @Nonnull
+   private Index buildIndex() throws IOException {
+      List<DirectoryWalk> walks = new ArrayList<>(sourceDirs.size());
+
+      for (File sourceDir : sourceDirs) {
+         walks.add(new DirectoryWalk(sourceDir.toPath(), fileNames));
+      }
+
+      ForkJoinTask.invokeAll(walks);
+      Map<String, List<File>> fileNameToSourceFiles = new HashMap<>();
+
+      // Source dirs are merged in their configured order, so that earlier ones take precedence.
+      for (DirectoryWalk walk : walks) {
+         for (File sourceFile : walk.join()) {
+            addToIndex(fileNameToSourceFiles, sourceFile.getName(), sourceFile);
+         }
+      }
+
+      saveIndexIfCacheFileGiven(fileNameToSourceFiles);
+      return new Index(fileNameToSourceFiles, true);
+   }
+
+   private void saveIndexIfCacheFileGiven(@Nonnull Map<String, List<File>> index) throws IOException {
+      if (cacheFile != null) {
+         try (Writer output = Files.newBufferedWriter(cacheFile.toPath(), UTF_8)) {
+            output.write(cacheHeader);
+            output.write('\n');
+
+            for (List<File> sourceFiles : index.values()) {
+               for (File sourceFile : sourceFiles) {
+                  output.write(sourceFile.getName());
+                  output.write('\t');
+                  output.write(sourceFile.getPath());
+                  output.write('\n');
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Walks a directory tree collecting the files with one of the given names, forking a separate walk for each subdirectory.
+    */
+   private static final class DirectoryWalk extends RecursiveTask<List<File>>
+   {
+      private static final long serialVersionUID = 1L;
+
+      @Nonnull private final Path dir;
+      @Nonnull private final Set<String> fileNames;
+
+      DirectoryWalk(@Nonnull Path dir, @Nonnull Set<String> fileNames) {
+         this.dir = dir;
+         this.fileNames = fileNames;
+      }
+
+      @Override
+      protected List<File> compute() {
+         final List<File> filesFound = new ArrayList<>();
+         final List<DirectoryWalk> subDirWalks = new ArrayList<>();
+
+         try {
+            Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<Path>() {
+               @Override
+               public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                  if (attributes.isDirectory()) {
+                     // Only source dirs themselves are followed when symbolic links, to avoid cycles.
+                     if (!file.getFileName().toString().startsWith(".") && !Files.isSymbolicLink(file)) {
+                        DirectoryWalk subDirWalk = new DirectoryWalk(file, fileNames);
+                        subDirWalk.fork();
+                        subDirWalks.add(subDirWalk);
+                     }
+                  }
+                  else if (fileNames.contains(file.getFileName().toString())) {
+                     filesFound.add(file.toFile());
+                  }
+
+                  return FileVisitResult.CONTINUE;
+               }
+
+               @Override
+               public FileVisitResult visitFileFailed(Path file, IOException e) { return FileVisitResult.CONTINUE; }
+            });
+         }
+         catch (IOException ignore) {}
+
+         for (DirectoryWalk subDirWalk : subDirWalks) {
+            filesFound.addAll(subDirWalk.join());
+         }
+
+         return filesFound;
+      }
+   }
+
+   /**
+    * Finds the source file for the given path relative to some source root dir.
+    * If the index came from the cache file and doesn't contain the source file, it's rebuilt from the source dirs and searched again.
+    */
+   @Nullable
+   public File findSourceFile(@Nonnull String filePath) throws IOException {
+      File sourceFile = lookUp(index, filePath);
+
+      if (sourceFile == null) {
+         Index rebuiltIndex;
+
+         synchronized (this) {
+            rebuiltIndex = index;
+
+            if (!rebuiltIndex.builtFromDirs) {
+               rebuiltIndex = buildIndex();
+               index = rebuiltIndex;
+            }
+         }
+
+         sourceFile = lookUp(rebuiltIndex, filePath);
+      }
+
+      if (sourceFile != null) {
+         addRootSourceDir(filePath, sourceFile);
+      }
+
+      return sourceFile;
+   }
+
+   @Nullable
+   private static File lookUp(@Nonnull Index index, @Nonnull String filePath) {
+      List<File> candidates = index.fileNameToSourceFiles.get(getFileName(filePath));
+
+      if (candidates != null) {
+         String filePathWithSeparators = File.separatorChar + filePath.replace('/', File.separatorChar);
+
+         for (File candidate : candidates) {
+            String candidatePath = File.separatorChar + candidate.getPath();
+
+            if (candidatePath.endsWith(filePathWithSeparators) && (index.builtFromDirs || candidate.exists())) {
+               return candidate;
+            }
+         }
+      }
+
+      return null;
+   }
+
+   private void addRootSourceDir(@Nonnull String filePath, @Nonnull File sourceFile) {
+      String sourceFilePath = sourceFile.getPath();
+      String sourceRootDir = sourceFilePath.substring(0, sourceFilePath.length() - filePath.length());
+
+      synchronized (rootDirsFound) {
+         rootDirsFound.add(new File(sourceRootDir));
+      }
+   }
+
+   /**
+    * Adds the root dirs of the source files found so far to the list of source dirs, ahead of the initial ones.
+    */
+   public void addRootSourceDirsFound() {
+      synchronized (rootDirsFound) {
+         for (File rootDir : rootDirsFound) {
+            if (!sourceDirs.contains(rootDir)) {
+               sourceDirs.add(0, rootDir);
+            }
+         }
+      }
+   }
+}
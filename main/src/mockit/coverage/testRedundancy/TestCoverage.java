@@ -11,6 +11,14 @@ import javax.annotation.*;
 
 import mockit.coverage.*;
 
+/**
+ * Records how many new line segments each test covers, so that tests covering nothing new can be reported as redundant.
+ * <p/>
+ * The current test method is kept per thread, and inherited by threads which the test starts, so tests running in parallel each get
+ * credit for the items covered by their own threads.
+ * Once the test finishes, threads it started which are still alive (such as pooled ones) fall back to the last test method started, as
+ * do threads with no test at all.
+ */
 public final class TestCoverage
 {
    @Nullable public static final TestCoverage INSTANCE;
@@ -19,36 +27,73 @@ public final class TestCoverage
       INSTANCE = "true".equals(Configuration.getProperty("redundancy")) ? new TestCoverage() : null;
    }
 
+   private static final class RunningTest
+   {
+      @Nonnull final Method testMethod;
+      @Nonnull final Thread testThread;
+      volatile boolean finished;
+
+      RunningTest(@Nonnull Method testMethod) {
+         this.testMethod = testMethod;
+         testThread = Thread.currentThread();
+      }
+   }
+
    @Nonnull private final Map<Method, Integer> testsToItemsCovered = new LinkedHashMap<>();
-   @Nullable private Method currentTestMethod;
+   @Nonnull private final ThreadLocal<RunningTest> runningTest = new InheritableThreadLocal<>();
+   @Nullable private volatile Method lastTestMethodStarted;
 
-   private TestCoverage() {}
+   TestCoverage() {}
 
    public void setCurrentTestMethod(@Nullable Method testMethod) {
+      RunningTest previousTest = runningTest.get();
+
+      if (previousTest != null && previousTest.testThread == Thread.currentThread()) {
+         previousTest.finished = true;
+      }
+
       if (testMethod != null) {
-         testsToItemsCovered.put(testMethod, 0);
+         synchronized (this) {
+            testsToItemsCovered.put(testMethod, 0);
+         }
+
+         runningTest.set(new RunningTest(testMethod));
+      }
+      else {
+         runningTest.remove();
       }
 
-      currentTestMethod = testMethod;
+      lastTestMethodStarted = testMethod;
    }
 
-   public void recordNewItemCoveredByTestIfApplicable(@Nonnegative int previousExecutionCount) {
+   @Nullable
+   private Method getCurrentTestMethod() {
+      RunningTest test = runningTest.get();
+      return test == null || test.finished ? lastTestMethodStarted : test.testMethod;
+   }
+
+   public synchronized void recordNewItemCoveredByTestIfApplicable(@Nonnegative int previousExecutionCount) {
+      Method currentTestMethod = getCurrentTestMethod();
+
       if (previousExecutionCount == 0 && currentTestMethod != null) {
          Integer itemsCoveredByTest = testsToItemsCovered.get(currentTestMethod);
          testsToItemsCovered.put(currentTestMethod, itemsCoveredByTest == null ? 1 : itemsCoveredByTest + 1);
       }
    }
 
+   /**
+    * Gets the redundant tests in the order they were executed, each described as "<tt>TestClassSimpleName.testMethodName</tt>".
+    */
    @Nonnull
-   public List<Method> getRedundantTests() {
-      List<Method> redundantTests = new ArrayList<>();
+   public synchronized List<String> getRedundantTests() {
+      List<String> redundantTests = new ArrayList<>();
 
       for (Entry<Method, Integer> testAndItemsCovered : testsToItemsCovered.entrySet()) {
          Method testMethod = testAndItemsCovered.getKey();
          Integer itemsCovered = testAndItemsCovered.getValue();
 
          if (itemsCovered == 0) {
-            redundantTests.add(testMethod);
+            redundantTests.add(testMethod.getDeclaringClass().getSimpleName() + '.' + testMethod.getName());
          }
       }
 
@@ -11,6 +11,7 @@ import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.*;
 
 import mockit.*;
+import mockit.coverage.testRedundancy.*;
 import mockit.integration.*;
 import mockit.internal.expectations.*;
 import mockit.internal.state.*;
@@ -88,6 +89,7 @@ public final class JMockitExtension extends TestRunnerDecorator implements
          return;
       }
 
+      exportCurrentTestMethodIfApplicable(testMethod);
       TestRun.enterNoMockingZone();
 
       try {
@@ -103,6 +105,14 @@ public final class JMockitExtension extends TestRunnerDecorator implements
       TestRun.setRunningIndividualTest(testInstance);
    }
 
+   private static void exportCurrentTestMethodIfApplicable(@Nullable Method testMethod) {
+      TestCoverage testCoverage = TestCoverage.INSTANCE;
+
+      if (testCoverage != null) {
+         testCoverage.setCurrentTestMethod(testMethod);
+      }
+   }
+
    @Override
    public boolean supportsParameter(@Nonnull ParameterContext parameterContext, @Nonnull ExtensionContext extensionContext) {
       return
@@ -126,6 +136,8 @@ public final class JMockitExtension extends TestRunnerDecorator implements
 
    @Override
    public void afterTestExecution(@Nonnull ExtensionContext context) {
+      exportCurrentTestMethodIfApplicable(null);
+
       if (savePointForTestMethod != null) {
          TestRun.enterNoMockingZone();
 
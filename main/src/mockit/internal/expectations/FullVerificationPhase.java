@@ -26,6 +26,7 @@ final class FullVerificationPhase extends UnorderedVerificationPhase
       }
 
       List<Expectation> expectationsInReplayOrder = replayPhase.invocations;
+      Map<Expectation, List<VerifiedExpectation>> verificationsByExpectation = groupVerifiedExpectationsByExpectation();
       List<Expectation> notVerified = new ArrayList<>();
 
       for (int i = 0, n = expectationsInReplayOrder.size(); i < n; i++) {
@@ -33,8 +34,9 @@ final class FullVerificationPhase extends UnorderedVerificationPhase
 
          if (replayExpectation != null && isEligibleForFullVerification(replayExpectation)) {
             Object[] replayArgs = replayPhase.invocationArguments.get(i);
+            List<VerifiedExpectation> verifications = verificationsByExpectation.get(replayExpectation);
 
-            if (!wasVerified(replayExpectation, replayArgs, i)) {
+            if (!wasVerified(replayExpectation, replayArgs, i, verifications)) {
                notVerified.add(replayExpectation);
             }
          }
@@ -52,16 +54,40 @@ final class FullVerificationPhase extends UnorderedVerificationPhase
       return null;
    }
 
+   /**
+    * Groups the verified expectations by the replayed expectation they matched, so that each replayed invocation is only checked against
+    * its own verifications, in the order they were made.
+    */
+   @Nonnull
+   private Map<Expectation, List<VerifiedExpectation>> groupVerifiedExpectationsByExpectation() {
+      Map<Expectation, List<VerifiedExpectation>> verificationsByExpectation = new IdentityHashMap<>();
+
+      for (VerifiedExpectation verified : executionState.verifiedExpectations) {
+         List<VerifiedExpectation> verifications = verificationsByExpectation.get(verified.expectation);
+
+         if (verifications == null) {
+            verifications = new ArrayList<>(2);
+            verificationsByExpectation.put(verified.expectation, verifications);
+         }
+
+         verifications.add(verified);
+      }
+
+      return verificationsByExpectation;
+   }
+
    private static boolean isEligibleForFullVerification(@Nonnull Expectation replayExpectation) {
       return !replayExpectation.executedRealImplementation && replayExpectation.constraints.minInvocations <= 0;
    }
 
-   private boolean wasVerified(@Nonnull Expectation replayExpectation, @Nonnull Object[] replayArgs, @Nonnegative int expectationIndex) {
+   private boolean wasVerified(
+      @Nonnull Expectation replayExpectation, @Nonnull Object[] replayArgs, @Nonnegative int expectationIndex,
+      @Nullable List<VerifiedExpectation> verifications
+   ) {
       InvocationArguments invokedArgs = replayExpectation.invocation.arguments;
-      List<VerifiedExpectation> verifiedExpectations = executionState.verifiedExpectations;
 
-      for (VerifiedExpectation verified : verifiedExpectations) {
-         if (verified.expectation == replayExpectation) {
+      if (verifications != null) {
+         for (VerifiedExpectation verified : verifications) {
             Object[] storedArgs = invokedArgs.prepareForVerification(verified.arguments, verified.argMatchers);
             boolean argumentsMatch = invokedArgs.isMatch(replayArgs, getInstanceMap());
             invokedArgs.setValuesWithNoMatchers(storedArgs);
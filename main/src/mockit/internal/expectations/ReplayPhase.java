@@ -16,12 +16,22 @@ final class ReplayPhase extends Phase
    @Nonnull final List<Object> invocationInstances;
    @Nonnull final List<Object[]> invocationArguments;
 
+   // Index of the replayed invocations, built on demand for verifications: positions in the lists above, grouped by method name and
+   // parameters, plus those which may also match a generic method with other parameter types.
+   @Nonnull private final Map<String, List<Integer>> invocationPositionsByMethod;
+   @Nonnull private final Map<Expectation, List<Integer>> invocationPositionsByExpectation;
+   @Nonnull private final List<Integer> invocationPositionsForGenericMethods;
+   @Nonnegative private int invocationsIndexed;
+
    ReplayPhase(@Nonnull PhasedExecutionState executionState, @Nonnull FailureState failureState) {
       super(executionState);
       this.failureState = failureState;
       invocations = new ArrayList<>();
       invocationInstances = new ArrayList<>();
       invocationArguments = new ArrayList<>();
+      invocationPositionsByMethod = new HashMap<>();
+      invocationPositionsByExpectation = new IdentityHashMap<>();
+      invocationPositionsForGenericMethods = new ArrayList<>();
    }
 
    @Override @Nullable
@@ -90,6 +100,85 @@ final class ReplayPhase extends Phase
       return expectation.produceResult(mock, args);
    }
 
+   /**
+    * Gets the positions in the replay log of the invocations which can possibly match a verified invocation of the given method, in
+    * ascending order.
+    * Replayed invocations only match when they have the same method name and parameters (the return type may differ), unless they are to
+    * a generic method, so the remaining invocations don't need to be considered.
+    */
+   @Nonnull
+   List<Integer> getInvocationPositionsToVerify(@Nonnull String mockNameAndDesc) {
+      indexNewInvocations();
+
+      List<Integer> positionsForMethod = invocationPositionsByMethod.get(getMethodNameAndParameters(mockNameAndDesc));
+
+      if (positionsForMethod == null) {
+         positionsForMethod = Collections.emptyList();
+      }
+
+      if (invocationPositionsForGenericMethods.isEmpty()) {
+         return positionsForMethod;
+      }
+
+      return mergePositions(positionsForMethod, invocationPositionsForGenericMethods);
+   }
+
+   private void indexNewInvocations() {
+      for (int n = invocations.size(); invocationsIndexed < n; invocationsIndexed++) {
+         Expectation expectation = invocations.get(invocationsIndexed);
+
+         if (expectation != null) {
+            getInvocationPositions(expectation).add(invocationsIndexed);
+         }
+      }
+   }
+
+   @Nonnull
+   private List<Integer> getInvocationPositions(@Nonnull Expectation expectation) {
+      List<Integer> positions = invocationPositionsByExpectation.get(expectation);
+
+      if (positions == null) {
+         ExpectedInvocation invocation = expectation.invocation;
+
+         if (invocation.mayMatchOtherParameterTypes()) {
+            positions = invocationPositionsForGenericMethods;
+         }
+         else {
+            String methodNameAndParameters = getMethodNameAndParameters(invocation.getMethodNameAndDescription());
+            positions = invocationPositionsByMethod.get(methodNameAndParameters);
+
+            if (positions == null) {
+               positions = new ArrayList<>();
+               invocationPositionsByMethod.put(methodNameAndParameters, positions);
+            }
+         }
+
+         invocationPositionsByExpectation.put(expectation, positions);
+      }
+
+      return positions;
+   }
+
+   @Nonnull
+   private static String getMethodNameAndParameters(@Nonnull String methodNameAndDesc) {
+      return methodNameAndDesc.substring(0, methodNameAndDesc.indexOf(')') + 1);
+   }
+
+   @Nonnull
+   private static List<Integer> mergePositions(@Nonnull List<Integer> positions1, @Nonnull List<Integer> positions2) {
+      List<Integer> merged = new ArrayList<>(positions1.size() + positions2.size());
+      int i = 0;
+      int j = 0;
+
+      while (i < positions1.size() && j < positions2.size()) {
+         merged.add(positions1.get(i) < positions2.get(j) ? positions1.get(i++) : positions2.get(j++));
+      }
+
+      merged.addAll(positions1.subList(i, positions1.size()));
+      merged.addAll(positions2.subList(j, positions2.size()));
+      return merged;
+   }
+
    @Nullable
    Error endExecution() {
       Error missingInvocation = getErrorForFirstExpectationThatIsMissing();
@@ -27,12 +27,18 @@ class UnorderedVerificationPhase extends BaseVerificationPhase
       }
 
       replayIndex = -1;
-      List<Expectation> expectationsInReplayOrder = replayPhase.invocations;
+      List<Integer> replayPositions = replayPhase.getInvocationPositionsToVerify(mockNameAndDesc);
       Expectation verification = currentVerification;
-      List<ExpectedInvocation> matchingInvocationsWithDifferentArgs = new ArrayList<>();
+      List<ExpectedInvocation> matchingInvocationsWithDifferentArgs = null;
+
+      for (Integer replayPosition : replayPositions) {
+         int i = replayPosition;
+         Expectation replayExpectation = replayPhase.invocations.get(i);
+
+         if (replayExpectation == null) {
+            continue;
+         }
 
-      for (int i = 0, n = expectationsInReplayOrder.size(); i < n; i++) {
-         Expectation replayExpectation = expectationsInReplayOrder.get(i);
          Object replayInstance = replayPhase.invocationInstances.get(i);
          Object[] replayArgs = replayPhase.invocationArguments.get(i);
 
@@ -45,7 +51,12 @@ class UnorderedVerificationPhase extends BaseVerificationPhase
 
             currentExpectation = replayExpectation;
          }
-         else if (matchingInvocationWithDifferentArgs != null) {
+         else if (matchingInvocationWithDifferentArgs != null && currentExpectation == null) {
+            // Only needed to describe a missing invocation, so not collected once a matching one is found.
+            if (matchingInvocationsWithDifferentArgs == null) {
+               matchingInvocationsWithDifferentArgs = new ArrayList<>();
+            }
+
             matchingInvocationsWithDifferentArgs.add(matchingInvocationWithDifferentArgs);
          }
       }
@@ -54,7 +65,8 @@ class UnorderedVerificationPhase extends BaseVerificationPhase
          pendingError = verifyConstraints(verification);
       }
 
-      return matchingInvocationsWithDifferentArgs;
+      return matchingInvocationsWithDifferentArgs == null ?
+         Collections.<ExpectedInvocation>emptyList() : matchingInvocationsWithDifferentArgs;
    }
 
    @Nullable
@@ -4,7 +4,6 @@
  */
 package mockit.internal.expectations.argumentMatching;
 
-import java.lang.reflect.*;
 import javax.annotation.*;
 
 import mockit.*;
@@ -13,7 +12,7 @@ import mockit.internal.reflection.*;
 public final class ReflectiveMatcher implements ArgumentMatcher<ReflectiveMatcher>
 {
    @Nonnull private final Delegate<?> delegate;
-   @Nullable private Method handlerMethod;
+   @Nullable private HandlerMethodInvoker handlerMethod;
    @Nullable private Object matchedValue;
 
    public ReflectiveMatcher(@Nonnull Delegate<?> delegate) { this.delegate = delegate; }
@@ -23,12 +22,15 @@ public final class ReflectiveMatcher implements ArgumentMatcher<ReflectiveMatche
 
    @Override
    public boolean matches(@Nullable Object argValue) {
-      if (handlerMethod == null) {
-         handlerMethod = MethodReflection.findNonPrivateHandlerMethod(delegate);
+      HandlerMethodInvoker handler = handlerMethod;
+
+      if (handler == null) {
+         handler = new HandlerMethodInvoker(delegate, MethodReflection.findNonPrivateHandlerMethod(delegate));
+         handlerMethod = handler;
       }
 
       matchedValue = argValue;
-      Boolean result = MethodReflection.invoke(delegate, handlerMethod, argValue);
+      Boolean result = handler.invokeWithSingleArgument(argValue);
 
       return result == null || result;
    }
@@ -36,7 +38,7 @@ public final class ReflectiveMatcher implements ArgumentMatcher<ReflectiveMatche
    @Override
    public void writeMismatchPhrase(@Nonnull ArgumentMismatch argumentMismatch) {
       if (handlerMethod != null) {
-         argumentMismatch.append(handlerMethod.getName()).append('(');
+         argumentMismatch.append(handlerMethod.getHandlerMethod().getName()).append('(');
          argumentMismatch.appendFormatted(matchedValue);
          argumentMismatch.append(") (should return true, was false)");
       }
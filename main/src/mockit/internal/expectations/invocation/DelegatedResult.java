@@ -21,16 +21,16 @@ final class DelegatedResult extends InvocationResult
    private static final Object[] NO_ARGS = {};
 
    @Nonnull private final ExpectedInvocation recordedInvocation;
-   @Nonnull private final Object targetObject;
    @Nonnull private final Method methodToInvoke;
+   @Nonnull private final HandlerMethodInvoker methodInvoker;
    @Nonnull private final Class<?> targetReturnType;
    private final boolean hasInvocationParameter;
    private final int numberOfRegularParameters;
 
    DelegatedResult(@Nonnull ExpectedInvocation recordedInvocation, @Nonnull Delegate<?> delegate) {
       this.recordedInvocation = recordedInvocation;
-      targetObject = delegate;
       methodToInvoke = findNonPrivateHandlerMethod(delegate);
+      methodInvoker = new HandlerMethodInvoker(delegate, methodToInvoke);
 
       JavaType returnType = JavaType.getReturnType(recordedInvocation.getMethodNameAndDescription());
       targetReturnType = TypeDescriptor.getClassForType(returnType);
@@ -86,7 +86,7 @@ final class DelegatedResult extends InvocationResult
 
    @Nullable
    private Object executeTargetMethod(@Nonnull Object[] args) {
-      Object returnValue = invoke(targetObject, methodToInvoke, args);
+      Object returnValue = methodInvoker.invoke(args);
       Class<?> fromReturnType = methodToInvoke.getReturnType();
 
       if (returnValue == null || targetReturnType.isInstance(returnValue)) {
@@ -97,6 +97,12 @@ public final class ExpectedInvocation
 
    // Matching based on instance or mocked type ///////////////////////////////////////////////////////////////////////////////////////////
 
+   /**
+    * Whether this invocation can match invocations to methods with other parameter types, which happens for a generic method invoked
+    * on an instance.
+    */
+   public boolean mayMatchOtherParameterTypes() { return instance != null && arguments.genericSignature != null; }
+
    public boolean isMatch(@Nullable Object mock, @Nonnull String invokedClassDesc, @Nonnull String invokedMethod) {
       return
          (invokedClassDesc.equals(getClassDesc()) || mock != null && TestRun.mockFixture().isCaptured(mock)) &&
@@ -26,25 +26,12 @@ class BaseTypeRedefinition
 {
    private static final ClassDefinition[] CLASS_DEFINITIONS = new ClassDefinition[0];
 
-   private static final class MockedClass {
-      @Nullable final InstanceFactory instanceFactory;
-      @Nonnull final ClassDefinition[] mockedClassDefinitions;
-
-      MockedClass(@Nullable InstanceFactory instanceFactory, @Nonnull ClassDefinition[] classDefinitions) {
-         this.instanceFactory = instanceFactory;
-         mockedClassDefinitions = classDefinitions;
-      }
-
-      void redefineClasses() {
-         TestRun.mockFixture().redefineClasses(mockedClassDefinitions);
-      }
-   }
-
-   @Nonnull private static final Map<Integer, MockedClass> mockedClasses = new HashMap<>();
+   @Nonnull private static final MockedClassCache mockedClasses = new MockedClassCache();
    @Nonnull private static final Map<Type, Class<?>> mockImplementations = new HashMap<>();
 
    Class<?> targetClass;
    @Nullable MockedType typeMetadata;
+   @Nullable private ClassRedefinitionBatch redefinitionBatch;
    @Nullable private InstanceFactory instanceFactory;
    @Nullable private List<ClassDefinition> mockedClassDefinitions;
 
@@ -55,13 +42,24 @@ class BaseTypeRedefinition
       this.typeMetadata = typeMetadata;
    }
 
+   BaseTypeRedefinition(@Nonnull MockedType typeMetadata, @Nonnull ClassRedefinitionBatch redefinitionBatch) {
+      this(typeMetadata);
+      this.redefinitionBatch = redefinitionBatch;
+   }
+
    @Nullable
    final InstanceFactory redefineType(@Nonnull Type typeToMock) {
       if (targetClass == TypeVariable.class || targetClass.isInterface()) {
          createMockedInterfaceImplementationAndInstanceFactory(typeToMock);
       }
       else {
-         TestRun.ensureThatClassIsInitialized(targetClass);
+         if (redefinitionBatch == null) {
+            TestRun.ensureThatClassIsInitialized(targetClass);
+         }
+         else {
+            redefinitionBatch.ensureThatClassIsInitialized(targetClass);
+         }
+
          redefineTargetClassAndCreateInstanceFactory(typeToMock);
       }
 
@@ -212,7 +210,7 @@ class BaseTypeRedefinition
 
    void applyClassRedefinition(@Nonnull Class<?> realClass, @Nonnull byte[] modifiedClass) {
       ClassDefinition classDefinition = new ClassDefinition(realClass, modifiedClass);
-      TestRun.mockFixture().redefineClasses(classDefinition);
+      redefineClasses(classDefinition);
 
       if (mockedClassDefinitions != null) {
          mockedClassDefinitions.add(classDefinition);
@@ -236,9 +234,9 @@ class BaseTypeRedefinition
    }
 
    private void redefineTargetClassAndCreateInstanceFactory(@Nonnull Type typeToMock) {
-      Integer mockedClassId = redefineClassesFromCache();
+      MockedClassCache.Key mockedClassKey = redefineClassesFromCache(typeToMock);
 
-      if (mockedClassId == null) {
+      if (mockedClassKey == null) {
          return;
       }
 
@@ -246,7 +244,7 @@ class BaseTypeRedefinition
       instanceFactory = createInstanceFactory(typeToMock);
 
       if (redefined) {
-         storeRedefinedClassesInCache(mockedClassId);
+         storeRedefinedClassesInCache(mockedClassKey);
       }
    }
 
@@ -262,27 +260,37 @@ class BaseTypeRedefinition
    }
 
    @Nullable
-   private Integer redefineClassesFromCache() {
+   private MockedClassCache.Key redefineClassesFromCache(@Nonnull Type typeToMock) {
       //noinspection ConstantConditions
-      Integer mockedClassId = typeMetadata.hashCode();
-      MockedClass mockedClass = mockedClasses.get(mockedClassId);
+      MockedClassCache.Key mockedClassKey = new MockedClassCache.Key(targetClass, typeToMock, typeMetadata, isCascading());
+      List<ClassDefinition> classDefinitions = new ArrayList<>();
+      Class<?> classToInstantiate = mockedClasses.get(targetClass.getClassLoader(), mockedClassKey, classDefinitions);
 
-      if (mockedClass != null) {
-         mockedClass.redefineClasses();
-         instanceFactory = mockedClass.instanceFactory;
+      if (classToInstantiate != null) {
+         redefineClasses(classDefinitions.toArray(CLASS_DEFINITIONS));
+         instanceFactory = new ClassInstanceFactory(classToInstantiate);
          return null;
       }
 
-      mockedClassDefinitions = new ArrayList<>();
-      return mockedClassId;
+      mockedClassDefinitions = classDefinitions;
+      return mockedClassKey;
    }
 
-   private void storeRedefinedClassesInCache(@Nonnull Integer mockedClassId) {
-      assert mockedClassDefinitions != null;
-      ClassDefinition[] classDefs = mockedClassDefinitions.toArray(CLASS_DEFINITIONS);
-      MockedClass mockedClass = new MockedClass(instanceFactory, classDefs);
+   boolean isCascading() { return false; }
 
-      mockedClasses.put(mockedClassId, mockedClass);
+   private void redefineClasses(@Nonnull ClassDefinition... classDefinitions) {
+      if (redefinitionBatch == null) {
+         TestRun.mockFixture().redefineClasses(classDefinitions);
+      }
+      else {
+         redefinitionBatch.addAll(classDefinitions);
+      }
+   }
+
+   private void storeRedefinedClassesInCache(@Nonnull MockedClassCache.Key mockedClassKey) {
+      assert mockedClassDefinitions != null && instanceFactory != null;
+      ClassDefinition[] classDefs = mockedClassDefinitions.toArray(CLASS_DEFINITIONS);
+      mockedClasses.put(targetClass.getClassLoader(), mockedClassKey, instanceFactory.getConcreteClass(), classDefs);
    }
 
    @Nonnull
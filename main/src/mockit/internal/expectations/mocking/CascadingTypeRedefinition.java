@@ -16,6 +16,9 @@ public final class CascadingTypeRedefinition extends BaseTypeRedefinition
       this.mockedType = mockedType;
    }
 
+   @Override
+   boolean isCascading() { return true; }
+
    @Nullable
    public InstanceFactory redefineType() {
       return redefineType(mockedType);
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations.mocking;
+
+import java.lang.instrument.*;
+import java.util.*;
+import javax.annotation.*;
+
+import mockit.internal.state.*;
+
+/**
+ * Accumulates the modified classfiles generated for all mock fields or mock parameters of a test, so that they get applied with a single
+ * call to <tt>Instrumentation#redefineClasses</tt>, rather than one call (and one JVM safepoint) per class.
+ * <p/>
+ * A class modified more than once (for example, a common base class of two mocked types) is redefined with its last modification only,
+ * which is what a sequence of separate redefinitions would have produced.
+ * <p/>
+ * Pending redefinitions are applied early when a mocked class is about to be initialized, since its static initializer may depend on
+ * classes mocked before. To avoid that for the same classes in every test, the classes already initialized for mocking are remembered.
+ */
+final class ClassRedefinitionBatch
+{
+   private static final ClassDefinition[] NO_CLASS_DEFINITIONS = new ClassDefinition[0];
+   @Nonnull private static final Set<Class<?>> initializedClasses = Collections.newSetFromMap(new WeakHashMap<Class<?>, Boolean>());
+
+   @Nonnull private final Map<Class<?>, ClassDefinition> classDefinitions;
+
+   ClassRedefinitionBatch() { classDefinitions = new LinkedHashMap<>(); }
+
+   void add(@Nonnull ClassDefinition classDefinition) {
+      Class<?> classToRedefine = classDefinition.getDefinitionClass();
+      classDefinitions.remove(classToRedefine);
+      classDefinitions.put(classToRedefine, classDefinition);
+   }
+
+   void addAll(@Nonnull ClassDefinition[] definitions) {
+      for (ClassDefinition classDefinition : definitions) {
+         add(classDefinition);
+      }
+   }
+
+   /**
+    * Makes sure the given class is initialized, first applying the pending redefinitions unless the class was already initialized through
+    * this method before.
+    */
+   void ensureThatClassIsInitialized(@Nonnull Class<?> classToInitialize) {
+      boolean initializedBefore;
+
+      synchronized (initializedClasses) {
+         initializedBefore = initializedClasses.contains(classToInitialize);
+      }
+
+      if (!initializedBefore) {
+         apply();
+      }
+
+      TestRun.ensureThatClassIsInitialized(classToInitialize);
+
+      if (!initializedBefore) {
+         synchronized (initializedClasses) {
+            initializedClasses.add(classToInitialize);
+         }
+      }
+   }
+
+   void apply() {
+      if (!classDefinitions.isEmpty()) {
+         ClassDefinition[] definitions = classDefinitions.values().toArray(NO_CLASS_DEFINITIONS);
+         classDefinitions.clear();
+         TestRun.mockFixture().redefineClasses(definitions);
+      }
+   }
+}
@@ -13,7 +13,9 @@ final class FieldTypeRedefinition extends TypeRedefinition
 {
    private boolean usePartialMocking;
 
-   FieldTypeRedefinition(@Nonnull MockedType typeMetadata) { super(typeMetadata); }
+   FieldTypeRedefinition(@Nonnull MockedType typeMetadata, @Nonnull ClassRedefinitionBatch redefinitionBatch) {
+      super(typeMetadata, redefinitionBatch);
+   }
 
    boolean redefineTypeForTestedField() {
       usePartialMocking = true;
@@ -31,6 +31,7 @@ public final class FieldTypeRedefinitions extends TypeRedefinitions
 
       try {
          redefineFieldTypes(testClass);
+         redefinitionBatch.apply();
       }
       finally {
          TestRun.exitNoMockingZone();
@@ -71,7 +72,7 @@ public final class FieldTypeRedefinitions extends TypeRedefinitions
    }
 
    private void redefineFieldType(@Nonnull MockedType mockedType, boolean partialMocking, boolean needsValueToSet) {
-      FieldTypeRedefinition typeRedefinition = new FieldTypeRedefinition(mockedType);
+      FieldTypeRedefinition typeRedefinition = new FieldTypeRedefinition(mockedType, redefinitionBatch);
       boolean redefined;
 
       if (needsValueToSet) {
@@ -102,6 +103,9 @@ public final class FieldTypeRedefinitions extends TypeRedefinitions
 
    private void registerCaptureOfNewInstances(@Nonnull MockedType mockedType) {
       if (mockedType.withInstancesToCapture()) {
+         // Classes already redefined are not modified again for capturing, so pending redefinitions must be applied first.
+         redefinitionBatch.apply();
+
          if (captureOfNewInstances == null) {
             captureOfNewInstances = new CaptureOfNewInstances();
          }
@@ -30,6 +30,8 @@ public abstract class InstanceFactory
 
    InstanceFactory(@Nonnull Class<?> concreteClass) { this.concreteClass = concreteClass; }
 
+   @Nonnull final Class<?> getConcreteClass() { return concreteClass; }
+
    @Nonnull
    final <T> T newUninitializedConcreteClassInstance() {
       try {
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.expectations.mocking;
+
+import java.lang.instrument.*;
+import java.lang.ref.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.Map.Entry;
+import javax.annotation.*;
+
+/**
+ * A cache of the class definitions previously generated for mocked classes, so that the same mocked type in a later test gets its
+ * classes redefined without running the bytecode modification again.
+ * <p/>
+ * Entries are grouped by the class loader of the mocked class and held only weakly, so that cached classes don't prevent their class
+ * loaders from being garbage collected.
+ * Each group is bounded, discarding the least recently used entries first.
+ */
+final class MockedClassCache
+{
+   private static final int MAX_ENTRIES_PER_CLASS_LOADER = 500;
+
+   /**
+    * Identifies a cached mocked class by everything which affects the generated bytecode: the class itself, the declared type (whose
+    * type arguments are used when generating a concrete subclass), and the mocking options.
+    * Partially mocked types are never cached, as they are redefined through other means.
+    */
+   static final class Key {
+      @Nonnull private final String mockedClassName;
+      @Nonnull private final String declaredTypeName;
+      private final boolean injectable;
+      private final boolean finalFieldOrParameter;
+      private final boolean cascading;
+
+      Key(@Nonnull Class<?> mockedClass, @Nonnull Type declaredType, @Nonnull MockedType typeMetadata, boolean cascading) {
+         mockedClassName = mockedClass.getName();
+         declaredTypeName = declaredType.getTypeName();
+         injectable = typeMetadata.injectable;
+         finalFieldOrParameter = typeMetadata.isFinalFieldOrParameter();
+         this.cascading = cascading;
+      }
+
+      @Override
+      public boolean equals(@Nullable Object other) {
+         if (this == other) return true;
+         if (!(other instanceof Key)) return false;
+
+         Key otherKey = (Key) other;
+         return
+            injectable == otherKey.injectable && finalFieldOrParameter == otherKey.finalFieldOrParameter &&
+            cascading == otherKey.cascading &&
+            mockedClassName.equals(otherKey.mockedClassName) && declaredTypeName.equals(otherKey.declaredTypeName);
+      }
+
+      @Override
+      public int hashCode() {
+         int result = 31 * mockedClassName.hashCode() + declaredTypeName.hashCode();
+         result = 31 * result + (injectable ? 1 : 0);
+         result = 31 * result + (finalFieldOrParameter ? 1 : 0);
+         return 31 * result + (cascading ? 1 : 0);
+      }
+   }
+
+   /**
+    * A cache entry which refers to the redefined classes only weakly, together with the corresponding modified classfiles.
+    */
+   private static final class MockedClass {
+      @Nonnull private final WeakReference<Class<?>> classToInstantiate;
+      @Nonnull private final List<WeakReference<Class<?>>> redefinedClasses;
+      @Nonnull private final byte[][] modifiedClassfiles;
+
+      MockedClass(@Nonnull Class<?> classToInstantiate, @Nonnull ClassDefinition[] classDefinitions) {
+         this.classToInstantiate = new WeakReference<Class<?>>(classToInstantiate);
+         int n = classDefinitions.length;
+         redefinedClasses = new ArrayList<>(n);
+         modifiedClassfiles = new byte[n][];
+
+         for (int i = 0; i < n; i++) {
+            ClassDefinition classDefinition = classDefinitions[i];
+            redefinedClasses.add(new WeakReference<Class<?>>(classDefinition.getDefinitionClass()));
+            modifiedClassfiles[i] = classDefinition.getDefinitionClassFile();
+         }
+      }
+
+      @Nullable
+      ClassDefinition[] getClassDefinitions() {
+         int n = modifiedClassfiles.length;
+         ClassDefinition[] classDefinitions = new ClassDefinition[n];
+
+         for (int i = 0; i < n; i++) {
+            Class<?> redefinedClass = redefinedClasses.get(i).get();
+
+            if (redefinedClass == null) {
+               return null;
+            }
+
+            classDefinitions[i] = new ClassDefinition(redefinedClass, modifiedClassfiles[i]);
+         }
+
+         return classDefinitions;
+      }
+   }
+
+   @Nonnull private final Map<ClassLoader, Map<Key, MockedClass>> classLoadersAndMockedClasses;
+
+   MockedClassCache() { classLoadersAndMockedClasses = new WeakHashMap<>(2); }
+
+   /**
+    * Returns the cached class to be instantiated for the given key, after adding the cached class definitions for it to the given list,
+    * or <tt>null</tt> if there is no cached entry (or if it refers to classes no longer loaded).
+    */
+   @Nullable
+   synchronized Class<?> get(@Nullable ClassLoader loader, @Nonnull Key key, @Nonnull List<ClassDefinition> classDefinitions) {
+      Map<Key, MockedClass> mockedClasses = classLoadersAndMockedClasses.get(loader);
+      MockedClass mockedClass = mockedClasses == null ? null : mockedClasses.get(key);
+
+      if (mockedClass != null) {
+         Class<?> classToInstantiate = mockedClass.classToInstantiate.get();
+         ClassDefinition[] cachedClassDefinitions = mockedClass.getClassDefinitions();
+
+         if (classToInstantiate != null && cachedClassDefinitions != null) {
+            Collections.addAll(classDefinitions, cachedClassDefinitions);
+            return classToInstantiate;
+         }
+
+         mockedClasses.remove(key);
+      }
+
+      return null;
+   }
+
+   synchronized void put(
+      @Nullable ClassLoader loader, @Nonnull Key key, @Nonnull Class<?> classToInstantiate, @Nonnull ClassDefinition[] classDefinitions
+   ) {
+      Map<Key, MockedClass> mockedClasses = classLoadersAndMockedClasses.get(loader);
+
+      if (mockedClasses == null) {
+         mockedClasses = new LinkedHashMap<Key, MockedClass>(16, 0.75F, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<Key, MockedClass> eldest) { return size() > MAX_ENTRIES_PER_CLASS_LOADER; }
+         };
+         classLoadersAndMockedClasses.put(loader, mockedClasses);
+      }
+
+      mockedClasses.put(key, new MockedClass(classToInstantiate, classDefinitions));
+   }
+}
@@ -29,6 +29,7 @@ public final class ParameterTypeRedefinitions extends TypeRedefinitions
       }
 
       InstanceFactory[] instanceFactories = redefineMockedTypes();
+      redefinitionBatch.apply();
       instantiateMockedTypes(instanceFactories);
    }
 
@@ -66,7 +67,7 @@ public final class ParameterTypeRedefinitions extends TypeRedefinitions
 
    @Nullable
    private InstanceFactory redefineMockedType(@Nonnull MockedType mockedType) {
-      TypeRedefinition typeRedefinition = new TypeRedefinition(mockedType);
+      TypeRedefinition typeRedefinition = new TypeRedefinition(mockedType, redefinitionBatch);
       InstanceFactory instanceFactory = typeRedefinition.redefineType();
 
       if (instanceFactory != null) {
@@ -11,7 +11,9 @@ import mockit.internal.expectations.*;
 
 class TypeRedefinition extends BaseTypeRedefinition
 {
-   TypeRedefinition(@Nonnull MockedType typeMetadata) { super(typeMetadata); }
+   TypeRedefinition(@Nonnull MockedType typeMetadata, @Nonnull ClassRedefinitionBatch redefinitionBatch) {
+      super(typeMetadata, redefinitionBatch);
+   }
 
    @Nullable
    final InstanceFactory redefineType() {
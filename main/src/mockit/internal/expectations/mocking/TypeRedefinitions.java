@@ -13,9 +13,13 @@ import mockit.internal.state.*;
 public class TypeRedefinitions
 {
    @Nonnull private final List<Class<?>> targetClasses;
+   @Nonnull final ClassRedefinitionBatch redefinitionBatch;
    @Nullable protected CaptureOfNewInstances captureOfNewInstances;
 
-   TypeRedefinitions() { targetClasses = new ArrayList<>(2); }
+   TypeRedefinitions() {
+      targetClasses = new ArrayList<>(2);
+      redefinitionBatch = new ClassRedefinitionBatch();
+   }
 
    final void addTargetClass(@Nonnull MockedType mockedType) {
       Class<?> targetClass = mockedType.getClassType();
@@ -25,6 +25,13 @@ public final class MockedTypeCascade
    @Nonnull private static final CascadingTypes CASCADING_TYPES = TestRun.getExecutingTest().getCascadingTypes();
    private static final int PUBLIC_INTERFACE = PUBLIC + INTERFACE;
 
+   /**
+    * Placeholder value for memoized return types which are not supported for cascading, since a concurrent map can't hold nulls.
+    */
+   @Nonnull private static final String NOT_CASCADED = "?";
+
+   @Nonnull private static final Map<String, String> cascadedReturnTypes = new ConcurrentHashMap<>();
+
    final boolean fromMockField;
    @Nonnull private final Type mockedType;
    @Nonnull final String mockedTypeDesc;
@@ -32,6 +39,7 @@ public final class MockedTypeCascade
    @Nullable private GenericTypeReflection genericReflection;
    @Nonnull private final Map<String, Type> cascadedTypesAndMocks;
    @Nonnull private final List<Object> cascadingInstances;
+   @Nonnull private final Map<String, Map<String, String>> resolvedGenericReturnTypes;
 
    MockedTypeCascade(boolean fromMockField, @Nonnull Type mockedType, @Nonnull String mockedTypeDesc) {
       this.fromMockField = fromMockField;
@@ -39,6 +47,7 @@ public final class MockedTypeCascade
       this.mockedTypeDesc = mockedTypeDesc;
       cascadedTypesAndMocks = new ConcurrentHashMap<>(4);
       cascadingInstances = synchronizedList(new ArrayList<>());
+      resolvedGenericReturnTypes = new ConcurrentHashMap<>(4);
    }
 
    @Nullable
@@ -98,8 +107,37 @@ public final class MockedTypeCascade
       return cascade.getCascadedInstance(mockedMethodNameAndDesc, resolvedReturnTypeDesc, mockInstance);
    }
 
+   /**
+    * Returns the resolved return type for a generic method, memoized per owner type and generic signature, since resolving the signature
+    * would otherwise be repeated on every call to the cascading method.
+    * Both are constants in the calling code, so they are used as separate map keys rather than concatenated on each call.
+    */
    @Nullable
    private String getGenericReturnType(@Nonnull String ownerTypeDesc, @Nonnull String genericSignature) {
+      Map<String, String> returnTypesForOwner = resolvedGenericReturnTypes.get(ownerTypeDesc);
+
+      if (returnTypesForOwner == null) {
+         returnTypesForOwner = new ConcurrentHashMap<>(4);
+         Map<String, String> previousReturnTypes = resolvedGenericReturnTypes.putIfAbsent(ownerTypeDesc, returnTypesForOwner);
+
+         if (previousReturnTypes != null) {
+            returnTypesForOwner = previousReturnTypes;
+         }
+      }
+
+      String returnType = returnTypesForOwner.get(genericSignature);
+
+      if (returnType == null) {
+         returnType = resolveGenericReturnType(ownerTypeDesc, genericSignature);
+         returnTypesForOwner.put(genericSignature, returnType == null ? NOT_CASCADED : returnType);
+      }
+
+      //noinspection StringEquality
+      return returnType == NOT_CASCADED ? null : returnType;
+   }
+
+   @Nullable
+   private String resolveGenericReturnType(@Nonnull String ownerTypeDesc, @Nonnull String genericSignature) {
       String resolvedSignature = getGenericReflection().resolveSignature(ownerTypeDesc, genericSignature);
       String returnTypeDesc = resolvedSignature.substring(resolvedSignature.indexOf(')') + 1);
 
@@ -146,8 +184,20 @@ public final class MockedTypeCascade
 
    @Nullable
    private static String getReturnTypeIfCascadingSupportedForIt(@Nonnull String typeDesc) {
-      String typeName = typeDesc.substring(1, typeDesc.length() - 1);
-      return isTypeSupportedForCascading(typeName) ? typeName : null;
+      String typeName = cascadedReturnTypes.get(typeDesc);
+
+      if (typeName == null) {
+         typeName = typeDesc.substring(1, typeDesc.length() - 1);
+
+         if (!isTypeSupportedForCascading(typeName)) {
+            typeName = NOT_CASCADED;
+         }
+
+         cascadedReturnTypes.put(typeDesc, typeName);
+      }
+
+      //noinspection StringEquality
+      return typeName == NOT_CASCADED ? null : typeName;
    }
 
    @Nullable
@@ -4,28 +4,78 @@
  */
 package mockit.internal.injection;
 
+import java.util.*;
+import java.util.concurrent.*;
 import javax.annotation.*;
 
 import mockit.internal.injection.InjectionPoint.*;
 import mockit.internal.injection.field.*;
 import mockit.internal.injection.full.*;
 
+/**
+ * Exports tested, injectable, and dependency objects as beans, looked up by name or by type.
+ * <p/>
+ * Beans found are cached, so that repeated lookups of the same bean don't go through injection again; the cache is cleared whenever
+ * injectables, tested objects, or dependencies change.
+ */
 public final class BeanExporter
 {
    @Nonnull private final InjectionState injectionState;
+   @Nonnull private final Map<String, Object> beansByName;
+   @Nonnull private final Map<Class<?>, Object> beansByType;
+   @Nonnull private final Map<Class<?>, TestedClass> testedClassesByBeanType;
+
+   BeanExporter(@Nonnull InjectionState injectionState) {
+      this.injectionState = injectionState;
+      beansByName = new ConcurrentHashMap<>();
+      beansByType = new ConcurrentHashMap<>();
+      testedClassesByBeanType = new ConcurrentHashMap<>();
+   }
 
-   BeanExporter(@Nonnull InjectionState injectionState) { this.injectionState = injectionState; }
+   void clearCachedBeans() {
+      if (!beansByName.isEmpty()) {
+         beansByName.clear();
+      }
+
+      if (!beansByType.isEmpty()) {
+         beansByType.clear();
+      }
+   }
 
    @Nullable
    public Object getBean(@Nonnull String name) {
-      InjectionPoint injectionPoint = new InjectionPoint(Object.class, name, true);
-      Object bean = injectionState.getInstantiatedDependency(null, injectionPoint);
+      Object bean = beansByName.get(name);
+
+      if (bean == null) {
+         InjectionPoint injectionPoint = new InjectionPoint(Object.class, name, true);
+         bean = injectionState.getInstantiatedDependency(null, injectionPoint);
+
+         if (bean != null) {
+            beansByName.put(name, bean);
+         }
+      }
+
       return bean;
    }
 
    @Nullable
    public <T> T getBean(@Nonnull Class<T> beanType) {
-      TestedClass testedClass = new TestedClass(beanType, beanType);
+      @SuppressWarnings("unchecked") T bean = (T) beansByType.get(beanType);
+
+      if (bean == null) {
+         bean = findBean(beanType);
+
+         if (bean != null) {
+            beansByType.put(beanType, bean);
+         }
+      }
+
+      return bean;
+   }
+
+   @Nullable
+   private <T> T findBean(@Nonnull Class<T> beanType) {
+      TestedClass testedClass = getTestedClass(beanType);
       String beanName = getBeanNameFromType(beanType);
 
       injectionState.injectionProviders.setTypeOfInjectionPoint(beanType, KindOfInjectionPoint.NotAnnotated);
@@ -44,6 +94,18 @@ public final class BeanExporter
       return bean;
    }
 
+   @Nonnull
+   private TestedClass getTestedClass(@Nonnull Class<?> beanType) {
+      TestedClass testedClass = testedClassesByBeanType.get(beanType);
+
+      if (testedClass == null) {
+         testedClass = new TestedClass(beanType, beanType);
+         testedClassesByBeanType.put(beanType, testedClass);
+      }
+
+      return testedClass;
+   }
+
    @Nonnull
    private static String getBeanNameFromType(@Nonnull Class<?> beanType) {
       String name = beanType.getSimpleName();
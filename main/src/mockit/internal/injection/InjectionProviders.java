@@ -16,38 +16,37 @@ import static mockit.internal.util.Utilities.getClassType;
 
 public final class InjectionProviders
 {
-   @Nonnull private List<InjectionProvider> injectables;
+   @Nonnull private final TypeIndex<InjectionProvider> injectables;
    @Nonnull private List<InjectionProvider> consumedInjectionProviders;
    private Type typeOfInjectionPoint;
    private KindOfInjectionPoint kindOfInjectionPoint;
 
    InjectionProviders(@Nonnull LifecycleMethods lifecycleMethods) {
-      injectables = Collections.emptyList();
+      injectables = new TypeIndex<>();
       consumedInjectionProviders = new ArrayList<>();
    }
 
    boolean setInjectables(@SuppressWarnings("ParameterHidesMemberVariable") @Nonnull List<? extends InjectionProvider> injectables) {
+      this.injectables.clear();
+
       if (injectables.isEmpty()) {
-         this.injectables = Collections.emptyList();
          return false;
       }
 
-      this.injectables = new ArrayList<>(injectables);
+      addToIndex(injectables);
       return true;
    }
 
-   @Nonnull
-   List<InjectionProvider> addInjectables(@Nonnull List<? extends InjectionProvider> injectablesToAdd) {
-      if (!injectablesToAdd.isEmpty()) {
-         if (injectables.isEmpty()) {
-            injectables = new ArrayList<>(injectablesToAdd);
-         }
-         else {
-            injectables.addAll(injectablesToAdd);
-         }
+   private void addToIndex(@Nonnull List<? extends InjectionProvider> injectablesToAdd) {
+      for (InjectionProvider injectable : injectablesToAdd) {
+         injectables.add(injectable, injectable.getDeclaredType());
       }
+   }
 
-      return injectables;
+   @Nonnull
+   List<InjectionProvider> addInjectables(@Nonnull List<? extends InjectionProvider> injectablesToAdd) {
+      addToIndex(injectablesToAdd);
+      return injectables.getAll();
    }
 
    public void setTypeOfInjectionPoint(@Nonnull Type typeOfInjectionPoint, @Nonnull KindOfInjectionPoint kindOfInjectionPoint) {
@@ -84,7 +83,7 @@ public final class InjectionProviders
 
    @Nullable
    public InjectionProvider findNextInjectableForInjectionPoint(@Nonnull TestedClass testedClass) {
-      for (InjectionProvider injectable : injectables) {
+      for (InjectionProvider injectable : getInjectablesPossiblyAssignableToInjectionPoint(false)) {
          if (hasTypeAssignableToInjectionPoint(injectable, testedClass) && !consumedInjectionProviders.contains(injectable)) {
             return injectable;
          }
@@ -127,12 +126,48 @@ public final class InjectionProviders
       return false;
    }
 
+   /**
+    * Gets the injectables which may be assignable to the current injection point, in the order they were added, by looking up the
+    * classes they must be assignable to in the index; when these can't be known from the type of the injection point alone, all
+    * injectables are returned.
+    */
+   @Nonnull
+   private List<InjectionProvider> getInjectablesPossiblyAssignableToInjectionPoint(boolean includingIterables) {
+      Class<?> classOfInjectionPoint = TypeIndex.getIndexableClass(typeOfInjectionPoint);
+
+      if (classOfInjectionPoint == null) {
+         return injectables.getAll();
+      }
+
+      if (
+         typeOfInjectionPoint instanceof ParameterizedType && (
+            kindOfInjectionPoint == KindOfInjectionPoint.Required && Iterable.class.isAssignableFrom(classOfInjectionPoint) ||
+            INJECT_CLASS != null && Provider.class.isAssignableFrom(classOfInjectionPoint)
+         )
+      ) {
+         Type providedType = ((ParameterizedType) typeOfInjectionPoint).getActualTypeArguments()[0];
+         Class<?> providedClass = getClassType(providedType);
+
+         if (providedClass.isArray()) {
+            return injectables.getAll();
+         }
+
+         if (includingIterables) {
+            return injectables.findElementsAssignableTo(classOfInjectionPoint, providedClass, Iterable.class);
+         }
+
+         return injectables.findElementsAssignableTo(classOfInjectionPoint, providedClass);
+      }
+
+      return injectables.findElementsAssignableTo(classOfInjectionPoint);
+   }
+
    @Nullable
    private InjectionProvider findInjectablesByTypeOnly(@Nonnull Type elementType, @Nonnull TestedClass testedClass) {
       GenericTypeReflection typeReflection = testedClass.reflection;
       MultiValuedProvider found = null;
 
-      for (InjectionProvider injectable : injectables) {
+      for (InjectionProvider injectable : getInjectablesPossiblyAssignableToInjectionPoint(true)) {
          Type injectableType = injectable.getDeclaredType();
          Type elementTypeOfIterable = getElementTypeIfIterable(injectableType);
 
@@ -156,7 +191,7 @@ public final class InjectionProviders
    private InjectionProvider findInjectableByTypeAndOptionallyName(@Nonnull String nameOfInjectionPoint, @Nonnull TestedClass testedClass) {
       InjectionProvider foundInjectable = null;
 
-      for (InjectionProvider injectable : injectables) {
+      for (InjectionProvider injectable : getInjectablesPossiblyAssignableToInjectionPoint(false)) {
          if (hasTypeAssignableToInjectionPoint(injectable, testedClass)) {
             if (nameOfInjectionPoint.equals(injectable.getName())) {
                return injectable;
@@ -173,7 +208,7 @@ public final class InjectionProviders
 
    @Nullable
    InjectionProvider findInjectableByTypeAndName(@Nonnull String nameOfInjectionPoint, @Nonnull TestedClass testedClass) {
-      for (InjectionProvider injectable : injectables) {
+      for (InjectionProvider injectable : getInjectablesPossiblyAssignableToInjectionPoint(false)) {
          if (hasTypeAssignableToInjectionPoint(injectable, testedClass) && nameOfInjectionPoint.equals(injectable.getName())) {
             return injectable;
          }
@@ -6,7 +6,6 @@ package mockit.internal.injection;
 
 import java.lang.reflect.*;
 import java.util.*;
-import java.util.Map.*;
 import java.util.concurrent.*;
 import javax.annotation.*;
 
@@ -21,7 +20,10 @@ public final class InjectionState
    @Nonnull private static final Map<InjectionPoint, Object> globalObjects = new ConcurrentHashMap<>(2);
 
    @Nonnull private final Map<InjectionPoint, Object> testedObjects;
+   @Nonnull private final TypeIndex<InjectionPoint> testedObjectKeys;
    @Nonnull private final Map<InjectionPoint, Object> instantiatedDependencies;
+   @Nonnull private final TypeIndex<InjectionPoint> instantiatedDependencyKeys;
+   @Nonnull private final Map<Class<?>, Map<InjectionPoint, Field>> injectionPointsForFieldsOfTestedClasses;
    @Nonnull public final InjectionProviders injectionProviders;
    @Nonnull public final LifecycleMethods lifecycleMethods;
    @Nonnull final InterfaceResolution interfaceResolution;
@@ -30,7 +32,10 @@ public final class InjectionState
 
    InjectionState() {
       testedObjects = new LinkedHashMap<>();
+      testedObjectKeys = new TypeIndex<>();
       instantiatedDependencies = new LinkedHashMap<>();
+      instantiatedDependencyKeys = new TypeIndex<>();
+      injectionPointsForFieldsOfTestedClasses = new HashMap<>();
       lifecycleMethods = new LifecycleMethods();
       injectionProviders = new InjectionProviders(lifecycleMethods);
       interfaceResolution = new InterfaceResolution();
@@ -39,12 +44,14 @@ public final class InjectionState
    void setInjectables(@Nonnull Object testClassInstance, @Nonnull List<? extends InjectionProvider> injectables) {
       currentTestClassInstance = testClassInstance;
       injectionProviders.setInjectables(injectables);
+      clearCachedBeans();
       lifecycleMethods.getServletConfigForInitMethodsIfAny(injectables, testClassInstance);
    }
 
    void addInjectables(@Nonnull Object testClassInstance, @Nonnull List<? extends InjectionProvider> injectablesToAdd) {
       currentTestClassInstance = testClassInstance;
       List<InjectionProvider> injectables = injectionProviders.addInjectables(injectablesToAdd);
+      clearCachedBeans();
       lifecycleMethods.getServletConfigForInitMethodsIfAny(injectables, testClassInstance);
    }
 
@@ -56,8 +63,14 @@ public final class InjectionState
    }
 
    void saveTestedObject(@Nonnull InjectionPoint key, @Nonnull Object testedObject, boolean global) {
-      Map<InjectionPoint, Object> objects = global ? globalObjects : testedObjects;
-      objects.put(key, testedObject);
+      clearCachedBeans();
+
+      if (global) {
+         globalObjects.put(key, testedObject);
+      }
+      else if (testedObjects.put(key, testedObject) == null) {
+         testedObjectKeys.add(key, key.type);
+      }
    }
 
    @Nullable
@@ -84,7 +97,7 @@ public final class InjectionState
          dependency = instantiatedDependencies.get(injectionPointWithTypeOnly);
 
          if (dependency == null) {
-            dependency = findMatchingObject(instantiatedDependencies, null, injectionPointWithTypeOnly);
+            dependency = findMatchingObject(instantiatedDependencies, instantiatedDependencyKeys, null, injectionPointWithTypeOnly);
          }
       }
 
@@ -105,23 +118,51 @@ public final class InjectionState
    }
 
    @Nullable
-   private static Object getValueFromFieldOfEquivalentTypeAndName(@Nonnull InjectionPoint injectionPoint, @Nonnull Object testedObject) {
-      for (Field internalField : testedObject.getClass().getDeclaredFields()) {
-         Type fieldType = internalField.getGenericType();
-         String qualifiedName = getQualifiedName(internalField.getDeclaredAnnotations());
-         boolean qualified = qualifiedName != null;
-         String fieldName = qualified ? qualifiedName : internalField.getName();
-         InjectionPoint internalInjectionPoint = new InjectionPoint(fieldType, fieldName, qualified);
-
-         if (internalInjectionPoint.equals(injectionPoint)) {
-            Object fieldValue = FieldReflection.getFieldValue(internalField, testedObject);
-            return fieldValue;
-         }
+   private Object getValueFromFieldOfEquivalentTypeAndName(@Nonnull InjectionPoint injectionPoint, @Nonnull Object testedObject) {
+      // Injection points for fields always have a name, so they can only be equal to named ones.
+      if (injectionPoint.name == null) {
+         return null;
+      }
+
+      Field internalField = getInjectionPointsForFields(testedObject.getClass()).get(injectionPoint);
+
+      if (internalField != null) {
+         Object fieldValue = FieldReflection.getFieldValue(internalField, testedObject);
+         return fieldValue;
       }
 
       return null;
    }
 
+   /**
+    * Gets the injection points for the fields declared in the class of a tested object, created only once for each class.
+    * The first field wins when several have equal injection points, as fields are checked in declaration order.
+    */
+   @Nonnull
+   private Map<InjectionPoint, Field> getInjectionPointsForFields(@Nonnull Class<?> testedClass) {
+      Map<InjectionPoint, Field> injectionPoints = injectionPointsForFieldsOfTestedClasses.get(testedClass);
+
+      if (injectionPoints == null) {
+         injectionPoints = new HashMap<>();
+
+         for (Field internalField : testedClass.getDeclaredFields()) {
+            Type fieldType = internalField.getGenericType();
+            String qualifiedName = getQualifiedName(internalField.getDeclaredAnnotations());
+            boolean qualified = qualifiedName != null;
+            String fieldName = qualified ? qualifiedName : internalField.getName();
+            InjectionPoint internalInjectionPoint = new InjectionPoint(fieldType, fieldName, qualified);
+
+            if (!injectionPoints.containsKey(internalInjectionPoint)) {
+               injectionPoints.put(internalInjectionPoint, internalField);
+            }
+         }
+
+         injectionPointsForFieldsOfTestedClasses.put(testedClass, injectionPoints);
+      }
+
+      return injectionPoints;
+   }
+
    @Nullable @SuppressWarnings("unchecked")
    public static <D> D getGlobalDependency(@Nonnull InjectionPoint key) { return (D) globalObjects.get(key); }
 
@@ -130,7 +171,7 @@ public final class InjectionState
       Object testedValue = testedObjects.get(injectionPoint);
 
       if (testedValue == null) {
-         testedValue = findMatchingObject(testedObjects, testedClass, injectionPoint);
+         testedValue = findMatchingObject(testedObjects, testedObjectKeys, testedClass, injectionPoint);
       }
 
       return testedValue;
@@ -141,16 +182,16 @@ public final class InjectionState
       Object dependency = testedObjects.get(dependencyKey);
 
       if (dependency == null) {
-         dependency = findMatchingObject(testedObjects, testedClass, dependencyKey);
+         dependency = findMatchingObject(testedObjects, testedObjectKeys, testedClass, dependencyKey);
 
          if (dependency == null) {
             dependency = instantiatedDependencies.get(dependencyKey);
 
             if (dependency == null) {
-               dependency = findMatchingObject(instantiatedDependencies, testedClass, dependencyKey);
+               dependency = findMatchingObject(instantiatedDependencies, instantiatedDependencyKeys, testedClass, dependencyKey);
 
                if (dependency == null) {
-                  dependency = findMatchingObject(globalObjects, testedClass, dependencyKey);
+                  dependency = findMatchingObject(globalObjects, null, testedClass, dependencyKey);
                }
             }
          }
@@ -159,9 +200,15 @@ public final class InjectionState
       return dependency;
    }
 
+   /**
+    * Finds the object for a matching injection point, which must have a matching type when a tested class is given.
+    * In that case, only the objects whose keys have types assignable to the raw type of the injection point are checked, when these are
+    * indexed.
+    */
    @Nullable
    private static Object findMatchingObject(
-      @Nonnull Map<InjectionPoint, Object> availableObjects, @Nullable TestedClass testedClass, @Nonnull InjectionPoint injectionPoint
+      @Nonnull Map<InjectionPoint, Object> availableObjects, @Nullable TypeIndex<InjectionPoint> availableObjectKeys,
+      @Nullable TestedClass testedClass, @Nonnull InjectionPoint injectionPoint
    ) {
       if (availableObjects.isEmpty()) {
          return null;
@@ -169,11 +216,20 @@ public final class InjectionState
 
       GenericTypeReflection reflection = testedClass == null ? null : testedClass.reflection;
       Type dependencyType = injectionPoint.type;
+      Collection<InjectionPoint> candidateKeys = availableObjects.keySet();
+
+      if (reflection != null && availableObjectKeys != null) {
+         Class<?> classOfDependency = TypeIndex.getIndexableClass(dependencyType);
+
+         if (classOfDependency != null) {
+            candidateKeys = availableObjectKeys.findElementsAssignableTo(classOfDependency);
+         }
+      }
+
       Object found = null;
 
-      for (Entry<InjectionPoint, Object> injectionPointAndObject : availableObjects.entrySet()) {
-         InjectionPoint dependencyIP = injectionPointAndObject.getKey();
-         Object dependencyObject = injectionPointAndObject.getValue();
+      for (InjectionPoint dependencyIP : candidateKeys) {
+         Object dependencyObject = availableObjects.get(dependencyIP);
 
          if (injectionPoint.equals(dependencyIP)) {
             return dependencyObject;
@@ -197,7 +253,11 @@ public final class InjectionState
    }
 
    public void saveInstantiatedDependency(@Nonnull InjectionPoint dependencyKey, @Nonnull Object dependency) {
-      instantiatedDependencies.put(dependencyKey, dependency);
+      clearCachedBeans();
+
+      if (instantiatedDependencies.put(dependencyKey, dependency) == null) {
+         instantiatedDependencyKeys.add(dependencyKey, dependencyKey.type);
+      }
    }
 
    public static void saveGlobalDependency(@Nonnull InjectionPoint dependencyKey, @Nonnull Object dependency) {
@@ -206,7 +266,16 @@ public final class InjectionState
 
    void clearTestedObjectsAndInstantiatedDependencies() {
       testedObjects.clear();
+      testedObjectKeys.clear();
       instantiatedDependencies.clear();
+      instantiatedDependencyKeys.clear();
+      clearCachedBeans();
+   }
+
+   private void clearCachedBeans() {
+      if (beanExporter != null) {
+         beanExporter.clearCachedBeans();
+      }
    }
 
    @Nonnull
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.injection;
+
+import java.lang.reflect.*;
+import java.util.*;
+import javax.annotation.*;
+
+import static mockit.internal.util.Utilities.getClassType;
+
+/**
+ * Keeps injectables or dependencies in the order they were added, indexed by the raw class of their declared types and all its
+ * supertypes, so that the ones which may match an injection point are found without checking each one.
+ */
+final class TypeIndex<E>
+{
+   @Nonnull private final List<E> elements;
+   @Nonnull private final Map<Class<?>, List<Integer>> positionsByType;
+
+   TypeIndex() {
+      elements = new ArrayList<>();
+      positionsByType = new HashMap<>();
+   }
+
+   void add(@Nonnull E element, @Nonnull Type declaredType) {
+      Integer position = elements.size();
+      elements.add(element);
+
+      for (Class<?> type : getClassAndSupertypes(getClassType(declaredType))) {
+         List<Integer> positions = positionsByType.get(type);
+
+         if (positions == null) {
+            positions = new ArrayList<>();
+            positionsByType.put(type, positions);
+         }
+
+         positions.add(position);
+      }
+   }
+
+   @Nonnull
+   private static Set<Class<?>> getClassAndSupertypes(@Nonnull Class<?> aClass) {
+      Set<Class<?>> types = new LinkedHashSet<>();
+      addClassAndSupertypes(types, aClass);
+
+      // Interfaces have no superclass, but may still match injection points of type Object.
+      types.add(Object.class);
+      return types;
+   }
+
+   private static void addClassAndSupertypes(@Nonnull Set<Class<?>> types, @Nonnull Class<?> aClass) {
+      if (types.add(aClass)) {
+         Class<?> superclass = aClass.getSuperclass();
+
+         if (superclass != null) {
+            addClassAndSupertypes(types, superclass);
+         }
+
+         for (Class<?> anInterface : aClass.getInterfaces()) {
+            addClassAndSupertypes(types, anInterface);
+         }
+      }
+   }
+
+   void clear() {
+      elements.clear();
+      positionsByType.clear();
+   }
+
+   @Nonnull List<E> getAll() { return elements; }
+
+   /**
+    * Gets the raw class which the declared type of a matching injectable or dependency must be assignable to, or <tt>null</tt> if it's
+    * not known from the given type alone, as is the case for type variables and arrays.
+    */
+   @Nullable
+   static Class<?> getIndexableClass(@Nonnull Type typeOfInjectionPoint) {
+      Class<?> rawType = null;
+
+      if (typeOfInjectionPoint instanceof Class<?>) {
+         rawType = (Class<?>) typeOfInjectionPoint;
+      }
+      else if (typeOfInjectionPoint instanceof ParameterizedType) {
+         rawType = (Class<?>) ((ParameterizedType) typeOfInjectionPoint).getRawType();
+      }
+
+      return rawType == null || rawType.isArray() ? null : rawType;
+   }
+
+   /**
+    * Finds the elements whose declared types are assignable to any of the given classes, in the order they were added.
+    */
+   @Nonnull
+   List<E> findElementsAssignableTo(@Nonnull Class<?>... types) {
+      List<Integer> positions = null;
+
+      for (Class<?> type : types) {
+         List<Integer> positionsForType = positionsByType.get(type);
+
+         if (positionsForType != null) {
+            positions = positions == null ? positionsForType : mergePositions(positions, positionsForType);
+         }
+      }
+
+      return positions == null ? Collections.<E>emptyList() : getElementsAt(positions);
+   }
+
+   @Nonnull
+   private List<E> getElementsAt(@Nonnull List<Integer> positions) {
+      List<E> found = new ArrayList<>(positions.size());
+
+      for (Integer position : positions) {
+         found.add(elements.get(position));
+      }
+
+      return found;
+   }
+
+   @Nonnull
+   private static List<Integer> mergePositions(@Nonnull List<Integer> positions1, @Nonnull List<Integer> positions2) {
+      List<Integer> merged = new ArrayList<>(positions1.size() + positions2.size());
+      int i = 0;
+      int j = 0;
+
+      while (i < positions1.size() && j < positions2.size()) {
+         int p1 = positions1.get(i);
+         int p2 = positions2.get(j);
+
+         if (p1 <= p2) {
+            merged.add(p1);
+            i++;
+
+            if (p1 == p2) {
+               j++;
+            }
+         }
+         else {
+            merged.add(p2);
+            j++;
+         }
+      }
+
+      merged.addAll(positions1.subList(i, positions1.size()));
+      merged.addAll(positions2.subList(j, positions2.size()));
+      return merged;
+   }
+}
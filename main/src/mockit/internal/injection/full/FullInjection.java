@@ -15,6 +15,7 @@ import static java.lang.reflect.Modifier.*;
 
 import mockit.asm.jvmConstants.*;
 import mockit.internal.injection.*;
+import mockit.internal.injection.field.*;
 import static mockit.internal.injection.InjectionPoint.*;
 import static mockit.internal.reflection.ConstructorReflection.*;
 import static mockit.internal.util.Utilities.*;
@@ -31,6 +32,11 @@ public final class FullInjection
    @Nonnull private final String testedName;
    @Nullable private final ServletDependencies servletDependencies;
    @Nullable private final JPADependencies jpaDependencies;
+
+   // Opt-in, with "-Dtested-lazy=true": dependencies of interface types resolved to implementation classes get injected as proxies,
+   // with the implementation only instantiated when first invoked.
+   private final boolean lazyInterfaceDependencies;
+
    @Nullable private Class<?> dependencyClass;
    @Nullable private InjectionProvider parentInjectionProvider;
 
@@ -40,6 +46,16 @@ public final class FullInjection
       this.testedName = testedName;
       servletDependencies = SERVLET_CLASS == null ? null : new ServletDependencies(injectionState);
       jpaDependencies = PERSISTENCE_UNIT_CLASS == null ? null : new JPADependencies(injectionState);
+      lazyInterfaceDependencies = Boolean.getBoolean("tested-lazy");
+   }
+
+   private FullInjection(@Nonnull FullInjection original) {
+      injectionState = original.injectionState;
+      testedClassName = original.testedClassName;
+      testedName = original.testedName;
+      servletDependencies = original.servletDependencies;
+      jpaDependencies = original.jpaDependencies;
+      lazyInterfaceDependencies = original.lazyInterfaceDependencies;
    }
 
    @Nullable
@@ -154,6 +170,10 @@ public final class FullInjection
             Class<?> resolvedType = injectionState.resolveInterface(typeToInject);
 
             if (resolvedType != null && !resolvedType.isInterface()) {
+               if (lazyInterfaceDependencies) {
+                  return createAndRegisterLazyDependency(typeToInject, resolvedType, injectionPoint, injectionProvider);
+               }
+
                //noinspection AssignmentToMethodParameter
                testedClass = new TestedClass(resolvedType, resolvedType);
                typeToInject = resolvedType;
@@ -283,6 +303,41 @@ public final class FullInjection
       return dependency;
    }
 
+   @Nonnull
+   private Object createAndRegisterLazyDependency(
+      @Nonnull Class<?> interfaceToInject, @Nonnull Class<?> implementationClass, @Nonnull InjectionPoint injectionPoint,
+      @Nullable InjectionProvider injectionProvider
+   ) {
+      LazyDependency lazyDependency = new LazyDependency(this, implementationClass, injectionPoint, injectionProvider);
+      Object proxy = Proxy.newProxyInstance(interfaceToInject.getClassLoader(), new Class<?>[] {interfaceToInject}, lazyDependency);
+
+      InjectionPoint proxyInjectionPoint = injectionPoint;
+
+      if (proxyInjectionPoint.name == null && injectionProvider != null) {
+         proxyInjectionPoint = new InjectionPoint(injectionPoint.type, injectionProvider.getName());
+      }
+
+      injectionState.saveInstantiatedDependency(proxyInjectionPoint, proxy);
+      return proxy;
+   }
+
+   /**
+    * Instantiates the implementation class for a lazy dependency, replacing the proxy previously registered for it.
+    */
+   @Nullable
+   Object createDependencyOnFirstUse(
+      @Nonnull Class<?> implementationClass, @Nonnull InjectionPoint injectionPoint, @Nullable InjectionProvider injectionProvider
+   ) {
+      // The proxy may be first invoked while another injection is in progress (from an initialization method, for example), so this
+      // one gets its own state, starting from the injection provider of the proxy.
+      FullInjection injection = new FullInjection(this);
+      injection.parentInjectionProvider = injectionProvider;
+      Injector injector = new FieldInjection(injectionState, injection);
+
+      TestedClass testedClass = new TestedClass(implementationClass, implementationClass);
+      return injection.createAndRegisterNewInstance(implementationClass, testedClass, injector, injectionPoint, injectionProvider);
+   }
+
    private void registerNewInstance(
       @Nonnull TestedClass testedClass, @Nonnull Injector injector, @Nonnull InjectionPoint injectionPoint, @Nonnull Object dependency
    ) {
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.injection.full;
+
+import java.lang.reflect.*;
+import javax.annotation.*;
+
+import mockit.internal.injection.*;
+import mockit.internal.reflection.*;
+import mockit.internal.state.*;
+import static mockit.internal.util.Utilities.NO_ARGS;
+
+/**
+ * Handles calls to a proxy injected in place of a dependency of an interface type, instantiating the resolved implementation class
+ * (and its own dependencies) only when the proxy is first invoked, and then delegating all calls to it.
+ * <p/>
+ * The <tt>equals</tt>, <tt>hashCode</tt>, and <tt>toString</tt> methods are handled by the proxy itself, based on its identity, so
+ * that storing the proxy in a hash-based collection, or logging it, doesn't instantiate the dependency.
+ */
+final class LazyDependency implements InvocationHandler
+{
+   @Nonnull private final FullInjection fullInjection;
+   @Nonnull private final Class<?> implementationClass;
+   @Nonnull private final InjectionPoint injectionPoint;
+   @Nullable private final InjectionProvider injectionProvider;
+   @Nullable private Object dependency;
+
+   LazyDependency(
+      @Nonnull FullInjection fullInjection, @Nonnull Class<?> implementationClass, @Nonnull InjectionPoint injectionPoint,
+      @Nullable InjectionProvider injectionProvider
+   ) {
+      this.fullInjection = fullInjection;
+      this.implementationClass = implementationClass;
+      this.injectionPoint = injectionPoint;
+      this.injectionProvider = injectionProvider;
+   }
+
+   @Override
+   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getDeclaringClass() == Object.class) {
+         return invokeObjectMethodOnProxy(proxy, method.getName(), args);
+      }
+
+      Object realDependency = getOrCreateDependency();
+      return MethodReflection.invokeWithCheckedThrows(realDependency, method, args == null ? NO_ARGS : args);
+   }
+
+   @Nonnull
+   private Object invokeObjectMethodOnProxy(@Nonnull Object proxy, @Nonnull String methodName, @Nullable Object[] args) {
+      switch (methodName) {
+         case "equals":
+            //noinspection ConstantConditions
+            return proxy == args[0];
+         case "hashCode":
+            return System.identityHashCode(proxy);
+         default:
+            return implementationClass.getName() + "$LazyProxy@" + Integer.toHexString(System.identityHashCode(proxy));
+      }
+   }
+
+   @Nonnull
+   private synchronized Object getOrCreateDependency() {
+      Object realDependency = dependency;
+
+      if (realDependency == null) {
+         TestRun.enterNoMockingZone();
+
+         try {
+            realDependency = fullInjection.createDependencyOnFirstUse(implementationClass, injectionPoint, injectionProvider);
+         }
+         finally {
+            TestRun.exitNoMockingZone();
+         }
+
+         if (realDependency == null) {
+            throw new IllegalStateException("Unable to instantiate " + implementationClass.getName() + " on first use");
+         }
+
+         dependency = realDependency;
+      }
+
+      return realDependency;
+   }
+}
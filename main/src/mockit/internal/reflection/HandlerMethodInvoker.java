@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2006 JMockit developers
+ * This file is subject to the terms of the MIT license (see LICENSE.txt).
+ */
+package mockit.internal.reflection;
+
+import java.lang.invoke.*;
+import java.lang.reflect.*;
+import javax.annotation.*;
+
+import mockit.internal.util.*;
+
+/**
+ * Invokes the handler method of a delegate or other handler object through a method handle which is resolved and bound to the handler
+ * only once, avoiding the cost of reflective invocation on each call.
+ * <p/>
+ * Arguments which the handle can't accept as they are (a different number of arguments, <tt>null</tt> or a value requiring a widening
+ * conversion for a primitive parameter, or a value of an incompatible type) are passed through regular reflection instead, so that the
+ * outcome is the same as with {@link MethodReflection#invoke(Object, Method, Object...)}.
+ */
+public final class HandlerMethodInvoker
+{
+   @Nonnull private final Object handler;
+   @Nonnull private final Method handlerMethod;
+   @Nonnull private final Class<?>[] parameterTypes;
+   @Nonnull private final boolean[] primitiveParameters;
+   @Nonnull private final MethodHandle methodHandle;
+   @Nullable private final MethodHandle singleArgumentHandle;
+
+   public HandlerMethodInvoker(@Nonnull Object handler, @Nonnull Method handlerMethod) {
+      this.handler = handler;
+      this.handlerMethod = handlerMethod;
+      parameterTypes = handlerMethod.getParameterTypes();
+      primitiveParameters = boxPrimitiveParameterTypes(parameterTypes);
+      Utilities.ensureThatMemberIsAccessible(handlerMethod);
+
+      MethodHandle boundHandle;
+
+      try {
+         boundHandle = MethodHandles.lookup().unreflect(handlerMethod).asFixedArity().bindTo(handler);
+      }
+      catch (IllegalAccessException e) {
+         throw new RuntimeException(e);
+      }
+
+      int n = parameterTypes.length;
+      methodHandle = boundHandle.asSpreader(Object[].class, n).asType(MethodType.methodType(Object.class, Object[].class));
+      singleArgumentHandle = n == 1 ? boundHandle.asType(MethodType.methodType(Object.class, Object.class)) : null;
+   }
+
+   @Nonnull
+   private static boolean[] boxPrimitiveParameterTypes(@Nonnull Class<?>[] parameterTypes) {
+      boolean[] primitiveParameters = new boolean[parameterTypes.length];
+
+      for (int i = 0; i < parameterTypes.length; i++) {
+         Class<?> parameterType = parameterTypes[i];
+
+         if (parameterType.isPrimitive()) {
+            //noinspection ConstantConditions
+            parameterTypes[i] = AutoBoxing.getWrapperType(parameterType);
+            primitiveParameters[i] = true;
+         }
+      }
+
+      return primitiveParameters;
+   }
+
+   @Nonnull public Method getHandlerMethod() { return handlerMethod; }
+
+   @Nullable
+   public <T> T invoke(@Nonnull Object[] args) {
+      if (!areArgumentsCompatible(args)) {
+         return MethodReflection.invoke(handler, handlerMethod, args);
+      }
+
+      Object result;
+
+      try {
+         result = methodHandle.invokeExact(args);
+      }
+      catch (Throwable t) {
+         throw rethrow(t);
+      }
+
+      //noinspection unchecked
+      return (T) result;
+   }
+
+   /**
+    * Same as {@link #invoke(Object[])}, for a single argument, but without having to allocate an argument array.
+    */
+   @Nullable
+   public <T> T invokeWithSingleArgument(@Nullable Object arg) {
+      MethodHandle handle = singleArgumentHandle;
+
+      if (handle == null || !isArgumentCompatible(0, arg)) {
+         return MethodReflection.invoke(handler, handlerMethod, arg);
+      }
+
+      Object result;
+
+      try {
+         result = handle.invokeExact(arg);
+      }
+      catch (Throwable t) {
+         throw rethrow(t);
+      }
+
+      //noinspection unchecked
+      return (T) result;
+   }
+
+   private boolean areArgumentsCompatible(@Nonnull Object[] args) {
+      int n = parameterTypes.length;
+
+      if (args.length != n) {
+         return false;
+      }
+
+      for (int i = 0; i < n; i++) {
+         if (!isArgumentCompatible(i, args[i])) {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private boolean isArgumentCompatible(@Nonnegative int parameterIndex, @Nullable Object arg) {
+      if (arg == null) {
+         return !primitiveParameters[parameterIndex];
+      }
+
+      return parameterTypes[parameterIndex].isInstance(arg);
+   }
+
+   /**
+    * Rethrows an exception thrown by the handler method just as it was thrown, including checked exceptions.
+    */
+   @Nonnull
+   private static RuntimeException rethrow(@Nonnull Throwable t) {
+      if (t instanceof Error) {
+         throw (Error) t;
+      }
+
+      if (t instanceof RuntimeException) {
+         return (RuntimeException) t;
+      }
+
+      ThrowOfCheckedException.doThrow((Exception) t);
+      return new IllegalStateException(t);
+   }
+}
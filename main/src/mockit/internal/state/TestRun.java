@@ -22,6 +22,18 @@ public final class TestRun
    private static final TestRun INSTANCE = new TestRun();
    private TestRun() {}
 
+   private static final class RunningTest
+   {
+      final int testId;
+      @Nonnull final Thread testThread;
+      volatile boolean finished;
+
+      RunningTest(int testId) {
+         this.testId = testId;
+         testThread = Thread.currentThread();
+      }
+   }
+
    // Fields with global state ////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
    private static final ThreadLocal<Integer> noMockingCount = new ThreadLocal<Integer>() {
@@ -29,6 +41,10 @@ public final class TestRun
       @Override public void set(Integer valueToAdd) { super.set(get() + valueToAdd); }
    };
 
+   // Used only by the Coverage tool; threads with no test of their own, nor one inherited from the thread which started them, use the last
+   // test id given out, as do those whose test was followed by another on the same test thread:
+   private static final ThreadLocal<RunningTest> currentTest = new InheritableThreadLocal<>();
+
    // Used only by the Coverage tool:
    private int testId;
 
@@ -50,7 +66,10 @@ public final class TestRun
 
    @Nullable public static Object getCurrentTestInstance() { return INSTANCE.currentTestInstance; }
 
-   public static int getTestId() { return INSTANCE.testId; }
+   public static int getTestId() {
+      RunningTest test = currentTest.get();
+      return test == null || test.finished ? INSTANCE.testId : test.testId;
+   }
 
    @Nullable
    public static FieldTypeRedefinitions getFieldTypeRedefinitions() { return INSTANCE.fieldTypeRedefinitions; }
@@ -83,7 +102,19 @@ public final class TestRun
    public static void setCurrentTestClass(@Nullable Class<?> testClass) { INSTANCE.currentTestClass = testClass; }
 
    public static void prepareForNextTest() {
-      INSTANCE.testId++;
+      int nextTestId;
+
+      synchronized (INSTANCE) {
+         nextTestId = ++INSTANCE.testId;
+      }
+
+      RunningTest previousTest = currentTest.get();
+
+      if (previousTest != null && previousTest.testThread == Thread.currentThread()) {
+         previousTest.finished = true;
+      }
+
+      currentTest.set(new RunningTest(nextTestId));
       INSTANCE.executingTest.setRecordAndReplay(null);
    }
 
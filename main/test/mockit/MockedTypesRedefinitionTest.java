@@ -0,0 +1,84 @@
+package mockit;
+
+import java.lang.instrument.*;
+import java.lang.reflect.*;
+
+import org.junit.*;
+import org.junit.runners.*;
+import static org.junit.Assert.*;
+
+import mockit.internal.startup.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public final class MockedTypesRedefinitionTest
+{
+   public static class FirstClass { public int getValue() { return 1; } }
+   public static class SecondClass { public int getValue() { return 2; } }
+   public static class ThirdClass { public int getValue() { return 3; } }
+
+   public static class Dependency { public static int getValue() { return 4; } }
+   public static class ClassNotYetInitialized { static final int VALUE = Dependency.getValue(); }
+
+   static Field instrumentationField;
+   static Instrumentation instrumentation;
+   static int redefinitions;
+
+   @BeforeClass
+   public static void initializeClassesToBeMocked() {
+      new FirstClass();
+      new SecondClass();
+      new ThirdClass();
+   }
+
+   @Before
+   public void countRedefinitions() throws Exception {
+      instrumentationField = Startup.class.getDeclaredField("instrumentation");
+      instrumentationField.setAccessible(true);
+      instrumentation = Startup.instrumentation();
+
+      Instrumentation countingInstrumentation = (Instrumentation) Proxy.newProxyInstance(
+         Instrumentation.class.getClassLoader(), new Class<?>[] {Instrumentation.class},
+         new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+               if ("redefineClasses".equals(method.getName())) {
+                  redefinitions++;
+               }
+
+               try { return method.invoke(instrumentation, args); }
+               catch (InvocationTargetException e) { throw e.getCause(); }
+            }
+         });
+
+      redefinitions = 0;
+      instrumentationField.set(null, countingInstrumentation);
+   }
+
+   @After
+   public void restoreInstrumentation() throws Exception {
+      instrumentationField.set(null, instrumentation);
+   }
+
+   @Test
+   public void firstMockingOfClassesNotInitializedForMockingBeforeAppliesEachRedefinitionEarly(
+      @Mocked FirstClass first, @Mocked SecondClass second, @Mocked ThirdClass third
+   ) {
+      assertEquals(3, redefinitions);
+   }
+
+   @Test
+   public void laterMockingOfSameClassesRedefinesThemAtOnce(@Mocked FirstClass first, @Mocked SecondClass second, @Mocked ThirdClass third) {
+      assertEquals(1, redefinitions);
+      assertEquals(0, first.getValue());
+      assertEquals(0, second.getValue());
+      assertEquals(0, third.getValue());
+   }
+
+   @Test
+   public void applyPendingRedefinitionsBeforeInitializingMockedClass(
+      @Mocked Dependency dependency, @Mocked ClassNotYetInitialized notYetInitialized
+   ) {
+      assertEquals(2, redefinitions);
+      assertEquals(0, Dependency.getValue());
+   }
+}
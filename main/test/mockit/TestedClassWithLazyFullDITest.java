@@ -0,0 +1,132 @@
+package mockit;
+
+import java.lang.reflect.*;
+import java.util.*;
+import javax.annotation.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class TestedClassWithLazyFullDITest
+{
+   @BeforeClass
+   public static void enableLazyInjection() { System.setProperty("tested-lazy", "true"); }
+
+   @AfterClass
+   public static void disableLazyInjection() { System.clearProperty("tested-lazy"); }
+
+   public interface Service { int doSomething(); }
+   public interface AnotherService { String getName(); }
+   public static class CommonDependency {}
+
+   static int serviceInstances;
+   static int servicesInitialized;
+
+   static final class ServiceImpl implements Service {
+      CommonDependency common;
+      ServiceImpl() { serviceInstances++; }
+      @PostConstruct void initialize() { servicesInitialized++; }
+      @Override public int doSomething() { return 123; }
+   }
+
+   static final class AnotherServiceImpl implements AnotherService {
+      Service service;
+      @Override public String getName() { return "another"; }
+   }
+
+   // Calls the lazy dependency while the tested object is still being injected.
+   public static final class EagerUser {
+      Service service;
+      int result;
+      @PostConstruct void useService() { result = service.doSomething(); }
+   }
+
+   public static final class TestedClass {
+      Service service;
+      AnotherService anotherService;
+      CommonDependency common;
+   }
+
+   public static final class TestedClassWithEagerUser {
+      EagerUser eagerUser;
+      AnotherService anotherService;
+      CommonDependency common;
+   }
+
+   @Tested
+   static Class<?> resolveInterfaces(Class<?> anInterface) {
+      if (anInterface == Service.class) return ServiceImpl.class;
+      if (anInterface == AnotherService.class) return AnotherServiceImpl.class;
+      return null;
+   }
+
+   @Tested(fullyInitialized = true) TestedClass tested;
+
+   @Before
+   public void resetCounters() {
+      serviceInstances = 0;
+      servicesInitialized = 0;
+   }
+
+   @Test
+   public void injectProxyWhichInstantiatesAndInitializesImplementationOnFirstCall() {
+      Service service = tested.service;
+      assertFalse(service instanceof ServiceImpl);
+      assertEquals(0, serviceInstances);
+
+      assertEquals(123, service.doSomething());
+      assertEquals(123, service.doSomething());
+
+      assertEquals(1, serviceInstances);
+      assertEquals(1, servicesInitialized);
+   }
+
+   @Test
+   public void fillOutDependenciesOfLazilyCreatedImplementation() throws Exception {
+      assertEquals("another", tested.anotherService.getName());
+
+      AnotherServiceImpl anotherService = getImplementation(tested.anotherService);
+      assertSame(tested.service, anotherService.service);
+      assertEquals(0, serviceInstances);
+   }
+
+   static <T> T getImplementation(Object proxy) throws Exception {
+      Object handler = Proxy.getInvocationHandler(proxy);
+      Field dependency = handler.getClass().getDeclaredField("dependency");
+      dependency.setAccessible(true);
+      @SuppressWarnings("unchecked") T implementation = (T) dependency.get(handler);
+      return implementation;
+   }
+
+   @Test
+   public void handleObjectMethodsOnProxyWithoutInstantiatingImplementation() {
+      Service service = tested.service;
+
+      assertTrue(service.equals(service));
+      assertFalse(service.equals(tested.anotherService));
+      assertEquals(System.identityHashCode(service), service.hashCode());
+      assertTrue(service.toString().startsWith(ServiceImpl.class.getName()));
+
+      Set<Object> services = new HashSet<>();
+      services.add(service);
+      assertTrue(services.contains(service));
+
+      assertEquals(0, serviceInstances);
+   }
+
+   @Test
+   public void instantiateLazyDependencyFromInitializationMethodDuringOngoingInjection(
+      @Tested(fullyInitialized = true) TestedClassWithEagerUser testedWithEagerUser
+   ) throws Exception {
+      EagerUser eagerUser = testedWithEagerUser.eagerUser;
+      assertEquals(123, eagerUser.result);
+      assertEquals(1, serviceInstances);
+
+      assertNotNull(testedWithEagerUser.anotherService);
+      assertEquals("another", testedWithEagerUser.anotherService.getName());
+      assertNotNull(testedWithEagerUser.common);
+
+      ServiceImpl service = getImplementation(eagerUser.service);
+      assertSame(testedWithEagerUser.common, service.common);
+   }
+}
@@ -0,0 +1,28 @@
+package mockit;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class TestedClassWithObjectDependencyTest
+{
+   public static class ClassWithObjectField { Object dependency; }
+
+   public static class ClassWithObjectParameter {
+      final Object dependency;
+      public ClassWithObjectParameter(Object dependency) { this.dependency = dependency; }
+   }
+
+   @Tested ClassWithObjectField holder;
+   @Tested ClassWithObjectParameter holder2;
+   @Injectable Runnable dependency;
+
+   @Test
+   public void injectInterfaceTypedInjectableIntoFieldOfTypeObject() {
+      assertSame(dependency, holder.dependency);
+   }
+
+   @Test
+   public void injectInterfaceTypedInjectableIntoConstructorParameterOfTypeObject() {
+      assertSame(dependency, holder2.dependency);
+   }
+}
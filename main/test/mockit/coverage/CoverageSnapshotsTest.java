@@ -0,0 +1,158 @@
+package mockit.coverage;
+
+import java.io.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.asm.controlFlow.*;
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+public final class CoverageSnapshotsTest
+{
+   @Rule public final TemporaryFolder outputDir = new TemporaryFolder();
+
+   File snapshotsFile;
+   CoverageData coverageData;
+   PerFileLineCoverage lineCoverage;
+
+   @Before
+   public void createCoverageDataForOneSourceFile() {
+      snapshotsFile = new File(outputDir.getRoot(), CoverageSnapshots.SNAPSHOTS_FILE_NAME);
+      coverageData = new CoverageData();
+      lineCoverage = addSourceFile("pkg/SomeClass.java");
+   }
+
+   PerFileLineCoverage addSourceFile(String sourceFile) {
+      PerFileLineCoverage newLineCoverage = coverageData.getOrAddFile(sourceFile, null).lineCoverageInfo;
+
+      for (int line = 1; line <= 5; line++) {
+         newLineCoverage.addLine(line);
+      }
+
+      Label jumpTarget = new Label();
+      jumpTarget.jumpTargetLine = 4;
+      newLineCoverage.addBranchingPoint(3, new Label(), jumpTarget);
+      return newLineCoverage;
+   }
+
+   CoverageSnapshots createSnapshots(long maxFileSize) { return new CoverageSnapshots(snapshotsFile, null, 0L, maxFileSize); }
+
+   static void execute(PerFileLineCoverage lineCoverage, int line, int times) {
+      for (int i = 0; i < times; i++) {
+         lineCoverage.registerExecution(line);
+      }
+   }
+
+   static void assertSameCounts(PerFileLineCoverage expected, PerFileLineCoverage actual) {
+      assertArrayEquals(expected.copyExecutionCounts(), actual.copyExecutionCounts());
+      assertEquals(expected.getExecutableLineCount(), actual.getExecutableLineCount());
+      assertEquals(expected.getCoveragePercentage(), actual.getCoveragePercentage());
+   }
+
+   PerFileLineCoverage readLineCoverage(File dataFile, String sourceFile) throws IOException {
+      CoverageData dataRead = CoverageSnapshots.readDataFromFile(dataFile);
+      FileCoverageData fileData = dataRead.getFileToFileData().get(sourceFile);
+      assertNotNull(fileData);
+      return fileData.lineCoverageInfo;
+   }
+
+   @Test
+   public void writeNothingForFilesWithoutExecutions() throws Exception {
+      createSnapshots(Long.MAX_VALUE).writeSnapshot(coverageData);
+
+      assertFalse(snapshotsFile.exists());
+   }
+
+   @Test
+   public void readBackFullRecordFollowedByCountDifferences() throws Exception {
+      CoverageSnapshots snapshots = createSnapshots(Long.MAX_VALUE);
+      execute(lineCoverage, 1, 2);
+      snapshots.writeSnapshot(coverageData);
+      long sizeAfterFullRecord = snapshotsFile.length();
+
+      // Not in the execution counters, so only a full record would carry it.
+      coverageData.getFileData("pkg/SomeClass.java").kindOfTopLevelType = "class";
+      execute(lineCoverage, 2, 1);
+      lineCoverage.registerExecution(3, 1);
+      snapshots.writeSnapshot(coverageData);
+      execute(lineCoverage, 2, 300);
+      snapshots.writeSnapshot(coverageData);
+
+      CoverageData dataRead = CoverageSnapshots.readDataFromFile(snapshotsFile);
+      FileCoverageData fileDataRead = dataRead.getFileData("pkg/SomeClass.java");
+      assertSameCounts(lineCoverage, fileDataRead.lineCoverageInfo);
+      assertEquals(301, fileDataRead.lineCoverageInfo.getExecutionCount(2));
+      assertNull(fileDataRead.kindOfTopLevelType);
+      assertTrue(snapshotsFile.length() - sizeAfterFullRecord < sizeAfterFullRecord);
+   }
+
+   @Test
+   public void writeOnlyFilesWhoseCountsChanged() throws Exception {
+      PerFileLineCoverage otherLineCoverage = addSourceFile("pkg/OtherClass.java");
+      CoverageSnapshots snapshots = createSnapshots(Long.MAX_VALUE);
+      execute(lineCoverage, 1, 1);
+      snapshots.writeSnapshot(coverageData);
+      long sizeAfterFirstSnapshot = snapshotsFile.length();
+
+      snapshots.writeSnapshot(coverageData);
+      assertEquals(sizeAfterFirstSnapshot, snapshotsFile.length());
+
+      execute(otherLineCoverage, 5, 2);
+      snapshots.writeSnapshot(coverageData);
+
+      assertSameCounts(lineCoverage, readLineCoverage(snapshotsFile, "pkg/SomeClass.java"));
+      assertSameCounts(otherLineCoverage, readLineCoverage(snapshotsFile, "pkg/OtherClass.java"));
+   }
+
+   @Test
+   public void writeFullRecordAgainAfterFileGetsMoreLines() throws Exception {
+      CoverageSnapshots snapshots = createSnapshots(Long.MAX_VALUE);
+      execute(lineCoverage, 1, 1);
+      snapshots.writeSnapshot(coverageData);
+
+      lineCoverage.addLine(8);
+      execute(lineCoverage, 8, 3);
+      snapshots.writeSnapshot(coverageData);
+
+      PerFileLineCoverage lineCoverageRead = readLineCoverage(snapshotsFile, "pkg/SomeClass.java");
+      assertSameCounts(lineCoverage, lineCoverageRead);
+      assertEquals(3, lineCoverageRead.getExecutionCount(8));
+   }
+
+   @Test
+   public void ignoreIncompleteLastSegment() throws Exception {
+      CoverageSnapshots snapshots = createSnapshots(Long.MAX_VALUE);
+      execute(lineCoverage, 1, 1);
+      snapshots.writeSnapshot(coverageData);
+      int[] countsInFirstSnapshot = lineCoverage.copyExecutionCounts();
+
+      execute(lineCoverage, 2, 5);
+      snapshots.writeSnapshot(coverageData);
+
+      try (RandomAccessFile file = new RandomAccessFile(snapshotsFile, "rw")) {
+         file.setLength(file.length() - 2);
+      }
+
+      assertArrayEquals(countsInFirstSnapshot, readLineCoverage(snapshotsFile, "pkg/SomeClass.java").copyExecutionCounts());
+   }
+
+   @Test
+   public void startNewFileWithFullRecordsWhenMaxSizeIsReached() throws Exception {
+      CoverageSnapshots snapshots = createSnapshots(1L);
+      execute(lineCoverage, 1, 1);
+      snapshots.writeSnapshot(coverageData);
+      int[] countsInFirstSnapshot = lineCoverage.copyExecutionCounts();
+
+      execute(lineCoverage, 2, 1);
+      snapshots.writeSnapshot(coverageData);
+
+      File previousFile = new File(snapshotsFile.getPath() + ".prev");
+      assertTrue(previousFile.exists());
+      assertTrue(CoverageSnapshots.isSnapshotsFile(previousFile));
+      assertArrayEquals(countsInFirstSnapshot, readLineCoverage(previousFile, "pkg/SomeClass.java").copyExecutionCounts());
+      assertSameCounts(lineCoverage, readLineCoverage(snapshotsFile, "pkg/SomeClass.java"));
+   }
+}
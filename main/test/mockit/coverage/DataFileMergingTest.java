@@ -0,0 +1,113 @@
+package mockit.coverage;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.asm.controlFlow.*;
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+public final class DataFileMergingTest
+{
+   // Source files of classes in the classpath, so that their data from different runs gets merged.
+   static final String SOURCE_FILE_IN_ALL_RUNS = "mockit/coverage/DataFileMergingTest.java";
+   static final String SOURCE_FILE_IN_SOME_RUNS = "mockit/coverage/CoverageSnapshotsTest.java";
+   static final String SOURCE_FILE_NOT_IN_CLASSPATH = "pkg/NotInClasspath.java";
+
+   @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+   String[] inputPaths;
+
+   @Before
+   public void writeDataFilesFromSeveralTestRuns() throws IOException {
+      inputPaths = new String[7];
+
+      for (int run = 0; run < inputPaths.length; run++) {
+         CoverageData coverageData = new CoverageData();
+
+         if (run % 2 == 0) {
+            addSourceFile(coverageData, SOURCE_FILE_IN_SOME_RUNS, run);
+         }
+
+         addSourceFile(coverageData, SOURCE_FILE_IN_ALL_RUNS, run);
+
+         if (run > 0) {
+            addSourceFile(coverageData, SOURCE_FILE_NOT_IN_CLASSPATH, run);
+         }
+
+         File dataFile = folder.newFile("coverage" + run + ".ser");
+         coverageData.writeDataToFile(dataFile);
+         inputPaths[run] = dataFile.getPath();
+      }
+   }
+
+   static void addSourceFile(CoverageData coverageData, String sourceFile, int run) {
+      FileCoverageData fileData = coverageData.getOrAddFile(sourceFile, "class");
+      coverageData.fillLastModifiedTimeForClassFile(sourceFile, fileData);
+      PerFileLineCoverage lineCoverage = fileData.lineCoverageInfo;
+
+      for (int line = 1; line <= 5; line++) {
+         lineCoverage.addLine(line);
+      }
+
+      Label jumpTarget = new Label();
+      jumpTarget.jumpTargetLine = 4;
+      lineCoverage.addBranchingPoint(3, new Label(), jumpTarget);
+
+      for (int line = 1; line <= run % 5 + 1; line++) {
+         lineCoverage.registerExecution(line);
+      }
+
+      lineCoverage.registerExecution(3, run % 2);
+   }
+
+   @After
+   public void clearMergeThreadsProperty() { System.clearProperty("coverage-mergeThreads"); }
+
+   CoverageData mergeWithThreads(String mergeThreads) throws IOException {
+      System.setProperty("coverage-mergeThreads", mergeThreads);
+      return new DataFileMerging(inputPaths).merge();
+   }
+
+   static void assertSameData(CoverageData expected, CoverageData actual) {
+      Map<String, FileCoverageData> expectedFiles = expected.getFileToFileDataInOrder();
+      Map<String, FileCoverageData> actualFiles = actual.getFileToFileDataInOrder();
+      assertEquals(new ArrayList<>(expectedFiles.keySet()), new ArrayList<>(actualFiles.keySet()));
+
+      for (Entry<String, FileCoverageData> fileAndData : expectedFiles.entrySet()) {
+         PerFileLineCoverage expectedLines = fileAndData.getValue().lineCoverageInfo;
+         PerFileLineCoverage actualLines = actualFiles.get(fileAndData.getKey()).lineCoverageInfo;
+         assertArrayEquals(fileAndData.getKey(), expectedLines.copyExecutionCounts(), actualLines.copyExecutionCounts());
+         assertEquals(expectedLines.getTotalItems(), actualLines.getTotalItems());
+         assertEquals(expectedLines.getCoveredItems(), actualLines.getCoveredItems());
+      }
+   }
+
+   @Test
+   public void mergeConcurrentlyWithSameResultAsSequentially() throws Exception {
+      CoverageData sequentiallyMergedData = mergeWithThreads("1");
+      CoverageData concurrentlyMergedData = mergeWithThreads("4");
+
+      assertSameData(sequentiallyMergedData, concurrentlyMergedData);
+
+      int[] mergedCounts = concurrentlyMergedData.getFileData(SOURCE_FILE_IN_ALL_RUNS).lineCoverageInfo.copyExecutionCounts();
+      assertEquals(7, mergedCounts[1]);
+      assertEquals(5, mergedCounts[2]);
+
+      // Without a class file to tell whether it's the same code, only the data from the first run having the file is kept.
+      assertEquals(1, concurrentlyMergedData.getFileData(SOURCE_FILE_NOT_IN_CLASSPATH).lineCoverageInfo.copyExecutionCounts()[2]);
+   }
+
+   @Test
+   public void fallBackToDefaultNumberOfThreadsForInvalidSetting() throws Exception {
+      CoverageData sequentiallyMergedData = mergeWithThreads("1");
+
+      assertSameData(sequentiallyMergedData, mergeWithThreads("many"));
+      assertSameData(sequentiallyMergedData, mergeWithThreads("0"));
+   }
+}
@@ -0,0 +1,69 @@
+package mockit.coverage.data;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class CoverageDataTest
+{
+   final CoverageData coverageData = new CoverageData();
+
+   @Test
+   public void keepIndexedAccessToFilesBeyondInitialCapacity() {
+      for (int i = 0; i < 250; i++) {
+         FileCoverageData fileData = coverageData.getOrAddFile("pkg/Class" + i + ".java", null);
+         assertEquals(i, fileData.index);
+      }
+
+      for (int i = 0; i < 250; i++) {
+         assertSame(coverageData.getFileData("pkg/Class" + i + ".java"), coverageData.getFileData(i));
+      }
+   }
+
+   @Test
+   public void getFilesInTheOrderTheyWereAdded() {
+      List<String> files = Arrays.asList("pkg/Zeta.java", "pkg/Alpha.java", "other/Middle.java", "pkg/Beta.java");
+
+      for (String file : files) {
+         coverageData.getOrAddFile(file, null);
+      }
+
+      assertEquals(files, new ArrayList<>(coverageData.getFileToFileDataInOrder().keySet()));
+   }
+
+   @Test
+   public void getFilesFromOtherDataAfterTheOnesAddedInThisTestRun() {
+      CoverageData previousData = new CoverageData();
+      previousData.getOrAddFile("pkg/Previous2.java", null);
+      previousData.getOrAddFile("pkg/Previous1.java", null);
+      coverageData.getOrAddFile("pkg/Current2.java", null);
+      coverageData.getOrAddFile("pkg/Current1.java", null);
+
+      coverageData.merge(previousData);
+
+      List<String> filesInOrder = new ArrayList<>(coverageData.getFileToFileDataInOrder().keySet());
+      assertEquals(Arrays.asList("pkg/Current2.java", "pkg/Current1.java", "pkg/Previous2.java", "pkg/Previous1.java"), filesInOrder);
+   }
+
+   @Test
+   public void serializeAndDeserializeKeepingOrderAndIndexes() throws Exception {
+      for (int i = 150; i > 0; i--) {
+         coverageData.getOrAddFile("pkg/Class" + i + ".java", null).lineCoverageInfo.addLine(i);
+      }
+
+      File dataFile = File.createTempFile("coverage", ".ser");
+      dataFile.deleteOnExit();
+      coverageData.writeDataToFile(dataFile);
+      CoverageData dataRead = CoverageData.readDataFromFile(dataFile);
+
+      assertEquals(
+         new ArrayList<>(coverageData.getFileToFileDataInOrder().keySet()), new ArrayList<>(dataRead.getFileToFileDataInOrder().keySet()));
+      assertEquals(149, dataRead.getFileData("pkg/Class1.java").index);
+      assertSame(dataRead.getFileData("pkg/Class1.java"), dataRead.getFileData(149));
+
+      FileCoverageData newFileData = dataRead.getOrAddFile("pkg/NewClass.java", null);
+      assertEquals(150, newFileData.index);
+   }
+}
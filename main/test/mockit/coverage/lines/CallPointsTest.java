@@ -0,0 +1,186 @@
+package mockit.coverage.lines;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.*;
+
+public final class CallPointsTest
+{
+   static final Constructor<CallPoint> callPointConstructor;
+
+   static {
+      try {
+         callPointConstructor = CallPoint.class.getDeclaredConstructor(StackTraceElement.class, int.class);
+         callPointConstructor.setAccessible(true);
+      }
+      catch (NoSuchMethodException e) { throw new IllegalStateException(e); }
+   }
+
+   static CallPoint callFromLine(int line) {
+      try {
+         return callPointConstructor.newInstance(new StackTraceElement("pkg.SomeTest", "someTest", "SomeTest.java", line), 0);
+      }
+      catch (ReflectiveOperationException e) { throw new IllegalStateException(e); }
+   }
+
+   static List<Integer> linesOf(CallPoints callPoints) {
+      List<Integer> lines = new ArrayList<>();
+      List<CallPoint> list = callPoints.toList();
+
+      if (list != null) {
+         for (CallPoint callPoint : list) {
+            lines.add(callPoint.getStackTraceElement().getLineNumber());
+         }
+      }
+
+      return lines;
+   }
+
+   @Test
+   public void countFurtherCallsFromSameLineInTestCodeAsRepetitions() {
+      CallPoints callPoints = new CallPoints(5);
+      assertNull(callPoints.toList());
+
+      callPoints.add(callFromLine(10));
+      callPoints.add(callFromLine(10));
+      callPoints.add(callFromLine(11));
+      callPoints.add(callFromLine(10));
+
+      List<CallPoint> list = callPoints.toList();
+      assertEquals(Arrays.asList(10, 11), linesOf(callPoints));
+      assertEquals(2, list.get(0).getRepetitionCount());
+      assertEquals(0, list.get(1).getRepetitionCount());
+      assertFalse(callPoints.isFull());
+   }
+
+   @Test
+   public void dropCallsFromNewLinesOnceAllSlotsAreTaken() {
+      CallPoints callPoints = new CallPoints(2);
+
+      callPoints.add(callFromLine(1));
+      assertFalse(callPoints.isFull());
+      callPoints.add(callFromLine(2));
+      assertTrue(callPoints.isFull());
+
+      callPoints.add(callFromLine(3));
+      callPoints.add(callFromLine(2));
+
+      List<CallPoint> list = callPoints.toList();
+      assertEquals(Arrays.asList(1, 2), linesOf(callPoints));
+      assertEquals(1, list.get(1).getRepetitionCount());
+   }
+
+   @Test
+   public void treatContainerWithoutSlotsAsFull() {
+      CallPoints callPoints = new CallPoints(0);
+
+      callPoints.add(callFromLine(1));
+
+      assertTrue(callPoints.isFull());
+      assertNull(callPoints.toList());
+   }
+
+   @Test
+   public void addCallsFromManyThreadsToSameSegmentWithoutDuplicatesOrLostRepetitions() throws Exception {
+      final int threads = 8;
+      final int distinctLines = 20;
+      final int callsPerLine = 200;
+      final CallPoints callPoints = new CallPoints(distinctLines + 5);
+      final CyclicBarrier allThreadsReady = new CyclicBarrier(threads);
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      List<Future<?>> results = new ArrayList<>();
+
+      try {
+         for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call() throws Exception {
+                  allThreadsReady.await(10, TimeUnit.SECONDS);
+
+                  for (int i = 0; i < callsPerLine; i++) {
+                     for (int line = 1; line <= distinctLines; line++) {
+                        callPoints.add(callFromLine(line));
+                     }
+                  }
+
+                  return null;
+               }
+            }));
+         }
+
+         for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+         }
+      }
+      finally {
+         executor.shutdown();
+      }
+
+      List<Integer> lines = linesOf(callPoints);
+      assertEquals(distinctLines, lines.size());
+      assertEquals(distinctLines, new HashSet<>(lines).size());
+      assertFalse(callPoints.isFull());
+
+      // The first call from each line takes a slot, and every other one counts as a repetition.
+      for (CallPoint callPoint : callPoints.toList()) {
+         assertEquals(threads * callsPerLine - 1, callPoint.getRepetitionCount());
+      }
+   }
+
+   @Test
+   public void addAllFromPreviousContainerWithoutExceedingTheBound() {
+      CallPoints previousCallPoints = new CallPoints(3);
+      previousCallPoints.add(callFromLine(1));
+      previousCallPoints.add(callFromLine(1));
+      previousCallPoints.add(callFromLine(1));
+      previousCallPoints.add(callFromLine(2));
+      previousCallPoints.add(callFromLine(3));
+
+      CallPoints callPoints = new CallPoints(2);
+      callPoints.add(callFromLine(1));
+      callPoints.addAll(previousCallPoints);
+
+      List<CallPoint> list = callPoints.toList();
+      assertEquals(Arrays.asList(1, 2), linesOf(callPoints));
+      assertTrue(callPoints.isFull());
+
+      // The previous call point for line 1 stands for the first call plus its two repetitions.
+      assertEquals(3, list.get(0).getRepetitionCount());
+      assertEquals(0, list.get(1).getRepetitionCount());
+   }
+
+   @Test
+   public void internStackTraceElementsOfCallPointsReadFromSerializedData() throws Exception {
+      CallPoints callPoints = new CallPoints(2);
+      callPoints.add(callFromLine(123));
+      callPoints.add(callFromLine(123));
+      CallPoints otherCallPoints = new CallPoints(2);
+      otherCallPoints.add(callFromLine(123));
+
+      CallPoint readCallPoint = serializeAndRead(callPoints).toList().get(0);
+      CallPoint otherReadCallPoint = serializeAndRead(otherCallPoints).toList().get(0);
+
+      assertNotSame(readCallPoint, otherReadCallPoint);
+      assertSame(readCallPoint.getStackTraceElement(), otherReadCallPoint.getStackTraceElement());
+      assertEquals(1, readCallPoint.getRepetitionCount());
+      assertEquals(0, otherReadCallPoint.getRepetitionCount());
+   }
+
+   static CallPoints serializeAndRead(CallPoints callPoints) throws IOException, ClassNotFoundException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+      try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+         output.writeObject(callPoints);
+      }
+
+      try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+         return (CallPoints) input.readObject();
+      }
+   }
+}
@@ -0,0 +1,279 @@
+package mockit.coverage.lines;
+
+import java.io.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.asm.controlFlow.*;
+
+public final class PerFileLineCoverageTest
+{
+   final PerFileLineCoverage coverage = new PerFileLineCoverage();
+
+   @Before
+   public void addLines() {
+      for (int line = 1; line <= 10; line++) {
+         coverage.addLine(line);
+      }
+   }
+
+   static Label labelAtLine(int line) {
+      Label label = new Label();
+      label.line = line;
+      return label;
+   }
+
+   static Label jumpToLine(int line) {
+      Label label = new Label();
+      label.jumpTargetLine = line;
+      return label;
+   }
+
+   void addBranchingPoint(PerFileLineCoverage lineCoverage, int line, int targetLine) {
+      lineCoverage.addBranchingPoint(line, labelAtLine(line), jumpToLine(targetLine));
+   }
+
+   void execute(PerFileLineCoverage lineCoverage, int line, int times) {
+      for (int i = 0; i < times; i++) {
+         lineCoverage.registerExecution(line);
+      }
+   }
+
+   void executeBranch(PerFileLineCoverage lineCoverage, int line, int branchIndex, int times) {
+      for (int i = 0; i < times; i++) {
+         lineCoverage.registerExecution(line, branchIndex);
+      }
+   }
+
+   @Test
+   public void addBranchesToLineHavingTheLastRunOfBranches() {
+      addBranchingPoint(coverage, 3, 4);
+      int sourceBranchIndex = coverage.addBranchingPoint(3, labelAtLine(3), jumpToLine(5));
+
+      assertEquals(2, sourceBranchIndex);
+      assertEquals(0, coverage.getFirstBranch(3));
+      assertEquals(4, coverage.getNumberOfBranches(3));
+   }
+
+   @Test
+   public void moveRunOfBranchesToTheEndWhenAddingBranchesToLineWhoseRunIsNotTheLast() {
+      addBranchingPoint(coverage, 3, 4);
+      addBranchingPoint(coverage, 5, 6);
+      executeBranch(coverage, 3, 0, 2);
+      executeBranch(coverage, 3, 1, 1);
+      executeBranch(coverage, 5, 1, 3);
+
+      int sourceBranchIndex = coverage.addBranchingPoint(3, labelAtLine(3), jumpToLine(7));
+      coverage.resolvePendingBranchLines();
+
+      assertEquals(2, sourceBranchIndex);
+      assertEquals(4, coverage.getFirstBranch(3));
+      assertEquals(4, coverage.getNumberOfBranches(3));
+      assertEquals(2, coverage.getFirstBranch(5));
+      assertEquals(2, coverage.getNumberOfBranches(5));
+
+      LineCoverageData line3 = coverage.getLineData(3);
+      assertEquals(3, line3.getBranchData(0).getLine());
+      assertEquals(4, line3.getBranchData(1).getLine());
+      assertEquals(3, line3.getBranchData(2).getLine());
+      assertEquals(7, line3.getBranchData(3).getLine());
+      assertEquals(2, line3.getBranchData(0).getExecutionCount());
+      assertEquals(1, line3.getBranchData(1).getExecutionCount());
+      assertEquals(0, line3.getBranchData(2).getExecutionCount());
+      assertEquals(0, line3.getBranchData(3).getExecutionCount());
+
+      LineCoverageData line5 = coverage.getLineData(5);
+      assertEquals(6, line5.getBranchData(1).getLine());
+      assertEquals(3, line5.getBranchData(1).getExecutionCount());
+   }
+
+   @Test
+   public void moveRunOfBranchesWithCallPoints() {
+      addBranchingPoint(coverage, 3, 4);
+      CallPoints callPoints = coverage.getCallPointsAcceptingMore(3, 1);
+      addBranchingPoint(coverage, 5, 6);
+      addBranchingPoint(coverage, 3, 7);
+
+      assertNotNull(callPoints);
+      assertSame(callPoints, coverage.getCallPointsAcceptingMore(3, 1));
+      assertNotSame(callPoints, coverage.getCallPointsAcceptingMore(5, 1));
+   }
+
+   @Test
+   public void markBranchAsUnreachableAfterRunOfBranchesIsMoved() {
+      addBranchingPoint(coverage, 3, 4);
+      addBranchingPoint(coverage, 5, 6);
+      addBranchingPoint(coverage, 3, 7);
+      coverage.markBranchAsUnreachable(3, 3);
+      coverage.resolvePendingBranchLines();
+
+      assertTrue(coverage.getLineData(3).getBranchData(3).isCovered());
+      assertFalse(coverage.getLineData(3).getBranchData(1).isCovered());
+      assertFalse(coverage.getLineData(5).getBranchData(1).isCovered());
+   }
+
+   @Test
+   public void mergeExecutionCountsOfLinesWithAndWithoutBranches() {
+      addBranchingPoint(coverage, 2, 3);
+      execute(coverage, 1, 2);
+      execute(coverage, 2, 1);
+      executeBranch(coverage, 2, 0, 1);
+
+      PerFileLineCoverage previousCoverage = new PerFileLineCoverage();
+
+      for (int line = 1; line <= 10; line++) {
+         previousCoverage.addLine(line);
+      }
+
+      addBranchingPoint(previousCoverage, 2, 3);
+      execute(previousCoverage, 1, 3);
+      execute(previousCoverage, 2, 4);
+      execute(previousCoverage, 4, 5);
+      executeBranch(previousCoverage, 2, 0, 2);
+      executeBranch(previousCoverage, 2, 1, 1);
+
+      coverage.mergeInformation(previousCoverage);
+
+      assertEquals(5, coverage.getExecutionCount(1));
+      assertEquals(5, coverage.getExecutionCount(2));
+      assertEquals(5, coverage.getExecutionCount(4));
+      assertEquals(0, coverage.getExecutionCount(5));
+
+      LineCoverageData line2 = coverage.getLineData(2);
+      assertEquals(3, line2.getBranchData(0).getExecutionCount());
+      assertEquals(1, line2.getBranchData(1).getExecutionCount());
+      assertEquals(3, line2.getBranchData(1).getLine());
+   }
+
+   @Test
+   public void mergeLinesAndBranchesOnlyPresentInPreviousCoverage() {
+      PerFileLineCoverage previousCoverage = new PerFileLineCoverage();
+
+      for (int line = 1; line <= 12; line++) {
+         previousCoverage.addLine(line);
+      }
+
+      addBranchingPoint(previousCoverage, 6, 8);
+      previousCoverage.markLineAsUnreachable(11);
+      execute(previousCoverage, 12, 2);
+      executeBranch(previousCoverage, 6, 1, 4);
+
+      coverage.mergeInformation(previousCoverage);
+
+      assertEquals(12, coverage.getLineCount());
+      assertEquals(12, coverage.getExecutableLineCount());
+      assertEquals(2, coverage.getExecutionCount(12));
+      assertTrue(coverage.getLineData(11).isCovered());
+
+      LineCoverageData line6 = coverage.getLineData(6);
+      assertTrue(line6.containsBranches());
+      assertEquals(6, line6.getBranchData(0).getLine());
+      assertEquals(8, line6.getBranchData(1).getLine());
+      assertEquals(4, line6.getBranchData(1).getExecutionCount());
+   }
+
+   @Test
+   public void doNotMergeBranchCountsWhenNumberOfBranchesDiffers() {
+      addBranchingPoint(coverage, 2, 3);
+      executeBranch(coverage, 2, 0, 1);
+
+      PerFileLineCoverage previousCoverage = new PerFileLineCoverage();
+      previousCoverage.addLine(2);
+      addBranchingPoint(previousCoverage, 2, 3);
+      addBranchingPoint(previousCoverage, 2, 4);
+      executeBranch(previousCoverage, 2, 0, 5);
+
+      coverage.mergeInformation(previousCoverage);
+
+      assertEquals(2, coverage.getNumberOfBranches(2));
+      assertEquals(1, coverage.getLineData(2).getBranchData(0).getExecutionCount());
+   }
+
+   @Test
+   public void copyExecutionCountsOfLinesFollowedByThoseOfBranches() {
+      addBranchingPoint(coverage, 2, 3);
+      execute(coverage, 1, 2);
+      execute(coverage, 10, 1);
+      executeBranch(coverage, 2, 1, 3);
+
+      int[] counts = coverage.copyExecutionCounts();
+
+      assertEquals(11 + 2, counts.length);
+      assertEquals(2, counts[1]);
+      assertEquals(1, counts[10]);
+      assertEquals(0, counts[11]);
+      assertEquals(3, counts[12]);
+   }
+
+   @Test
+   public void copyExecutionCountsBeforeAnyExecution() {
+      addBranchingPoint(coverage, 2, 3);
+
+      int[] counts = coverage.copyExecutionCounts();
+
+      assertArrayEquals(new int[11 + 2], counts);
+   }
+
+   @Test
+   public void addExecutionCountsCopiedFromEquivalentCoverage() {
+      addBranchingPoint(coverage, 2, 3);
+      execute(coverage, 1, 2);
+      executeBranch(coverage, 2, 0, 1);
+      int[] counts = coverage.copyExecutionCounts();
+
+      PerFileLineCoverage otherCoverage = new PerFileLineCoverage();
+
+      for (int line = 1; line <= 10; line++) {
+         otherCoverage.addLine(line);
+      }
+
+      addBranchingPoint(otherCoverage, 2, 3);
+      execute(otherCoverage, 1, 1);
+      otherCoverage.addExecutionCounts(counts);
+      otherCoverage.addExecutionCounts(counts);
+
+      assertEquals(5, otherCoverage.getExecutionCount(1));
+      assertEquals(2, otherCoverage.getLineData(2).getBranchData(0).getExecutionCount());
+      assertEquals(0, otherCoverage.getLineData(2).getBranchData(1).getExecutionCount());
+   }
+
+   @Test
+   public void addExecutionCountsUpdatesCoveragePercentage() {
+      execute(coverage, 1, 1);
+      assertEquals(10, coverage.getCoveragePercentage());
+
+      int[] counts = coverage.copyExecutionCounts();
+      counts[2] = 1;
+      coverage.addExecutionCounts(counts);
+
+      assertEquals(20, coverage.getCoveragePercentage());
+   }
+
+   @Test
+   public void serializeAndDeserializeWithPendingBranchLines() throws Exception {
+      addBranchingPoint(coverage, 3, 4);
+      addBranchingPoint(coverage, 5, 6);
+      addBranchingPoint(coverage, 3, 7);
+      execute(coverage, 3, 2);
+      executeBranch(coverage, 3, 3, 1);
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+      try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+         output.writeObject(coverage);
+      }
+
+      PerFileLineCoverage deserialized;
+
+      try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+         deserialized = (PerFileLineCoverage) input.readObject();
+      }
+
+      assertArrayEquals(coverage.copyExecutionCounts(), deserialized.copyExecutionCounts());
+      assertEquals(7, deserialized.getLineData(3).getBranchData(3).getLine());
+      assertEquals(6, deserialized.getLineData(5).getBranchData(1).getLine());
+      assertEquals(coverage.getTotalItems(), deserialized.getTotalItems());
+      assertEquals(coverage.getCoveredItems(), deserialized.getCoveredItems());
+   }
+}
@@ -0,0 +1,65 @@
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.Map.*;
+import java.util.concurrent.*;
+import javax.tools.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+/**
+ * Compiles sample classes and runs them in a separate JVM, optionally with the JMockit agent, for tests of what the coverage tool does
+ * in a whole test run.
+ */
+final class ChildJVM
+{
+   private ChildJVM() {}
+
+   /**
+    * Compiles the given sources, keyed by their paths relative to the source root dir.
+    */
+   static void compile(File sourceDir, File classesDir, Map<String, String> pathsToSources) throws IOException {
+      List<String> args = new ArrayList<>(Arrays.asList("-g", "-d", classesDir.getPath()));
+
+      for (Entry<String, String> pathAndSource : pathsToSources.entrySet()) {
+         File sourceFile = new File(sourceDir, pathAndSource.getKey());
+         sourceFile.getParentFile().mkdirs();
+         Files.write(sourceFile.toPath(), pathAndSource.getValue().getBytes(UTF_8));
+         args.add(sourceFile.getPath());
+      }
+
+      JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      int result = compiler.run(null, null, null, args.toArray(new String[0]));
+      assertEquals(0, result);
+   }
+
+   /**
+    * Runs a JVM with the classpath of the current one, preceded by the given dir when not null, in which case the JMockit agent is also
+    * loaded.
+    * Fails if the JVM doesn't exit normally, showing its output.
+    */
+   static void run(File workDir, File classesDirWithAgent, String... args) throws Exception {
+      String javaExecutable = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+      String classpath = System.getProperty("java.class.path");
+      List<String> command = new ArrayList<>();
+      command.add(javaExecutable);
+
+      if (classesDirWithAgent != null) {
+         command.add("-javaagent:" + new File("../agent.jar").getAbsolutePath());
+         classpath = classesDirWithAgent.getPath() + File.pathSeparator + classpath;
+      }
+
+      command.add("-cp");
+      command.add(classpath);
+      command.addAll(Arrays.asList(args));
+
+      File log = File.createTempFile("jvm", ".log", workDir);
+      Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+      assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+
+      String output = new String(Files.readAllBytes(log.toPath()), UTF_8);
+      assertEquals(output, 0, process.exitValue());
+   }
+}
@@ -0,0 +1,96 @@
+package mockit.coverage.modification;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+public final class ClassNamePredicateTest
+{
+   static ClassNamePredicate compile(String specification) {
+      ClassNamePredicate predicate = ClassNamePredicate.compileSpecification(specification);
+      assertNotNull(predicate);
+      return predicate;
+   }
+
+   @Test
+   public void compileEmptySpecificationToNoPredicate() {
+      assertNull(ClassNamePredicate.compileSpecification(""));
+      assertNull(ClassNamePredicate.compileSpecification(",,"));
+   }
+
+   @Test
+   public void matchLiteralAndPrefixSpecs() {
+      ClassNamePredicate predicate = compile("com.acme.Service,com.acme.impl.*");
+
+      assertTrue(predicate.matches("com.acme.Service"));
+      assertTrue(predicate.matches("com.acme.impl.ServiceImpl"));
+      assertTrue(predicate.matches("com.acme.impl."));
+      assertFalse(predicate.matches("com.acme.Service2"));
+      assertFalse(predicate.matches("com.acme.Servic"));
+      assertFalse(predicate.matches("com.acme.other.Service"));
+   }
+
+   @Test
+   public void backtrackToLastStarOnMismatch() {
+      ClassNamePredicate predicate = compile("com.*.impl.*Impl");
+
+      assertTrue(predicate.matches("com.acme.impl.ServiceImpl"));
+      assertTrue(predicate.matches("com.acme.impl.sub.impl.ServiceImplImpl"));
+      assertTrue(predicate.matches("com.impl.x.impl.Impl"));
+      assertFalse(predicate.matches("com.acme.impl.ServiceImplementation"));
+      assertFalse(predicate.matches("com.acme.ServiceImpl"));
+   }
+
+   @Test
+   public void backtrackOverRepeatedPartialMatches() {
+      ClassNamePredicate predicate = compile("*a*ab*b");
+
+      assertTrue(predicate.matches("xaaabyb"));
+      assertTrue(predicate.matches("aabb"));
+      assertTrue(predicate.matches("aabab"));
+      assertFalse(predicate.matches("aab"));
+      assertFalse(predicate.matches("aaba"));
+      assertFalse(predicate.matches("ab"));
+   }
+
+   @Test
+   public void matchSingleCharWildcards() {
+      ClassNamePredicate predicate = compile("pkg.Class?,pkg.??Helper*");
+
+      assertTrue(predicate.matches("pkg.Class1"));
+      assertTrue(predicate.matches("pkg.ABHelper"));
+      assertTrue(predicate.matches("pkg.ABHelperTest"));
+      assertFalse(predicate.matches("pkg.Class"));
+      assertFalse(predicate.matches("pkg.Class12"));
+      assertFalse(predicate.matches("pkg.AHelper"));
+   }
+
+   @Test
+   public void matchAnyCharWithDotAsRegexSpecsAlwaysDid() {
+      ClassNamePredicate predicate = compile("com.acme.*,org.x.Y");
+
+      assertTrue(predicate.matches("comXacme.Service"));
+      assertTrue(predicate.matches("com.acme$Service"));
+      assertTrue(predicate.matches("orgAxBY"));
+      assertFalse(predicate.matches("com.acm.Service"));
+   }
+
+   @Test
+   public void matchAnyOfSeveralSpecsSharingPrefix() {
+      ClassNamePredicate predicate = compile("a.b.*X,a.b.c*,a.*Y");
+
+      assertTrue(predicate.matches("a.b.cZ"));
+      assertTrue(predicate.matches("a.b.zX"));
+      assertTrue(predicate.matches("a.zzY"));
+      assertFalse(predicate.matches("a.b.zZ"));
+   }
+
+   @Test
+   public void matchSpecsWithRegexCharsAsRegularExpressions() {
+      ClassNamePredicate predicate = compile("pkg\\.Outer\\$.+,pkg.Single$,other.*");
+
+      assertTrue(predicate.matches("pkg.Outer$Inner"));
+      assertFalse(predicate.matches("pkg.Outer"));
+      assertTrue(predicate.matches("pkg.Single"));
+      assertTrue(predicate.matches("other.Class"));
+   }
+}
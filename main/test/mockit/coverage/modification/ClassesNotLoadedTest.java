@@ -0,0 +1,145 @@
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.util.*;
+import java.util.Map.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+/**
+ * Compares the coverage data built at shutdown for classes never loaded, straight from their class files, with the data for the same
+ * classes when each one is loaded, one after the other, and modified by the transformer, as was done before.
+ */
+public final class ClassesNotLoadedTest
+{
+   @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+   File classesDir;
+
+   @Before
+   public void compileSampleClasses() throws Exception {
+      Map<String, String> sources = new HashMap<>();
+      sources.put("sample/Main.java",
+         "package sample;\n" +
+         "public final class Main {\n" +
+         "   public static void main(String[] args) { System.out.println(greet(args.length > 0)); }\n" +
+         "   static String greet(boolean loud) { return loud ? \"HELLO\" : \"hello\"; }\n" +
+         "}\n");
+      sources.put("sample/Outer.java",
+         "package sample;\n" +
+         "public class Outer {\n" +
+         "   static int counter;\n" +
+         "   private final String name;\n" +
+         "   Outer(String name) { this.name = name; }\n" +
+         "   Runnable task() {\n" +
+         "      return new Runnable() { @Override public void run() { counter++; } };\n" +
+         "   }\n" +
+         "   final class Inner { int length() { return name.length(); } }\n" +
+         "   static final class Nested {\n" +
+         "      boolean check(int x) {\n" +
+         "         if (x > 0 && x < 10) {\n" +
+         "            return true;\n" +
+         "         }\n" +
+         "         return false;\n" +
+         "      }\n" +
+         "   }\n" +
+         "}\n");
+      sources.put("sample/Color.java",
+         "package sample;\n" +
+         "enum Color {\n" +
+         "   RED, GREEN;\n" +
+         "   Color next() { return this == RED ? GREEN : RED; }\n" +
+         "}\n");
+      sources.put("sample/shapes/Shape.java",
+         "package sample.shapes;\n" +
+         "public interface Shape {\n" +
+         "   double area();\n" +
+         "   default boolean isEmpty() { return area() == 0; }\n" +
+         "}\n");
+      sources.put("sample/shapes/Square.java",
+         "package sample.shapes;\n" +
+         "public final class Square implements Shape {\n" +
+         "   private double side;\n" +
+         "   public void setSide(double side) { this.side = side; }\n" +
+         "   @Override public double area() { return side * side; }\n" +
+         "}\n");
+      sources.put("loader/LoadAll.java",
+         "package loader;\n" +
+         "import java.io.File;\n" +
+         "public final class LoadAll {\n" +
+         "   public static void main(String[] args) throws Exception {\n" +
+         "      sample.Main.main(new String[0]);\n" +
+         "      File classesDir = new File(args[0]);\n" +
+         "      load(classesDir, classesDir.getPath().length() + 1);\n" +
+         "   }\n" +
+         "   static void load(File dir, int firstPosAfterParentDir) throws ClassNotFoundException {\n" +
+         "      for (File file : dir.listFiles()) {\n" +
+         "         String path = file.getPath();\n" +
+         "         if (file.isDirectory()) load(file, firstPosAfterParentDir);\n" +
+         "         else if (path.endsWith(\".class\")) {\n" +
+         "            String className = path.substring(firstPosAfterParentDir, path.length() - 6).replace(File.separatorChar, '.');\n" +
+         "            Class.forName(className, false, LoadAll.class.getClassLoader());\n" +
+         "         }\n" +
+         "      }\n" +
+         "   }\n" +
+         "}\n");
+
+      classesDir = folder.newFolder("classes");
+      ChildJVM.compile(folder.newFolder("src"), classesDir, sources);
+   }
+
+   @Test
+   public void buildSameDataForClassesNotLoadedAsWhenLoadingThemOneByOne() throws Exception {
+      CoverageData dataFromClassfiles = runWithCoverage("sample.Main");
+      CoverageData dataFromLoadedClasses = runWithCoverage("loader.LoadAll", classesDir.getPath());
+
+      Map<String, String> filesFromClassfiles = describeFiles(dataFromClassfiles);
+      assertEquals(
+         new TreeSet<>(Arrays.asList(
+            "sample/Main.java", "sample/Outer.java", "sample/Color.java", "sample/shapes/Shape.java", "sample/shapes/Square.java")),
+         filesFromClassfiles.keySet());
+      assertEquals(describeFiles(dataFromLoadedClasses), filesFromClassfiles);
+   }
+
+   CoverageData runWithCoverage(String... mainClassAndArgs) throws Exception {
+      File outputDir = folder.newFolder();
+      List<String> args = new ArrayList<>(Arrays.asList(
+         "-Dcoverage-output=serial", "-Dcoverage-outputDir=" + outputDir.getPath(), "-Dcoverage-classes=sample.*"));
+      args.addAll(Arrays.asList(mainClassAndArgs));
+
+      ChildJVM.run(folder.getRoot(), classesDir, args.toArray(new String[0]));
+
+      return CoverageData.readDataFromFile(new File(outputDir, "coverage.ser"));
+   }
+
+   static Map<String, String> describeFiles(CoverageData coverageData) {
+      Map<String, String> filesToDescriptions = new TreeMap<>();
+
+      for (Entry<String, FileCoverageData> fileAndData : coverageData.getFileToFileData().entrySet()) {
+         filesToDescriptions.put(fileAndData.getKey(), describe(fileAndData.getValue()));
+      }
+
+      return filesToDescriptions;
+   }
+
+   static String describe(FileCoverageData fileData) {
+      PerFileLineCoverage lineInfo = fileData.getLineCoverageData();
+      StringBuilder description = new StringBuilder(String.valueOf(fileData.kindOfTopLevelType));
+
+      for (int line = 1, n = lineInfo.getLineCount(); line <= n; line++) {
+         description.append("\nline ").append(line)
+            .append(": segments=").append(lineInfo.getNumberOfSegments(line))
+            .append(", branches=").append(lineInfo.getNumberOfBranchingSourcesAndTargets(line))
+            .append(", executions=").append(lineInfo.getExecutionCount(line));
+      }
+
+      description.append("\nitems=").append(fileData.getTotalItems()).append(", covered=").append(fileData.getCoveredItems())
+         .append("\nfields=").append(fileData.dataCoverageInfo.allFields);
+      return description.toString();
+   }
+}
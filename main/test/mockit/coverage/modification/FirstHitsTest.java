@@ -0,0 +1,120 @@
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+/**
+ * Runs sample code with branches, loops and exception handlers with and without the "<tt>coverage-firstHitOnly</tt>" mode, checking that
+ * the guarded probes in the modified bytecode pass verification and leave the same lines and segments covered, with execution counts
+ * capped at one.
+ */
+public final class FirstHitsTest
+{
+   static final String SAMPLE_FILE = "sample/Loops.java";
+
+   @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+   File classesDir;
+
+   @Before
+   public void compileSampleClass() throws Exception {
+      Map<String, String> sources = new HashMap<>();
+      sources.put(SAMPLE_FILE,
+         "package sample;\n" +
+         "public final class Loops {\n" +
+         "   static int counter;\n" +
+         "   public static void main(String[] args) {\n" +
+         "      int total = 0;\n" +
+         "      for (int i = 0; i < 50; i++) {\n" +
+         "         total += classify(i);\n" +
+         "         total += parse(i % 3 == 0 ? \"x\" : String.valueOf(i));\n" +
+         "      }\n" +
+         "      int n = 5;\n" +
+         "      while (n > 0) n--;\n" +
+         "      System.out.println(total + n);\n" +
+         "   }\n" +
+         "   static int classify(int i) {\n" +
+         "      if (i % 2 == 0 && i > 10) {\n" +
+         "         return 1;\n" +
+         "      }\n" +
+         "      switch (i % 4) {\n" +
+         "         case 1: return 3;\n" +
+         "         case 3: return 4;\n" +
+         "         default: return i < 0 ? -1 : 0;\n" +
+         "      }\n" +
+         "   }\n" +
+         "   static int parse(String s) {\n" +
+         "      try {\n" +
+         "         return Integer.parseInt(s);\n" +
+         "      }\n" +
+         "      catch (NumberFormatException e) {\n" +
+         "         return -1;\n" +
+         "      }\n" +
+         "      finally {\n" +
+         "         counter++;\n" +
+         "      }\n" +
+         "   }\n" +
+         "   static void neverCalled() { counter--; }\n" +
+         "}\n");
+
+      classesDir = folder.newFolder("classes");
+      ChildJVM.compile(folder.newFolder("src"), classesDir, sources);
+   }
+
+   @Test
+   public void coverSameLinesAndSegmentsAsWhenCountingEveryExecution() throws Exception {
+      PerFileLineCoverage countingEveryExecution = runWithCoverage();
+      PerFileLineCoverage recordingFirstHitsOnly = runWithCoverage("-Xverify:all", "-Dcoverage-firstHitOnly=true");
+
+      assertNotEquals(describe(countingEveryExecution, false), describe(countingEveryExecution, true));
+      assertEquals(describe(countingEveryExecution, true), describe(recordingFirstHitsOnly, false));
+      assertTrue(countingEveryExecution.getCoveredItems() < countingEveryExecution.getTotalItems());
+   }
+
+   PerFileLineCoverage runWithCoverage(String... jvmArgs) throws Exception {
+      File outputDir = folder.newFolder();
+      List<String> args = new ArrayList<>(Arrays.asList(jvmArgs));
+      args.addAll(Arrays.asList(
+         "-Dcoverage-output=serial", "-Dcoverage-outputDir=" + outputDir.getPath(), "-Dcoverage-classes=sample.*", "sample.Loops"));
+
+      ChildJVM.run(folder.getRoot(), classesDir, args.toArray(new String[0]));
+
+      CoverageData coverageData = CoverageData.readDataFromFile(new File(outputDir, "coverage.ser"));
+      FileCoverageData fileData = coverageData.getFileData(SAMPLE_FILE);
+      assertNotNull(fileData);
+      return fileData.getLineCoverageData();
+   }
+
+   static String describe(PerFileLineCoverage lineInfo, boolean capCountsAtOne) {
+      StringBuilder description = new StringBuilder();
+
+      for (int line = 1, n = lineInfo.getLineCount(); line <= n; line++) {
+         if (!lineInfo.hasLineData(line)) {
+            continue;
+         }
+
+         LineCoverageData lineData = lineInfo.getLineData(line);
+         description.append("\nline ").append(line)
+            .append(": segments=").append(lineData.getNumberOfCoveredSegments()).append('/').append(lineData.getNumberOfSegments())
+            .append(", branches=").append(lineData.getNumberOfCoveredBranchingSourcesAndTargets())
+            .append('/').append(lineData.getNumberOfBranchingSourcesAndTargets())
+            .append(", executions=").append(count(lineData.getExecutionCount(), capCountsAtOne));
+
+         for (BranchCoverageData branchData : lineData.getBranches()) {
+            description.append(' ').append(count(branchData.getExecutionCount(), capCountsAtOne));
+         }
+      }
+
+      description.append("\nitems=").append(lineInfo.getTotalItems()).append(", covered=").append(lineInfo.getCoveredItems());
+      return description.toString();
+   }
+
+   static int count(int executionCount, boolean capAtOne) { return capAtOne ? Math.min(executionCount, 1) : executionCount; }
+}
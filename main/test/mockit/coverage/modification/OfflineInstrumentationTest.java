@@ -0,0 +1,87 @@
+package mockit.coverage.modification;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+import mockit.coverage.lines.*;
+
+/**
+ * Instruments a directory of classes offline and then runs them in a separate JVM with the coverage agent, as a test run would.
+ */
+public final class OfflineInstrumentationTest
+{
+   @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+   static final String SAMPLE_SOURCE =
+      "package offline;\n" +
+      "public final class Sample {\n" +
+      "   public static void main(String[] args) {\n" +
+      "      System.out.println(describe(args.length));\n" +
+      "   }\n" +
+      "   static String describe(int n) {\n" +
+      "      if (n > 0) {\n" +
+      "         return \"some\";\n" +
+      "      }\n" +
+      "      return \"none\";\n" +
+      "   }\n" +
+      "}\n";
+
+   static final String NEVER_LOADED_SOURCE =
+      "package offline;\n" +
+      "final class NeverLoaded {\n" +
+      "   int value() { return 1; }\n" +
+      "}\n";
+
+   File inputDir;
+   File outputDir;
+   File metadataFile;
+
+   @Before
+   public void compileSampleClasses() throws Exception {
+      inputDir = folder.newFolder("classes");
+      outputDir = new File(folder.getRoot(), "instrumented");
+      metadataFile = new File(folder.getRoot(), "coverage-metadata.ser");
+
+      Map<String, String> sources = new HashMap<>();
+      sources.put("offline/Sample.java", SAMPLE_SOURCE);
+      sources.put("offline/NeverLoaded.java", NEVER_LOADED_SOURCE);
+      ChildJVM.compile(folder.newFolder("src"), inputDir, sources);
+   }
+
+   @Test
+   public void runClassesInstrumentedOfflineWithTheMetadataWrittenForThem() throws Exception {
+      ChildJVM.run(
+         folder.getRoot(), null, "mockit.coverage.modification.OfflineInstrumentation",
+         inputDir.getPath(), outputDir.getPath(), metadataFile.getPath());
+
+      assertTrue(metadataFile.isFile());
+      byte[] originalClassfile = Files.readAllBytes(new File(inputDir, "offline/Sample.class").toPath());
+      byte[] instrumentedClassfile = Files.readAllBytes(new File(outputDir, "offline/Sample.class").toPath());
+      assertFalse(Arrays.equals(originalClassfile, instrumentedClassfile));
+
+      File coverageOutputDir = folder.newFolder("coverage");
+      ChildJVM.run(
+         folder.getRoot(), outputDir, "-Dcoverage-output=serial", "-Dcoverage-outputDir=" + coverageOutputDir.getPath(),
+         "-Dcoverage-metadata=" + metadataFile.getPath(), "offline.Sample");
+
+      CoverageData coverageData = CoverageData.readDataFromFile(new File(coverageOutputDir, "coverage.ser"));
+
+      PerFileLineCoverage sampleLines = coverageData.getFileData("offline/Sample.java").getLineCoverageData();
+      assertEquals(1, sampleLines.getExecutionCount(4));
+      assertEquals(1, sampleLines.getExecutionCount(7));
+      assertEquals(0, sampleLines.getExecutionCount(8));
+      assertEquals(1, sampleLines.getExecutionCount(10));
+
+      FileCoverageData neverLoadedData = coverageData.getFileData("offline/NeverLoaded.java");
+      assertNotNull(neverLoadedData);
+      PerFileLineCoverage neverLoadedLines = neverLoadedData.getLineCoverageData();
+      assertEquals(2, neverLoadedLines.getExecutableLineCount());
+      assertFalse(neverLoadedLines.hasLineData(3));
+   }
+}
@@ -0,0 +1,86 @@
+package mockit.coverage.reporting;
+
+import java.io.*;
+import java.nio.file.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.data.*;
+
+public final class ReportManifestTest
+{
+   @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+   File sourceFile;
+   File outputFile;
+   CoverageData coverageData;
+   FileCoverageData fileData;
+
+   @Before
+   public void createSourceFileAndCoverageData() throws Exception {
+      sourceFile = folder.newFile("SomeClass.java");
+      Files.write(sourceFile.toPath(), "class SomeClass {}".getBytes());
+      outputFile = folder.newFile("SomeClass.html");
+
+      coverageData = new CoverageData();
+      fileData = coverageData.getOrAddFile("pkg/SomeClass.java", "class");
+
+      for (int line = 1; line <= 3; line++) {
+         fileData.lineCoverageInfo.addLine(line);
+      }
+
+      fileData.dataCoverageInfo.addField("pkg/SomeClass", "count", false);
+      fileData.dataCoverageInfo.addField("pkg/SomeClass", "total", true);
+      fileData.lineCoverageInfo.registerExecution(1);
+   }
+
+   ReportManifest createManifest() throws IOException { return new ReportManifest(folder.getRoot().getPath(), false, 123L); }
+
+   boolean isUnchanged(FileCoverageData data) throws IOException {
+      ReportManifest manifest = createManifest();
+      boolean unchanged = manifest.isUnchanged("pkg/SomeClass.java", sourceFile, data, outputFile);
+      manifest.save();
+      return unchanged;
+   }
+
+   @Test
+   public void recognizeUnchangedCoverageDataAfterRoundTripThroughDataFile() throws Exception {
+      assertFalse(isUnchanged(fileData));
+
+      File dataFile = folder.newFile("coverage.ser");
+      coverageData.writeDataToFile(dataFile);
+      FileCoverageData fileDataRead = CoverageData.readDataFromFile(dataFile).getFileData("pkg/SomeClass.java");
+
+      assertTrue(isUnchanged(fileDataRead));
+   }
+
+   @Test
+   public void detectChangedExecutionCount() throws Exception {
+      assertFalse(isUnchanged(fileData));
+
+      fileData.lineCoverageInfo.registerExecution(1);
+
+      assertFalse(isUnchanged(fileData));
+      assertTrue(isUnchanged(fileData));
+   }
+
+   @Test
+   public void detectChangedFieldCoverage() throws Exception {
+      assertFalse(isUnchanged(fileData));
+
+      fileData.dataCoverageInfo.registerAssignmentToStaticField("pkg/SomeClass.total");
+
+      assertFalse(isUnchanged(fileData));
+   }
+
+   @Test
+   public void detectChangedSourceFile() throws Exception {
+      assertFalse(isUnchanged(fileData));
+
+      Files.write(sourceFile.toPath(), "class SomeClass { int i; }".getBytes());
+
+      assertFalse(isUnchanged(fileData));
+   }
+}
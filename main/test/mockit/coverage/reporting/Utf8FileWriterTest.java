@@ -0,0 +1,96 @@
+package mockit.coverage.reporting;
+
+import java.io.*;
+import java.nio.file.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public final class Utf8FileWriterTest
+{
+   @Rule public final TemporaryFolder folder = new TemporaryFolder();
+
+   File outputFile;
+
+   @Before
+   public void createOutputFile() throws Exception { outputFile = folder.newFile("output.html"); }
+
+   void assertWrittenAsUTF8(String expectedText) throws IOException {
+      assertArrayEquals(expectedText.getBytes(UTF_8), Files.readAllBytes(outputFile.toPath()));
+   }
+
+   @Test
+   public void writeTextLargerThanTheBufferWithCharactersOfAllEncodedLengths() throws Exception {
+      StringBuilder text = new StringBuilder();
+
+      for (int i = 0; i < 20000; i++) {
+         text.append("aé中😀");
+      }
+
+      String str = text.toString();
+      char[] chars = str.toCharArray();
+
+      try (Utf8FileWriter writer = new Utf8FileWriter(outputFile)) {
+         writer.write(str);
+         writer.write(chars, 1, chars.length - 1);
+         writer.write('z');
+      }
+
+      assertWrittenAsUTF8(str + str.substring(1) + 'z');
+   }
+
+   @Test
+   public void encodeSurrogatePairSplitAcrossWrites() throws Exception {
+      try (Utf8FileWriter writer = new Utf8FileWriter(outputFile)) {
+         writer.write("x\uD83D");
+         writer.write("\uDE00y");
+      }
+
+      assertWrittenAsUTF8("x😀y");
+   }
+
+   @Test
+   public void replaceUnpairedSurrogates() throws Exception {
+      try (Utf8FileWriter writer = new Utf8FileWriter(outputFile)) {
+         writer.write("a\uD83Db\uDE00c");
+         writer.write('\uD83D');
+         writer.writeInt(12);
+         writer.write('\uD83D');
+      }
+
+      assertWrittenAsUTF8("a?b?c?12?");
+   }
+
+   @Test
+   public void replacePendingHighSurrogateWhenClosingWithFullBuffer() throws Exception {
+      StringBuilder text = new StringBuilder();
+
+      for (int i = 0; i < 64 * 1024 - 11; i++) {
+         text.append('.');
+      }
+
+      try (Utf8FileWriter writer = new Utf8FileWriter(outputFile)) {
+         writer.write(text.toString());
+         writer.writeInt(-123456789);
+         writer.write('\uD800');
+      }
+
+      assertWrittenAsUTF8(text + "-123456789?");
+   }
+
+   @Test
+   public void writeIntegers() throws Exception {
+      try (Utf8FileWriter writer = new Utf8FileWriter(outputFile)) {
+         int[] values = {0, 7, -7, 10, 1000000, Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+         for (int value : values) {
+            writer.writeInt(value);
+            writer.write(' ');
+         }
+      }
+
+      assertWrittenAsUTF8("0 7 -7 10 1000000 2147483647 -2147483648 ");
+   }
+}
@@ -0,0 +1,212 @@
+package mockit.coverage.testRedundancy;
+
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+
+import mockit.coverage.dataItems.*;
+import mockit.internal.state.*;
+
+/**
+ * Runs tests on separate threads, as parallel test runners do, or one after the other with a thread pool shared between them, checking
+ * that new items covered and field accesses are attributed to the test running on the thread which made them, or on the thread which
+ * started it.
+ */
+public final class TestCoverageTest
+{
+   static final class SampleTests {
+      void coversTwoItems() {}
+      void coversOneItemFromThreadItStarts() {}
+      void coversNothingNew() {}
+   }
+
+   static final String STATIC_FIELD = "pkg/Shared.total";
+   static final String INSTANCE_FIELD = "pkg/Shared.value";
+
+   final TestCoverage testCoverage = new TestCoverage();
+   final PerFileDataCoverage dataCoverage = new PerFileDataCoverage();
+   final CyclicBarrier allTestsStarted = new CyclicBarrier(3);
+   final Map<String, Integer> testIds = new ConcurrentHashMap<>();
+   final List<Throwable> failures = new CopyOnWriteArrayList<>();
+   final Object instanceOfFirstTest = new Object();
+   final Object instanceOfSecondTest = new Object();
+
+   abstract class ParallelTest extends Thread {
+      private final Method testMethod;
+
+      ParallelTest(String testName) throws NoSuchMethodException {
+         testMethod = SampleTests.class.getDeclaredMethod(testName);
+      }
+
+      @Override
+      public final void run() {
+         TestRun.prepareForNextTest();
+         testCoverage.setCurrentTestMethod(testMethod);
+
+         try {
+            allTestsStarted.await(10, TimeUnit.SECONDS);
+            testIds.put(testMethod.getName(), TestRun.getTestId());
+            execute();
+         }
+         catch (Throwable t) { failures.add(t); }
+         finally {
+            testCoverage.setCurrentTestMethod(null);
+         }
+      }
+
+      abstract void execute() throws Exception;
+   }
+
+   void recordNewItem() { testCoverage.recordNewItemCoveredByTestIfApplicable(0); }
+
+   // Field accesses are registered under a lock, like the ones from instrumented code.
+   void registerFieldAccesses(boolean read, Object instance) {
+      synchronized (dataCoverage) {
+         if (read) {
+            dataCoverage.registerReadOfStaticField(STATIC_FIELD);
+         }
+         else {
+            dataCoverage.registerAssignmentToStaticField(STATIC_FIELD);
+         }
+
+         dataCoverage.registerAssignmentToInstanceField(instance, INSTANCE_FIELD);
+
+         if (read) {
+            dataCoverage.registerReadOfInstanceField(instance, INSTANCE_FIELD);
+         }
+      }
+   }
+
+   @Test
+   public void attributeCoverageToTestsRunningInParallelAndToThreadsTheyStart() throws Exception {
+      dataCoverage.addField("pkg/Shared", "total", true);
+      dataCoverage.addField("pkg/Shared", "value", false);
+
+      Thread firstTest = new ParallelTest("coversTwoItems") {
+         @Override
+         void execute() {
+            recordNewItem();
+            recordNewItem();
+            registerFieldAccesses(false, instanceOfFirstTest);
+         }
+      };
+
+      Thread secondTest = new ParallelTest("coversOneItemFromThreadItStarts") {
+         @Override
+         void execute() throws InterruptedException {
+            Thread threadStartedByTest = new Thread() {
+               @Override
+               public void run() {
+                  testIds.put("threadStartedByTest", TestRun.getTestId());
+                  recordNewItem();
+                  registerFieldAccesses(true, instanceOfSecondTest);
+               }
+            };
+            threadStartedByTest.start();
+            threadStartedByTest.join();
+         }
+      };
+
+      Thread thirdTest = new ParallelTest("coversNothingNew") {
+         @Override
+         void execute() { testCoverage.recordNewItemCoveredByTestIfApplicable(1); }
+      };
+
+      for (Thread test : asList(firstTest, secondTest, thirdTest)) test.start();
+      for (Thread test : asList(firstTest, secondTest, thirdTest)) test.join();
+
+      assertEquals(Collections.<Throwable>emptyList(), failures);
+
+      int firstTestId = testIds.get("coversTwoItems");
+      int secondTestId = testIds.get("coversOneItemFromThreadItStarts");
+      assertEquals(3, new HashSet<>(asList(firstTestId, secondTestId, testIds.get("coversNothingNew"))).size());
+      assertEquals(secondTestId, testIds.get("threadStartedByTest").intValue());
+
+      Map<Method, Integer> testsToItemsCovered = getMapField(testCoverage, "testsToItemsCovered");
+      assertEquals(2, testsToItemsCovered.get(SampleTests.class.getDeclaredMethod("coversTwoItems")).intValue());
+      assertEquals(1, testsToItemsCovered.get(SampleTests.class.getDeclaredMethod("coversOneItemFromThreadItStarts")).intValue());
+      assertEquals(0, testsToItemsCovered.get(SampleTests.class.getDeclaredMethod("coversNothingNew")).intValue());
+      assertEquals(asList("SampleTests.coversNothingNew"), testCoverage.getRedundantTests());
+
+      Map<Integer, Boolean> staticFieldAssignments = getMapField(dataCoverage.getStaticFieldData(STATIC_FIELD), "testIdsToAssignments");
+      Map<Integer, Boolean> expectedStaticFieldAssignments = new HashMap<>();
+      expectedStaticFieldAssignments.put(firstTestId, true);
+      expectedStaticFieldAssignments.put(secondTestId, null);
+      assertEquals(expectedStaticFieldAssignments, staticFieldAssignments);
+
+      Map<Integer, List<Integer>> instanceFieldAssignments =
+         getMapField(dataCoverage.getInstanceFieldData(INSTANCE_FIELD), "testIdsToAssignments");
+      assertEquals(asList(System.identityHashCode(instanceOfFirstTest)), instanceFieldAssignments.get(firstTestId));
+      assertEquals(Collections.<Integer>emptyList(), instanceFieldAssignments.get(secondTestId));
+      assertEquals(2, instanceFieldAssignments.size());
+   }
+
+   @Test
+   public void attributeCoverageFromPooledThreadCreatedByEarlierTestToTheTestRunningNow() throws Exception {
+      final ExecutorService executorCreatingItsThreadInFirstTest = Executors.newSingleThreadExecutor();
+
+      Thread testRunnerThread = new Thread() {
+         @Override
+         public void run() {
+            try {
+               runTestUsingPooledThread("coversTwoItems", executorCreatingItsThreadInFirstTest, 2);
+               runTestUsingPooledThread("coversOneItemFromThreadItStarts", executorCreatingItsThreadInFirstTest, 1);
+            }
+            catch (Throwable t) { failures.add(t); }
+         }
+      };
+
+      try {
+         testRunnerThread.start();
+         testRunnerThread.join();
+      }
+      finally {
+         executorCreatingItsThreadInFirstTest.shutdown();
+      }
+
+      assertEquals(Collections.<Throwable>emptyList(), failures);
+      assertEquals(testIds.get("coversTwoItems"), testIds.get("coversTwoItems in pooled thread"));
+      assertEquals(testIds.get("coversOneItemFromThreadItStarts"), testIds.get("coversOneItemFromThreadItStarts in pooled thread"));
+      assertNotEquals(testIds.get("coversTwoItems"), testIds.get("coversOneItemFromThreadItStarts"));
+
+      Map<Method, Integer> testsToItemsCovered = getMapField(testCoverage, "testsToItemsCovered");
+      assertEquals(2, testsToItemsCovered.get(SampleTests.class.getDeclaredMethod("coversTwoItems")).intValue());
+      assertEquals(1, testsToItemsCovered.get(SampleTests.class.getDeclaredMethod("coversOneItemFromThreadItStarts")).intValue());
+      assertEquals(Collections.<String>emptyList(), testCoverage.getRedundantTests());
+   }
+
+   void runTestUsingPooledThread(final String testName, ExecutorService executor, final int newItemsToCover) throws Exception {
+      TestRun.prepareForNextTest();
+      testCoverage.setCurrentTestMethod(SampleTests.class.getDeclaredMethod(testName));
+      testIds.put(testName, TestRun.getTestId());
+
+      try {
+         executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+               testIds.put(testName + " in pooled thread", TestRun.getTestId());
+
+               for (int i = 0; i < newItemsToCover; i++) {
+                  recordNewItem();
+               }
+
+               return null;
+            }
+         }).get();
+      }
+      finally {
+         testCoverage.setCurrentTestMethod(null);
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   static <K, V> Map<K, V> getMapField(Object owner, String fieldName) throws ReflectiveOperationException {
+      Field field = owner.getClass().getDeclaredField(fieldName);
+      field.setAccessible(true);
+      return (Map<K, V>) field.get(owner);
+   }
+}
@@ -88,6 +88,18 @@ public final class SpringIntegrationTest
       assertBeanNotOfRequiredTypeForWrongBeanType(beanFactory);
    }
 
+   @Test
+   public void lookUpSameBeansRepeatedlyThroughTheBeanFactory() {
+      BeanFactory beanFactory = new DefaultListableBeanFactory();
+      AnotherDependency firstLookup = beanFactory.getBean(AnotherDependency.class);
+
+      for (int i = 0; i < 3; i++) {
+         assertSame(dependency, beanFactory.getBean("dependency"));
+         assertSame(exampleSUT.collaborator, beanFactory.getBean(Collaborator.class));
+         assertSame(firstLookup, beanFactory.getBean(AnotherDependency.class));
+      }
+   }
+
    @SuppressWarnings("ReuseOfLocalVariable")
    void assertTestedObjectsAndDependencies(BeanFactory beanFactory) {
       assertSame(dependency, exampleSUT.dependency);
@@ -0,0 +1,86 @@
+package mockit.internal.expectations.mocking;
+
+import java.lang.instrument.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+import mockit.*;
+
+public final class MockedClassCacheTest
+{
+   public interface Dependency { int getValue(); }
+   public static final class FirstImplementation implements Dependency { @Override public int getValue() { return 1; } }
+   public static final class SecondImplementation implements Dependency { @Override public int getValue() { return 2; } }
+
+   @SuppressWarnings("unused")
+   static final class MockFields {
+      @Mocked Dependency mocked;
+      @Injectable Dependency injectable;
+      @Injectable final Dependency finalInjectable = null;
+   }
+
+   static MockedType mockField(String name) throws NoSuchFieldException {
+      return new MockedType(MockFields.class.getDeclaredField(name));
+   }
+
+   static MockedClassCache.Key key(Class<?> mockedClass, MockedType typeMetadata, boolean cascading) {
+      return new MockedClassCache.Key(mockedClass, Dependency.class, typeMetadata, cascading);
+   }
+
+   @Test
+   public void keysForSameMockedClassAndOptionsAreEqual() throws Exception {
+      MockedClassCache.Key key = key(Dependency.class, mockField("mocked"), false);
+      MockedClassCache.Key sameKey = key(Dependency.class, mockField("mocked"), false);
+
+      assertEquals(key, sameKey);
+      assertEquals(key.hashCode(), sameKey.hashCode());
+   }
+
+   @Test
+   public void keysDifferInEachMockingOption() throws Exception {
+      MockedType mocked = mockField("mocked");
+      List<MockedClassCache.Key> keys = Arrays.asList(
+         key(Dependency.class, mocked, false),
+         key(Dependency.class, mocked, true),
+         key(Dependency.class, mockField("injectable"), false),
+         key(Dependency.class, mockField("finalInjectable"), false),
+         key(FirstImplementation.class, mocked, false),
+         key(SecondImplementation.class, mocked, false));
+
+      assertEquals(keys.size(), new HashSet<>(keys).size());
+   }
+
+   @Test
+   public void keysDifferForMockedTypesWhoseHashCodesCollide() throws Exception {
+      MockedType injectableField = mockField("injectable");
+      MockedType cascadedType = new MockedType("getDependency", Dependency.class);
+
+      // These used to share a single cache entry, keyed by the hash code of the mocked type.
+      assertEquals(injectableField.hashCode(), cascadedType.hashCode());
+      assertNotEquals(key(Dependency.class, injectableField, false), key(Dependency.class, cascadedType, true));
+      assertNotEquals(key(Dependency.class, injectableField, false), key(Dependency.class, cascadedType, false));
+   }
+
+   @Test
+   public void getCachedClassDefinitionsOnlyForEqualKey() throws Exception {
+      MockedClassCache cache = new MockedClassCache();
+      ClassLoader loader = FirstImplementation.class.getClassLoader();
+      MockedType mocked = mockField("mocked");
+      ClassDefinition classDefinition = new ClassDefinition(FirstImplementation.class, new byte[] {1, 2, 3});
+      cache.put(loader, key(FirstImplementation.class, mocked, false), FirstImplementation.class, new ClassDefinition[] {classDefinition});
+
+      List<ClassDefinition> classDefinitions = new ArrayList<>();
+      assertNull(cache.get(loader, key(FirstImplementation.class, mocked, true), classDefinitions));
+      assertNull(cache.get(loader, key(SecondImplementation.class, mocked, false), classDefinitions));
+      assertNull(cache.get(null, key(FirstImplementation.class, mocked, false), classDefinitions));
+      assertTrue(classDefinitions.isEmpty());
+
+      assertSame(FirstImplementation.class, cache.get(loader, key(FirstImplementation.class, mocked, false), classDefinitions));
+      assertEquals(1, classDefinitions.size());
+      assertSame(FirstImplementation.class, classDefinitions.get(0).getDefinitionClass());
+      assertSame(classDefinition.getDefinitionClassFile(), classDefinitions.get(0).getDefinitionClassFile());
+   }
+}